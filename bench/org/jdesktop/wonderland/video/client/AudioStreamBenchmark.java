@@ -0,0 +1,110 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import org.jdesktop.wonderland.video.client.AudioInputStream.ReadTimeout;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
+
+/**
+ * Measures <code>AudioInputStream</code> with a producer thread adding
+ * decoded frames and the benchmark thread reading them, the way the
+ * queue filler and audio thread use it. One operation is one read of
+ * a line-sized buffer.
+ *
+ * @author agent <agent@local>
+ */
+public class AudioStreamBenchmark extends Benchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int FRAME_SIZE = 4;
+
+    // size of each decoded frame added, in samples
+    private static final int PACKET_SAMPLES = 1024;
+
+    // size of each read, in samples
+    private static final int READ_SAMPLES = 4096;
+
+    // how far ahead of the reader the producer is allowed to get
+    private static final long MAX_BUFFERED = 500000;
+
+    // wait a little for data, then give up and pad
+    private static final ReadTimeout TIMEOUT = new ReadTimeout() {
+        public long getReadTimeout(int bytesRead) {
+            return (bytesRead == 0) ? 10000 : 0;
+        }
+    };
+
+    private AudioInputStream stream;
+    private Thread producer;
+    private volatile boolean quit;
+    private byte[] buffer;
+
+    public AudioStreamBenchmark() {
+        super("AudioInputStream.add/read");
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        stream = new AudioInputStream();
+        stream.start(0, SAMPLE_RATE, FRAME_SIZE * 8);
+        buffer = new byte[READ_SAMPLES * FRAME_SIZE];
+
+        quit = false;
+        producer = new Thread(new Runnable() {
+            public void run() {
+                produce();
+            }
+        }, "Benchmark audio producer");
+        producer.start();
+    }
+
+    @Override
+    public long run() throws Exception {
+        stream.read(buffer, buffer.length, TIMEOUT);
+        return 1;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        quit = true;
+        producer.join();
+        stream.clear();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return getAllocatedBytes(Thread.currentThread()) +
+               getAllocatedBytes(producer);
+    }
+
+    private void produce() {
+        long samples = 0;
+
+        while (!quit) {
+            if (stream.getBufferedMicroseconds() > MAX_BUFFERED) {
+                Thread.yield();
+                continue;
+            }
+
+            // a new array each time, like the queue filler
+            byte[] data = new byte[PACKET_SAMPLES * FRAME_SIZE];
+            long pts = (samples * 1000000L) / SAMPLE_RATE;
+            stream.add(new AudioFrame(pts, data, data.length));
+            samples += PACKET_SAMPLES;
+        }
+    }
+}
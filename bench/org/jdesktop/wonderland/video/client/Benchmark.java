@@ -0,0 +1,108 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A single benchmark run by the <code>BenchmarkRunner</code>. The runner
+ * calls <code>run()</code> repeatedly for a fixed amount of time, and
+ * reports the number of operations per second along with the number of
+ * bytes allocated per operation.
+ *
+ * @author agent <agent@local>
+ */
+public abstract class Benchmark {
+    private static final ThreadMXBean THREADS =
+            ManagementFactory.getThreadMXBean();
+
+    private final String name;
+
+    /**
+     * Create a new benchmark
+     * @param name the name of the benchmark
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of this benchmark
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepare to run. Called once before any calls to <code>run()</code>.
+     * @throws Exception if there is an error
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Perform some operations. This is called repeatedly, so it should
+     * take well under a millisecond to a few hundred milliseconds.
+     * @return the number of operations performed
+     * @throws Exception if there is an error
+     */
+    public abstract long run() throws Exception;
+
+    /**
+     * Clean up after running. Called once after all calls to
+     * <code>run()</code>.
+     * @throws Exception if there is an error
+     */
+    public void tearDown() throws Exception {
+    }
+
+    /**
+     * Get the total number of bytes allocated by the threads this
+     * benchmark uses. By default, this is the calling thread only.
+     * Benchmarks that do work on other threads should override this.
+     * @return the number of bytes allocated, or -1 if allocation can't be
+     * measured on this platform
+     */
+    public long getAllocatedBytes() {
+        return getAllocatedBytes(Thread.currentThread());
+    }
+
+    /**
+     * Get the number of bytes allocated by the given thread
+     * @param thread the thread to check
+     * @return the number of bytes allocated by the thread, or -1 if
+     * allocation can't be measured on this platform
+     */
+    protected static long getAllocatedBytes(Thread thread) {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported() ||
+            !threads.isThreadAllocatedMemoryEnabled())
+        {
+            return -1;
+        }
+
+        return threads.getThreadAllocatedBytes(thread.getId());
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Runs the player benchmarks. Each benchmark is run for a number of
+ * warmup iterations, which are discarded, and then a number of measured
+ * iterations. For each benchmark, the mean and standard deviation of
+ * operations per second are reported, along with the number of bytes
+ * allocated per operation.
+ *
+ * @author agent <agent@local>
+ */
+public class BenchmarkRunner {
+    private static final Logger LOGGER =
+            Logger.getLogger(BenchmarkRunner.class.getName());
+
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationTime = 1000;
+
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public void setIterationTime(long iterationTime) {
+        this.iterationTime = iterationTime;
+    }
+
+    /**
+     * Run a single benchmark
+     * @param benchmark the benchmark to run
+     * @return the result
+     * @throws Exception if the benchmark fails
+     */
+    public Result run(Benchmark benchmark) throws Exception {
+        benchmark.setUp();
+
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(benchmark);
+            }
+
+            double[] rates = new double[iterations];
+            long totalOps = 0;
+            long totalAllocated = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                long[] res = iteration(benchmark);
+                rates[i] = res[0] * 1000000000.0 / res[1];
+                totalOps += res[0];
+                totalAllocated = (res[2] < 0 || totalAllocated < 0) ? -1 :
+                                 totalAllocated + res[2];
+            }
+
+            double bytesPerOp = (totalAllocated < 0 || totalOps == 0) ? -1 :
+                                (double) totalAllocated / totalOps;
+            return new Result(benchmark.getName(), rates, bytesPerOp);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    /**
+     * Run one iteration
+     * @param benchmark the benchmark to run
+     * @return the number of operations, the elapsed time in nanoseconds
+     * and the number of bytes allocated (or -1 if unknown)
+     */
+    private long[] iteration(Benchmark benchmark) throws Exception {
+        long allocStart = benchmark.getAllocatedBytes();
+        long start = System.nanoTime();
+        long end = start + (iterationTime * 1000000L);
+
+        long ops = 0;
+        long now;
+        do {
+            ops += benchmark.run();
+            now = System.nanoTime();
+        } while (now < end);
+
+        long allocEnd = benchmark.getAllocatedBytes();
+        long allocated = (allocStart < 0 || allocEnd < 0) ? -1 :
+                         allocEnd - allocStart;
+
+        return new long[] { ops, now - start, allocated };
+    }
+
+    /**
+     * The result of a benchmark
+     */
+    public static class Result {
+        private final String name;
+        private final double mean;
+        private final double stdDev;
+        private final double bytesPerOp;
+
+        public Result(String name, double[] rates, double bytesPerOp) {
+            this.name = name;
+            this.bytesPerOp = bytesPerOp;
+
+            double sum = 0;
+            for (double rate : rates) {
+                sum += rate;
+            }
+            mean = sum / rates.length;
+
+            double sq = 0;
+            for (double rate : rates) {
+                sq += (rate - mean) * (rate - mean);
+            }
+            stdDev = (rates.length > 1) ? Math.sqrt(sq / (rates.length - 1)) : 0;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the mean number of operations per second
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * @return the standard deviation of operations per second
+         */
+        public double getStdDev() {
+            return stdDev;
+        }
+
+        /**
+         * @return the number of bytes allocated per operation, or -1 if
+         * allocation could not be measured
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            String alloc = (bytesPerOp < 0) ? "n/a" :
+                           String.format("%.1f", bytesPerOp);
+            return String.format("%-50s %14.1f %12.1f %12s", name, mean,
+                                 stdDev, alloc);
+        }
+    }
+
+    /**
+     * Create the standard set of benchmarks
+     * @param clipDir the directory to store generated clips in
+     * @return the list of benchmarks
+     */
+    public static List<Benchmark> createBenchmarks(File clipDir) {
+        List<Benchmark> out = new ArrayList<Benchmark>();
+
+        out.add(new AudioStreamBenchmark());
+        out.add(new VolumeBenchmark(4096));
+        out.add(new VolumeBenchmark(65536));
+        out.add(new FrameSelectBenchmark(false, 10000));
+        out.add(new FrameSelectBenchmark(false, 80000));
+        out.add(new FrameSelectBenchmark(true, 160000));
+        out.add(new FrameHashBenchmark(1280, 720, 1));
+        out.add(new FrameHashBenchmark(1280, 720, 16));
+
+        SyntheticClip sd = new SyntheticClip();
+        sd.setSize(320, 240);
+        sd.setDuration(5.0);
+        out.add(new DecodeBenchmark("320x240", sd, clipDir));
+
+        SyntheticClip hd = new SyntheticClip();
+        hd.setSize(1280, 720);
+        hd.setDuration(5.0);
+        out.add(new DecodeBenchmark("1280x720", hd, clipDir));
+
+        SyntheticClip audio = new SyntheticClip();
+        audio.setVideo(false);
+        audio.setDuration(30.0);
+        out.add(new DecodeBenchmark("audio only", audio, clipDir));
+
+        return out;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("w", "warmup", true, "warmup iterations (default 3)");
+        options.addOption("i", "iterations", true,
+                          "measured iterations (default 5)");
+        options.addOption("t", "time", true,
+                          "time per iteration in milliseconds (default 1000)");
+        options.addOption("b", "benchmarks", true,
+                          "regular expression matching benchmarks to run");
+        options.addOption("d", "clips", true,
+                          "directory to store generated clips in");
+        options.addOption("h", "help", false, "print this message");
+
+        CommandLine line;
+        try {
+            line = new PosixParser().parse(options, args);
+        } catch (ParseException pe) {
+            System.err.println(pe.getMessage());
+            new HelpFormatter().printHelp("BenchmarkRunner", options);
+            System.exit(1);
+            return;
+        }
+
+        if (line.hasOption("h")) {
+            new HelpFormatter().printHelp("BenchmarkRunner", options);
+            return;
+        }
+
+        // benchmarks that don't use xuggler can still run without it
+        if (!VideoPlayerImpl.isVideoAvailable()) {
+            LOGGER.warning("Video libraries not available. Benchmarks that " +
+                           "decode video will fail.");
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.setWarmupIterations(Integer.parseInt(
+                line.getOptionValue("w", "3")));
+        runner.setIterations(Integer.parseInt(line.getOptionValue("i", "5")));
+        runner.setIterationTime(Long.parseLong(
+                line.getOptionValue("t", "1000")));
+
+        Pattern filter = Pattern.compile(line.getOptionValue("b", ".*"));
+        File clipDir = new File(line.getOptionValue("d", "build/bench-clips"));
+
+        System.out.println(String.format("%-50s %14s %12s %12s", "Benchmark",
+                                         "ops/s", "+/-", "B/op"));
+
+        int failures = 0;
+        for (Benchmark benchmark : createBenchmarks(clipDir)) {
+            if (!filter.matcher(benchmark.getName()).find()) {
+                continue;
+            }
+
+            try {
+                System.out.println(runner.run(benchmark));
+            } catch (Throwable ex) {
+                LOGGER.log(Level.WARNING, "Error running " +
+                           benchmark.getName(), ex);
+                failures++;
+            }
+        }
+
+        // the queue filler and xuggler may leave threads running
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A minimal HTTP server that serves clips from a directory, standing in
+ * for a web server when measuring network playback. Range requests are
+ * supported, so the player can seek, and the transfer rate can be limited
+ * to approximate a slower network.
+ *
+ * @author agent <agent@local>
+ */
+public class ClipServer {
+    private static final Logger LOGGER =
+            Logger.getLogger(ClipServer.class.getName());
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final File dir;
+    private long rate = 0;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Create a server for the given directory
+     * @param dir the directory to serve
+     */
+    public ClipServer(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Limit the rate each response is sent at
+     * @param rate the rate in bytes per second, or 0 for no limit
+     */
+    public synchronized void setRate(long rate) {
+        this.rate = rate;
+    }
+
+    public synchronized long getRate() {
+        return rate;
+    }
+
+    /**
+     * Start the server on a free port on the loopback interface
+     * @throws IOException if the server can't be started
+     */
+    public synchronized void start() throws IOException {
+        InetSocketAddress addr =
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0);
+        server = HttpServer.create(addr, 0);
+        server.createContext("/", new ClipHandler());
+
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stop the server
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Get the URI of a clip on this server
+     * @param file the clip, which must be in the served directory
+     * @return the HTTP URI of the clip
+     */
+    public synchronized String getURI(File file) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" +
+               file.getName();
+    }
+
+    class ClipHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                serve(exchange);
+            } catch (IOException ioe) {
+                // the player closes connections when it seeks
+                LOGGER.log(Level.FINE, "Error serving " +
+                           exchange.getRequestURI(), ioe);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void serve(HttpExchange exchange) throws IOException {
+            String name = exchange.getRequestURI().getPath().substring(1);
+            File file = new File(dir, name);
+            if (name.contains("/") || !file.isFile()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            long length = file.length();
+            long start = 0;
+            long end = length - 1;
+            int status = 200;
+
+            // support a single range of the form "bytes=start-[end]"
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null && range.startsWith("bytes=")) {
+                String[] parts = range.substring(6).split("-", 2);
+                try {
+                    start = Long.parseLong(parts[0].trim());
+                    if (parts.length > 1 && parts[1].trim().length() > 0) {
+                        end = Math.min(Long.parseLong(parts[1].trim()), end);
+                    }
+                } catch (NumberFormatException nfe) {
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+
+                if (start > end) {
+                    exchange.getResponseHeaders().set("Content-Range",
+                            "bytes */" + length);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + end + "/" + length);
+            }
+
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().set("Content-Type",
+                                              "application/octet-stream");
+
+            long count = end - start + 1;
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(status, count);
+            send(file, start, count, exchange.getResponseBody());
+        }
+
+        private void send(File file, long start, long count, OutputStream out)
+                throws IOException
+        {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                in.seek(start);
+
+                byte[] buffer = new byte[CHUNK_SIZE];
+                long sent = 0;
+                long begin = System.nanoTime();
+                long curRate = getRate();
+
+                while (sent < count) {
+                    int read = in.read(buffer, 0,
+                                       (int) Math.min(buffer.length, count - sent));
+                    if (read < 0) {
+                        break;
+                    }
+
+                    out.write(buffer, 0, read);
+                    sent += read;
+
+                    // sleep until the data would have been sent at the
+                    // limited rate
+                    if (curRate > 0) {
+                        long due = begin + (sent * 1000000000L / curRate);
+                        long wait = (due - System.nanoTime()) / 1000000;
+                        if (wait > 0) {
+                            try {
+                                Thread.sleep(wait);
+                            } catch (InterruptedException ie) {
+                                throw new IOException("Interrupted");
+                            }
+                        }
+                    }
+                }
+
+                out.flush();
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
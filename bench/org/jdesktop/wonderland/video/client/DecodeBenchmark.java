@@ -0,0 +1,141 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IStreamCoder;
+import java.io.File;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.VideoQueue;
+
+/**
+ * Measures the queue filler decoding a synthetic clip as fast as it can,
+ * with a queue that never blocks. One operation is one decoded video
+ * frame or audio packet.
+ *
+ * @author agent <agent@local>
+ */
+public class DecodeBenchmark extends Benchmark {
+    private final SyntheticClip clip;
+    private final File clipDir;
+
+    private String uri;
+    private VideoQueueFiller filler;
+    private final CountingQueue queue = new CountingQueue();
+
+    /**
+     * Create a new benchmark
+     * @param name a name for the clip
+     * @param clip the clip to decode
+     * @param clipDir the directory to store generated clips in
+     */
+    public DecodeBenchmark(String name, SyntheticClip clip, File clipDir) {
+        super("VideoQueueFiller.fillQueue[" + name + "]");
+
+        this.clip = clip;
+        this.clipDir = clipDir;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        File file = clip.getOrCreate(clipDir, "flv");
+        uri = file.toURI().toString();
+        filler = new VideoQueueFiller(queue);
+    }
+
+    @Override
+    public long run() throws Exception {
+        queue.reset();
+
+        if (!filler.openMedia(uri)) {
+            throw new IllegalStateException("Unable to open " + uri);
+        }
+
+        return queue.waitForFinish();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        // wait for the media to close, so it isn't counted in the next run
+        filler.disable().get();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return getAllocatedBytes(Thread.currentThread()) +
+               queue.getFillerAllocated();
+    }
+
+    /**
+     * A queue that counts video and audio frames and throws them away
+     */
+    static class CountingQueue implements VideoQueue {
+        private long frames;
+        private boolean finished;
+
+        // bytes allocated by filler threads that have finished
+        private long fillerAllocated;
+
+        public synchronized void reset() {
+            frames = 0;
+            finished = false;
+        }
+
+        public synchronized long waitForFinish() throws InterruptedException {
+            while (!finished) {
+                wait();
+            }
+
+            return frames;
+        }
+
+        public synchronized long getFillerAllocated() {
+            return fillerAllocated;
+        }
+
+        public void newStream(int id, IStreamCoder coder) {
+        }
+
+        public synchronized void add(VideoFrame frame) {
+            frames++;
+            frame.release();
+        }
+
+        public void seekFrame(VideoFrame frame) {
+            frame.release();
+        }
+
+        public void seekEnabledChanged(boolean seekEnabled) {
+        }
+
+        public synchronized void add(AudioFrame audio) {
+            frames++;
+        }
+
+        public void clear() {
+        }
+
+        public synchronized void finished() {
+            // each open uses a new thread, so this is everything the
+            // thread allocated while decoding
+            fillerAllocated += getAllocatedBytes(Thread.currentThread());
+
+            finished = true;
+            notifyAll();
+        }
+    }
+}
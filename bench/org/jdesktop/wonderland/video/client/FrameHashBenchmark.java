@@ -0,0 +1,76 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IVideoPicture;
+
+/**
+ * Measures hashing a decoded picture to detect duplicate frames. This is
+ * done for every frame decoded, so it needs to stay well below the cost
+ * of converting the frame. One operation is one picture hashed.
+ *
+ * @author agent <agent@local>
+ */
+public class FrameHashBenchmark extends Benchmark {
+    // number of pictures to hash per run
+    private static final int PICTURES = 16;
+
+    private final int width;
+    private final int height;
+    private final FrameHasher hasher;
+
+    private IVideoPicture picture;
+
+    // keeps the hashes live, so they can't be optimized away
+    private long result;
+
+    /**
+     * Create a new benchmark
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @param sampleStep the sample step to hash with
+     */
+    public FrameHashBenchmark(int width, int height, int sampleStep) {
+        super("FrameHasher.hash[" + width + "x" + height + ", step=" +
+              sampleStep + "]");
+
+        this.width = width;
+        this.height = height;
+        this.hasher = new FrameHasher(sampleStep);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        picture = IVideoPicture.make(IPixelFormat.Type.YUV420P, width, height);
+    }
+
+    @Override
+    public long run() throws Exception {
+        for (int i = 0; i < PICTURES; i++) {
+            result ^= hasher.hash(picture);
+        }
+
+        return PICTURES;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        picture.delete();
+    }
+}
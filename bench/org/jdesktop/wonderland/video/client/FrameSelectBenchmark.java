@@ -0,0 +1,115 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IVideoPicture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Measures <code>FrameSelector</code>, the frame selection used by
+ * <code>nextFrame()</code>, over a filled frame queue. The clock advances by a fraction of a frame per call, so
+ * the mix of displayed, skipped and not-yet-due frames is similar to
+ * rendering at a higher rate than the video. One operation is one
+ * selection.
+ *
+ * @author agent <agent@local>
+ */
+public class FrameSelectBenchmark extends Benchmark {
+    private static final long FRAME_TIME = 40000;
+
+    // number of frames to queue for each run
+    private static final int FRAMES = 64;
+
+    private final boolean latest;
+    private final long clockStep;
+
+    private VideoFrame[] frames;
+    private BlockingQueue<VideoFrame> queue;
+    private PlaybackStats stats;
+
+    /**
+     * Create a new benchmark
+     * @param latest true to benchmark selection at rates other than
+     * normal speed
+     * @param clockStep how far the clock advances per call, in
+     * microseconds
+     */
+    public FrameSelectBenchmark(boolean latest, long clockStep) {
+        super("FrameSelector." + (latest ? "selectLatest" : "select") +
+              "[step=" + clockStep + "]");
+
+        this.latest = latest;
+        this.clockStep = clockStep;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        frames = new VideoFrame[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            IVideoPicture picture =
+                    IVideoPicture.make(IPixelFormat.Type.YUV420P, 16, 16);
+            picture.setTimeStamp(i * FRAME_TIME);
+            frames[i] = new VideoFrame(picture);
+        }
+
+        queue = new LinkedBlockingQueue<VideoFrame>();
+        // only the counters are used, so there is no need for a player,
+        // with its threads and memory accounting
+        stats = new PlaybackStats(null);
+    }
+
+    @Override
+    public long run() throws Exception {
+        // the queue owns a reference to each frame, which the selector
+        // releases or hands back
+        for (VideoFrame frame : frames) {
+            frame.retain();
+            queue.add(frame);
+        }
+
+        long ops = 0;
+        long target = 0;
+        while (!queue.isEmpty()) {
+            VideoFrame frame;
+            if (latest) {
+                frame = FrameSelector.selectLatest(queue, target, FRAME_TIME,
+                                                   stats);
+            } else {
+                frame = FrameSelector.select(queue, target, FRAME_TIME, stats);
+            }
+
+            if (frame != null) {
+                frame.release();
+            }
+
+            target += clockStep;
+            ops++;
+        }
+
+        return ops;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (VideoFrame frame : frames) {
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IPixelFormat;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.jdesktop.wonderland.video.client.VideoPlayer.VideoPlayerState;
+
+/**
+ * Measures the latencies users see: the time from opening media until it
+ * is ready to play (including the test seek done while opening), from
+ * <code>play()</code> until the first frame, and from a seek until the
+ * first frame at the new position. Synthetic clips are generated with
+ * a range of containers, key frame intervals and sizes, and played both
+ * from local files and through a local HTTP server. Each latency is
+ * reported as percentiles over a number of trials.
+ *
+ * @author agent <agent@local>
+ */
+public class LatencySuite {
+    private static final Logger LOGGER =
+            Logger.getLogger(LatencySuite.class.getName());
+
+    // how often to ask for a frame, in milliseconds. Real displays ask
+    // at the refresh rate, but polling faster gives a more accurate time
+    private static final long POLL_INTERVAL = 2;
+
+    // frames this far before a seek target still count as arriving at
+    // the target, in microseconds
+    private static final long SEEK_TOLERANCE = 100000;
+
+    private int trials = 20;
+    private int seeksPerTrial = 3;
+    private long timeout = 30000;
+    private final Random random = new Random(1);
+
+    public void setTrials(int trials) {
+        this.trials = trials;
+    }
+
+    public void setSeeksPerTrial(int seeksPerTrial) {
+        this.seeksPerTrial = seeksPerTrial;
+    }
+
+    /**
+     * Set how long to wait for each step before counting the trial as a
+     * failure
+     * @param timeout the timeout, in milliseconds
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Measure latencies for a single clip
+     * @param name the name to report the results under
+     * @param uri the URI of the clip
+     * @param duration the length of the clip, in seconds
+     * @return the result
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public Result measure(String name, String uri, double duration)
+            throws InterruptedException
+    {
+        Result out = new Result(name);
+
+        for (int i = 0; i < trials; i++) {
+            if (!trial(uri, duration, out)) {
+                out.failures++;
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Run one trial: open the clip, play it, and seek a few times
+     * @return true if the trial completed, or false if a step timed out
+     */
+    private boolean trial(String uri, double duration, Result result)
+            throws InterruptedException
+    {
+        VideoPlayerImpl player = new VideoPlayerImpl();
+        Probe probe = new Probe();
+        player.addStateListener(probe);
+        player.addFrameListener(probe);
+
+        try {
+            long start = System.nanoTime();
+            player.openMedia(uri);
+            if (!probe.waitForState(VideoPlayerState.MEDIA_READY, timeout)) {
+                LOGGER.warning("Timed out opening " + uri);
+                return false;
+            }
+            result.open.record((System.nanoTime() - start) / 1000);
+
+            start = System.nanoTime();
+            player.play();
+            if (!probe.waitForFrame(0, timeout)) {
+                LOGGER.warning("Timed out playing " + uri);
+                return false;
+            }
+            result.play.record((System.nanoTime() - start) / 1000);
+
+            for (int i = 0; i < seeksPerTrial; i++) {
+                // stay away from the end, so there is always a frame
+                double position = random.nextDouble() *
+                                  Math.max(duration - 1.0, 0);
+
+                start = System.nanoTime();
+                player.setPosition(position);
+
+                long minPTS = (long) (position * 1000000) - SEEK_TOLERANCE;
+                if (!probe.waitForFrame(minPTS, timeout)) {
+                    LOGGER.warning("Timed out seeking " + uri + " to " +
+                                   position);
+                    return false;
+                }
+                result.seek.record((System.nanoTime() - start) / 1000);
+            }
+
+            return true;
+        } finally {
+            player.closeMedia();
+        }
+    }
+
+    /**
+     * Watches a player for state changes and frames
+     */
+    static class Probe implements FrameListener, VideoStateListener {
+        private VideoPlayerState state = VideoPlayerState.NO_MEDIA;
+        private FrameQueue queue;
+
+        public synchronized void mediaStateChanged(VideoPlayerState oldState,
+                                                   VideoPlayerState newState)
+        {
+            state = newState;
+            notifyAll();
+        }
+
+        public synchronized boolean waitForState(VideoPlayerState waitFor,
+                                                 long timeout)
+                throws InterruptedException
+        {
+            long end = System.currentTimeMillis() + timeout;
+            while (state != waitFor) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                wait(remaining);
+            }
+
+            return true;
+        }
+
+        /**
+         * Ask for frames the way a display does, until a frame at or after
+         * the given time is returned
+         * @param minPTS the earliest frame time to accept, in microseconds
+         * @param timeout the time to wait, in milliseconds
+         * @return true if a frame was returned, or false if the wait
+         * timed out
+         * @throws InterruptedException if the thread is interrupted
+         */
+        public boolean waitForFrame(long minPTS, long timeout)
+                throws InterruptedException
+        {
+            long end = System.currentTimeMillis() + timeout;
+            while (System.currentTimeMillis() < end) {
+                FrameQueue curQueue;
+                synchronized (this) {
+                    curQueue = queue;
+                }
+
+                if (curQueue != null) {
+                    VideoFrame frame = curQueue.nextFrame();
+                    if (frame != null) {
+                        frame.release();
+
+                        if (frame.getTimeStamp() >= minPTS) {
+                            return true;
+                        }
+                    }
+                }
+
+                Thread.sleep(POLL_INTERVAL);
+            }
+
+            return false;
+        }
+
+        public void openVideo(int videoWidth, int videoHeight,
+                              IPixelFormat.Type videoFormat)
+        {
+        }
+
+        public void previewFrame(VideoFrame frame) {
+        }
+
+        public synchronized void playVideo(FrameQueue queue) {
+            this.queue = queue;
+        }
+
+        public synchronized void stopVideo() {
+            queue = null;
+        }
+
+        public synchronized void closeVideo() {
+            queue = null;
+        }
+    }
+
+    /**
+     * Latencies measured for a single clip, in microseconds
+     */
+    public static class Result {
+        private final String name;
+        private final Histogram open = new Histogram();
+        private final Histogram play = new Histogram();
+        private final Histogram seek = new Histogram();
+        private int failures;
+
+        public Result(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return the time from opening until the media was ready */
+        public Histogram.Snapshot getOpen() {
+            return open.getSnapshot();
+        }
+
+        /** @return the time from play until the first frame */
+        public Histogram.Snapshot getPlay() {
+            return play.getSnapshot();
+        }
+
+        /** @return the time from a seek until the first frame */
+        public Histogram.Snapshot getSeek() {
+            return seek.getSnapshot();
+        }
+
+        /** @return the number of trials that timed out */
+        public int getFailures() {
+            return failures;
+        }
+
+        public void print(PrintStream out) {
+            print(out, "open", getOpen());
+            print(out, "play", getPlay());
+            print(out, "seek", getSeek());
+            if (failures > 0) {
+                out.println(String.format("%-44s %d trials failed", name,
+                                          failures));
+            }
+        }
+
+        public void printCSV(PrintWriter out) {
+            printCSV(out, "open", getOpen());
+            printCSV(out, "play", getPlay());
+            printCSV(out, "seek", getSeek());
+        }
+
+        private void print(PrintStream out, String metric,
+                           Histogram.Snapshot snapshot)
+        {
+            out.println(String.format("%-44s %-5s %6d %9.1f %9.1f %9.1f %9.1f",
+                        name, metric, snapshot.getCount(),
+                        snapshot.getP50() / 1000.0, snapshot.getP90() / 1000.0,
+                        snapshot.getP99() / 1000.0, snapshot.getMax() / 1000.0));
+        }
+
+        private void printCSV(PrintWriter out, String metric,
+                              Histogram.Snapshot snapshot)
+        {
+            out.println(String.format("%s,%s,%d,%d,%d,%d,%d", name, metric,
+                        snapshot.getCount(), snapshot.getP50(),
+                        snapshot.getP90(), snapshot.getP99(),
+                        snapshot.getMax()));
+        }
+    }
+
+    private static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[] { Integer.parseInt(parts[0]),
+                           Integer.parseInt(parts[1]) };
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("n", "trials", true,
+                          "trials per clip and source (default 20)");
+        options.addOption("s", "seeks", true, "seeks per trial (default 3)");
+        options.addOption("c", "containers", true,
+                          "comma-separated containers (default flv,mov)");
+        options.addOption("g", "gops", true,
+                          "comma-separated key frame intervals (default 12,250)");
+        options.addOption("z", "sizes", true,
+                          "comma-separated frame sizes (default " +
+                          "320x240,1280x720)");
+        options.addOption("l", "length", true,
+                          "clip length in seconds (default 30)");
+        options.addOption("r", "rate", true,
+                          "HTTP rate limit in kilobytes per second " +
+                          "(default unlimited)");
+        options.addOption("x", "no-http", false, "only measure local files");
+        options.addOption("d", "dir", true, "directory for generated clips");
+        options.addOption("o", "output", true, "write results as CSV");
+        options.addOption("h", "help", false, "print this message");
+
+        CommandLine line;
+        try {
+            line = new PosixParser().parse(options, args);
+        } catch (ParseException pe) {
+            System.err.println(pe.getMessage());
+            line = null;
+        }
+
+        if (line == null || line.hasOption("h")) {
+            new HelpFormatter().printHelp("LatencySuite [options]", options);
+            System.exit(1);
+            return;
+        }
+
+        if (!VideoPlayerImpl.isVideoAvailable()) {
+            System.err.println("Video libraries not available");
+            System.exit(1);
+            return;
+        }
+
+        LatencySuite suite = new LatencySuite();
+        suite.setTrials(Integer.parseInt(line.getOptionValue("n", "20")));
+        suite.setSeeksPerTrial(Integer.parseInt(line.getOptionValue("s", "3")));
+
+        double length = Double.parseDouble(line.getOptionValue("l", "30"));
+        File dir = new File(line.getOptionValue("d", "latency-clips"));
+
+        // generate the clips
+        String[] sizes = line.getOptionValue("z", "320x240,1280x720").split(",");
+        String[] gops = line.getOptionValue("g", "12,250").split(",");
+        String[] containers = line.getOptionValue("c", "flv,mov").split(",");
+
+        List<File> clips = new ArrayList<File>();
+        for (String size : sizes) {
+            for (String gop : gops) {
+                for (String container : containers) {
+                    int[] dims = parseSize(size.trim());
+
+                    SyntheticClip clip = new SyntheticClip();
+                    clip.setSize(dims[0], dims[1]);
+                    clip.setGroupOfPictures(Integer.parseInt(gop.trim()));
+                    clip.setDuration(length);
+                    clips.add(clip.getOrCreate(dir, container.trim()));
+                }
+            }
+        }
+
+        ClipServer server = null;
+        if (!line.hasOption("x")) {
+            server = new ClipServer(dir);
+            server.setRate(Long.parseLong(line.getOptionValue("r", "0")) * 1024);
+            try {
+                server.start();
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Unable to start HTTP server", ioe);
+                System.exit(1);
+                return;
+            }
+        }
+
+        List<Result> results = new ArrayList<Result>();
+        System.out.println(String.format("%-44s %-5s %6s %9s %9s %9s %9s",
+                           "clip / source", "", "count", "p50 ms", "p90 ms",
+                           "p99 ms", "max ms"));
+
+        try {
+            for (File clip : clips) {
+                Result result = suite.measure(clip.getName() + " file",
+                                              clip.toURI().toString(), length);
+                result.print(System.out);
+                results.add(result);
+
+                if (server != null) {
+                    result = suite.measure(clip.getName() + " http",
+                                           server.getURI(clip), length);
+                    result.print(System.out);
+                    results.add(result);
+                }
+            }
+        } catch (InterruptedException ie) {
+            System.exit(1);
+            return;
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+
+        if (line.hasOption("o")) {
+            try {
+                PrintWriter out = new PrintWriter(
+                        new FileWriter(line.getOptionValue("o")));
+                out.println("clip,metric,count,p50,p90,p99,max");
+                for (Result result : results) {
+                    result.printCSV(out);
+                }
+                out.close();
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Error writing results", ioe);
+                System.exit(1);
+                return;
+            }
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,593 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import org.jdesktop.wonderland.video.client.AudioInputStream.ReadTimeout;
+import org.jdesktop.wonderland.video.client.FrameSelector.FrameAccess;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
+
+/**
+ * Simulates audio / video synchronization in virtual time. A synthetic
+ * source produces video frames and audio packets the way the queue
+ * filler does, with configurable decode cost, jitter, loss and stalls.
+ * The frames and audio pass through the same components the player uses
+ * -- <code>AudioInputStream</code>, <code>JitterBuffer</code>,
+ * <code>FrameSelector</code> and a <code>NullAudioSink</code> -- and
+ * the player's own <code>AudioClock</code> decides when playback starts,
+ * how long reads wait and when the audio has underrun. Only the threads
+ * are replaced, by a single thread and a virtual clock. No native libraries are needed, the
+ * results depend only on the settings and the random seed, and an hour
+ * of playback takes well under a second to simulate.
+ *
+ * @author agent <agent@local>
+ */
+public class SyncSimulator {
+    // the player's frame queue size
+    private static final int FRAME_QUEUE_SIZE = 4;
+
+    // how long to keep simulating after the media should have ended,
+    // before giving up, in microseconds
+    private static final long OVERRUN_LIMIT = 60000000;
+
+    // frames are represented by their timestamp
+    private static final FrameAccess<Long> LONG_FRAMES =
+            new FrameAccess<Long>() {
+        public long getTimeStamp(Long frame) {
+            return frame.longValue();
+        }
+
+        public void discard(Long frame) {
+        }
+    };
+
+    // media settings
+    private long duration = 60000000;
+    private double frameRate = 25;
+    private int sampleRate = 44100;
+    private int channels = 2;
+    private int packetSamples = 1024;
+
+    // source settings
+    private long videoDecodeTime = 5000;
+    private long audioDecodeTime = 500;
+    private long jitter = 0;
+    private double lossRate = 0;
+    private long stallInterval = 0;
+    private long stallTime = 0;
+    private double sourceRate = 0;
+
+    // display settings
+    private double renderRate = 60;
+
+    private long seed = 1;
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public void setFrameRate(double frameRate) {
+        this.frameRate = frameRate;
+    }
+
+    public void setAudioFormat(int sampleRate, int channels,
+                               int packetSamples)
+    {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.packetSamples = packetSamples;
+    }
+
+    /**
+     * Set the time to decode each frame or packet, in microseconds
+     * @param videoDecodeTime the time to decode a video frame
+     * @param audioDecodeTime the time to decode an audio packet
+     */
+    public void setDecodeTime(long videoDecodeTime, long audioDecodeTime) {
+        this.videoDecodeTime = videoDecodeTime;
+        this.audioDecodeTime = audioDecodeTime;
+    }
+
+    /**
+     * Set the mean of the random network delay added to the arrival of
+     * each frame or packet, in microseconds. Delays are exponentially
+     * distributed, and data still arrives in order.
+     * @param jitter the mean extra delay
+     */
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Set the fraction of frames and packets that are lost
+     * @param lossRate the loss rate, from 0 to 1
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * Set the source to stop delivering data for a while at a regular
+     * interval of media time
+     * @param stallInterval the time between stalls, in microseconds, or 0
+     * for no stalls
+     * @param stallTime the length of each stall, in microseconds
+     */
+    public void setStalls(long stallInterval, long stallTime) {
+        this.stallInterval = stallInterval;
+        this.stallTime = stallTime;
+    }
+
+    /**
+     * Set the fastest rate the source can deliver data, as a multiple of
+     * realtime. This models a network stream. For a local file, the rate
+     * is 0, and data is delivered as fast as it can be decoded.
+     * @param sourceRate the source rate, or 0 for no limit
+     */
+    public void setSourceRate(double sourceRate) {
+        this.sourceRate = sourceRate;
+    }
+
+    /**
+     * Set the rate at which frames are requested for display
+     * @param renderRate the display rate, in frames per second
+     */
+    public void setRenderRate(double renderRate) {
+        this.renderRate = renderRate;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Run the simulation
+     * @return the result
+     */
+    public Result run() {
+        long start = System.nanoTime();
+
+        Run run = new Run();
+        run.simulate();
+
+        run.result.wallTime = (System.nanoTime() - start) / 1000;
+        return run.result;
+    }
+
+    /**
+     * The state of a single simulation run
+     */
+    private class Run implements ReadTimeout {
+        private final Random random = new Random(seed);
+        private final Result result = new Result();
+
+        private final long frameTime = (long) (1000000 / frameRate);
+        private final long packetTime = packetSamples * 1000000L / sampleRate;
+        private final long renderInterval = (long) (1000000 / renderRate);
+        private final AudioFormat format =
+                new AudioFormat(sampleRate, 16, channels, true, false);
+        private final byte[] silence =
+                new byte[packetSamples * format.getFrameSize()];
+
+        // the virtual time, in microseconds
+        private long now = 0;
+
+        // the source
+        private long nextVideo = 0;
+        private long nextAudio = 0;
+        private long readyTime;
+        private long lastArrival;
+        private long nextStall;
+        private boolean blocked;
+
+        // the player
+        private final Queue<Long> frameQueue = new ArrayDeque<Long>();
+        private final JitterBuffer jitterBuffer = new JitterBuffer();
+        private final AudioInputStream audioStream = new AudioInputStream();
+        private boolean open;
+        private long startPTS;
+
+        // the audio thread
+        private SimulatedSink sink;
+        private AudioClock clock;
+        private byte[] buffer;
+
+        // the display
+        private long nextRender;
+        private long lastDisplayed = -1;
+
+        public void simulate() {
+            readyTime = nextReadyTime(0, 0);
+            nextStall = stallInterval;
+
+            long limit = duration + OVERRUN_LIMIT;
+            while (!isDone() && now < limit) {
+                if (sink == null) {
+                    if (isSourceFinished()) {
+                        // the media is too short to fill the queue
+                        startAudio();
+                    } else {
+                        advanceTo(readyTime);
+                    }
+                } else {
+                    fillBuffer();
+                }
+            }
+
+            result.simulatedTime = now;
+        }
+
+        /**
+         * Deliver frames and display frames up to the given time
+         * @param time the time to advance to
+         */
+        private void advanceTo(long time) {
+            while (true) {
+                long nextArrival = Long.MAX_VALUE;
+                if (!blocked && !isSourceFinished()) {
+                    nextArrival = readyTime;
+                }
+
+                long nextTick = (sink == null) ? Long.MAX_VALUE : nextRender;
+                long next = Math.min(nextArrival, nextTick);
+                if (next > time) {
+                    break;
+                }
+
+                now = Math.max(now, next);
+                if (next == nextArrival) {
+                    deliver();
+                } else {
+                    render();
+                }
+            }
+
+            now = Math.max(now, time);
+        }
+
+        private boolean isSourceFinished() {
+            return nextVideo >= duration && nextAudio >= duration;
+        }
+
+        private boolean isDone() {
+            return isSourceFinished() && frameQueue.isEmpty() &&
+                   audioStream.getBufferedMicroseconds() == 0;
+        }
+
+        /**
+         * Deliver the next frame or packet from the source, the same way
+         * <code>VideoPlayerImpl.add()</code> does
+         */
+        private void deliver() {
+            boolean video = nextVideo <= nextAudio;
+            long pts = video ? nextVideo : nextAudio;
+            boolean lost = random.nextDouble() < lossRate;
+
+            if (!lost) {
+                if (video && frameQueue.size() >= FRAME_QUEUE_SIZE) {
+                    // wait for the display to take a frame
+                    blocked = true;
+                    return;
+                }
+
+                updateTimeSource(pts);
+
+                if (video) {
+                    frameQueue.add(Long.valueOf(pts));
+                } else {
+                    jitterBuffer.arrival(pts, now);
+                    audioStream.add(new AudioFrame(pts, silence,
+                                                   silence.length));
+                }
+            }
+
+            if (video) {
+                result.videoFrames++;
+                if (lost) {
+                    result.lostFrames++;
+                }
+
+                nextVideo += frameTime;
+            } else {
+                if (lost) {
+                    result.lostPackets++;
+                }
+
+                nextAudio += packetTime;
+            }
+
+            long cost = video ? videoDecodeTime : audioDecodeTime;
+            readyTime = nextReadyTime(now + cost,
+                                      Math.min(nextVideo, nextAudio));
+        }
+
+        /**
+         * Calculate when the next frame or packet will be ready
+         * @param earliest the earliest possible time
+         * @param pts the timestamp of the next frame or packet
+         * @return the time the next frame or packet is ready
+         */
+        private long nextReadyTime(long earliest, long pts) {
+            // when the data arrives from the network
+            long arrival = 0;
+            if (sourceRate > 0) {
+                arrival = (long) (pts / sourceRate);
+            }
+
+            if (jitter > 0) {
+                arrival += (long) (-jitter * Math.log(1.0 - random.nextDouble()));
+            }
+
+            arrival = Math.max(arrival, lastArrival);
+            lastArrival = arrival;
+
+            // the data is ready once it has arrived and been decoded
+            long out = Math.max(earliest, arrival);
+
+            if (stallInterval > 0 && pts >= nextStall) {
+                out += stallTime;
+                nextStall += stallInterval;
+            }
+
+            return out;
+        }
+
+        /**
+         * Open and start the audio clock, the same way
+         * <code>VideoPlayerImpl.updateTimeSource()</code> does
+         * @param pts the timestamp of the data being added
+         */
+        private void updateTimeSource(long pts) {
+            if (!open) {
+                open = true;
+                startPTS = pts;
+                audioStream.start(pts, sampleRate,
+                                  format.getSampleSizeInBits() * channels);
+            }
+
+            if (sink == null &&
+                AudioClock.isReadyToStart(true, frameQueue.size(),
+                                          FRAME_QUEUE_SIZE))
+            {
+                startAudio();
+            }
+        }
+
+        /**
+         * Start the audio thread
+         */
+        private void startAudio() {
+            if (!open) {
+                return;
+            }
+
+            sink = new SimulatedSink();
+            try {
+                sink.open(format);
+            } catch (LineUnavailableException lue) {
+                throw new IllegalStateException(lue);
+            }
+
+            buffer = new byte[AudioClock.getReadBufferSize(sink)];
+
+            sink.start();
+            clock = new AudioClock(sink, audioStream, jitterBuffer);
+
+            nextRender = now;
+        }
+
+        /**
+         * Read from the audio stream and write to the sink, the same way
+         * the player's audio thread does
+         */
+        private void fillBuffer() {
+            int minBytes = clock.getMinReadBytes();
+
+            int read;
+            try {
+                read = audioStream.read(buffer, minBytes, this);
+            } catch (InterruptedException ie) {
+                throw new IllegalStateException(ie);
+            }
+
+            if (clock.checkUnderrun(now)) {
+                result.underruns++;
+            }
+
+            sink.write(buffer, 0, read);
+            clock.written(read);
+        }
+
+        /**
+         * Calculate the read timeout using the audio thread's clock.
+         * Where the audio thread would wait for data to arrive, run the
+         * virtual clock forward instead.
+         */
+        public long getReadTimeout(int bytesRead) {
+            long timeout = clock.getReadTimeout(bytesRead);
+
+            // the stream only waits when it has no data. Never return a
+            // timeout in that case, so it doesn't wait in real time
+            if (timeout > 0 && audioStream.getBufferedMicroseconds() == 0) {
+                long deadline = now + timeout;
+                while (now < deadline &&
+                       audioStream.getBufferedMicroseconds() == 0)
+                {
+                    advanceTo(Math.min(deadline, nextEventTime()));
+                }
+
+                timeout = (audioStream.getBufferedMicroseconds() == 0) ?
+                          0 : deadline - now;
+            }
+
+            return timeout;
+        }
+
+        private long nextEventTime() {
+            long out = nextRender;
+            if (!blocked && !isSourceFinished()) {
+                out = Math.min(out, readyTime);
+            }
+
+            return Math.max(out, now + 1);
+        }
+
+        /**
+         * Choose a frame to display, the same way
+         * <code>VideoPlayerImpl.nextFrame()</code> does at normal speed
+         */
+        private void render() {
+            long targetPTS = startPTS + clock.getElapsed();
+
+            int before = frameQueue.size();
+            Long frame = FrameSelector.select(frameQueue, LONG_FRAMES,
+                                              targetPTS, frameTime, null);
+            int removed = before - frameQueue.size();
+
+            if (frame != null) {
+                result.displayedFrames++;
+                result.skippedFrames += removed - 1;
+                result.lipSync.record(Math.abs(frame.longValue() - targetPTS));
+
+                if (lastDisplayed >= 0) {
+                    result.maxFreeze = Math.max(result.maxFreeze,
+                                                now - lastDisplayed);
+                }
+                lastDisplayed = now;
+            } else {
+                result.skippedFrames += removed;
+            }
+
+            // taking frames makes room for the source to continue
+            if (removed > 0 && blocked) {
+                blocked = false;
+                readyTime = Math.max(readyTime, now);
+            }
+
+            nextRender += renderInterval;
+        }
+
+        /**
+         * A sink that runs from the virtual clock
+         */
+        private class SimulatedSink extends NullAudioSink {
+            public SimulatedSink() {
+                super(true);
+            }
+
+            @Override
+            protected long nanoTime() {
+                return now * 1000;
+            }
+
+            @Override
+            protected void waitForSpace(long nanos) {
+                advanceTo(now + Math.max(1, nanos / 1000));
+            }
+        }
+    }
+
+    /**
+     * The result of a simulation
+     */
+    public static class Result {
+        private final Histogram lipSync = new Histogram();
+        private long simulatedTime;
+        private long wallTime;
+        private long videoFrames;
+        private long displayedFrames;
+        private long skippedFrames;
+        private long lostFrames;
+        private long lostPackets;
+        private long underruns;
+        private long maxFreeze;
+
+        /** @return the amount of time simulated, in microseconds */
+        public long getSimulatedTime() {
+            return simulatedTime;
+        }
+
+        /** @return the time taken to simulate, in microseconds */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return the absolute difference between the timestamp of each
+         * displayed frame and the audio clock when it was displayed, in
+         * microseconds
+         */
+        public Histogram.Snapshot getLipSync() {
+            return lipSync.getSnapshot();
+        }
+
+        /** @return the number of video frames in the media */
+        public long getVideoFrames() {
+            return videoFrames;
+        }
+
+        /** @return the number of frames displayed */
+        public long getDisplayedFrames() {
+            return displayedFrames;
+        }
+
+        /** @return the number of frames discarded without being displayed */
+        public long getSkippedFrames() {
+            return skippedFrames;
+        }
+
+        /** @return the number of frames lost by the source */
+        public long getLostFrames() {
+            return lostFrames;
+        }
+
+        /** @return the number of audio packets lost by the source */
+        public long getLostPackets() {
+            return lostPackets;
+        }
+
+        /** @return the number of audio underruns */
+        public long getUnderruns() {
+            return underruns;
+        }
+
+        /**
+         * @return the longest time between displaying two frames, in
+         * microseconds
+         */
+        public long getMaxFreeze() {
+            return maxFreeze;
+        }
+
+        /**
+         * @return the fraction of frames in the media that were not
+         * displayed
+         */
+        public double getDroppedFraction() {
+            if (videoFrames == 0) {
+                return 0;
+            }
+
+            return (double) (videoFrames - displayedFrames) / videoFrames;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Runs a set of audio / video sync scenarios in the simulator and checks
+ * each against limits on lip-sync error, dropped frames and underruns.
+ * The process exits with a non-zero status if any scenario fails, so
+ * this can be used to catch regressions in the sync logic.
+ *
+ * @author agent <agent@local>
+ */
+public class SyncSuite {
+    // underruns expected in any run, when the clock starts and when the
+    // media ends
+    private static final int STARTUP_UNDERRUNS = 2;
+
+    private final List<Scenario> scenarios = new ArrayList<Scenario>();
+
+    public void add(Scenario scenario) {
+        scenarios.add(scenario);
+    }
+
+    /**
+     * Run every scenario whose name matches the given pattern
+     * @param pattern the pattern to match
+     * @param duration the simulated time for each scenario, in
+     * microseconds
+     * @param seed the random seed
+     * @param out the stream to write results to
+     * @return true if every scenario passed
+     */
+    public boolean run(Pattern pattern, long duration, long seed,
+                       PrintStream out)
+    {
+        boolean passed = true;
+        long simulated = 0;
+        long wall = 0;
+
+        for (Scenario scenario : scenarios) {
+            if (!pattern.matcher(scenario.getName()).matches()) {
+                continue;
+            }
+
+            SyncSimulator sim = scenario.getSimulator();
+            sim.setDuration(duration);
+            sim.setSeed(seed);
+
+            SyncSimulator.Result result = sim.run();
+            String failure = scenario.check(result);
+
+            out.println(String.format("%-20s %s", scenario.getName(),
+                                      (failure == null) ? "PASS" : "FAIL"));
+            out.println(String.format("    lip-sync (us) %s",
+                                      result.getLipSync()));
+            out.println(String.format("    frames %d, displayed %d, " +
+                        "skipped %d, lost %d, dropped %.3f%%, " +
+                        "longest freeze %d ms",
+                        result.getVideoFrames(), result.getDisplayedFrames(),
+                        result.getSkippedFrames(), result.getLostFrames(),
+                        result.getDroppedFraction() * 100,
+                        result.getMaxFreeze() / 1000));
+            out.println(String.format("    underruns %d, lost packets %d, " +
+                        "simulated %.1f min in %d ms",
+                        result.getUnderruns(), result.getLostPackets(),
+                        result.getSimulatedTime() / 60000000.0,
+                        result.getWallTime() / 1000));
+            if (failure != null) {
+                out.println("    " + failure);
+                passed = false;
+            }
+
+            simulated += result.getSimulatedTime();
+            wall += result.getWallTime();
+        }
+
+        out.println(String.format("Simulated %.1f min in %d ms",
+                                  simulated / 60000000.0, wall / 1000));
+        return passed;
+    }
+
+    /**
+     * A simulator configuration and the limits it must meet
+     */
+    public static class Scenario {
+        private final String name;
+        private final SyncSimulator simulator;
+
+        private long maxLipSync = Long.MAX_VALUE;
+        private double maxDropped = 1.0;
+        private long maxUnderrunsPerHour = Long.MAX_VALUE;
+
+        public Scenario(String name, SyncSimulator simulator) {
+            this.name = name;
+            this.simulator = simulator;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public SyncSimulator getSimulator() {
+            return simulator;
+        }
+
+        /**
+         * Set the largest allowed 99th percentile lip-sync error
+         * @param maxLipSync the limit, in microseconds
+         */
+        public void setMaxLipSync(long maxLipSync) {
+            this.maxLipSync = maxLipSync;
+        }
+
+        /**
+         * Set the largest allowed fraction of frames not displayed,
+         * including frames lost by the source
+         * @param maxDropped the limit, from 0 to 1
+         */
+        public void setMaxDropped(double maxDropped) {
+            this.maxDropped = maxDropped;
+        }
+
+        /**
+         * Set the largest allowed number of underruns per hour of
+         * playback
+         * @param maxUnderrunsPerHour the limit
+         */
+        public void setMaxUnderrunsPerHour(long maxUnderrunsPerHour) {
+            this.maxUnderrunsPerHour = maxUnderrunsPerHour;
+        }
+
+        /**
+         * Check a result against the limits
+         * @param result the result to check
+         * @return a description of the failure, or null if the result
+         * is within the limits
+         */
+        public String check(SyncSimulator.Result result) {
+            if (result.getLipSync().getP99() > maxLipSync) {
+                return "99th percentile lip-sync error above " + maxLipSync;
+            }
+
+            if (result.getDroppedFraction() > maxDropped) {
+                return "Dropped fraction above " + maxDropped;
+            }
+
+            // allow for the underruns at the start and end of playback
+            double hours = result.getSimulatedTime() / 3600000000.0;
+            long maxUnderruns = STARTUP_UNDERRUNS +
+                                (long) Math.ceil(maxUnderrunsPerHour * hours);
+            if (result.getUnderruns() > maxUnderruns) {
+                return "Underruns above " + maxUnderrunsPerHour + " per hour";
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Create the standard scenarios
+     * @return a suite with the standard scenarios
+     */
+    public static SyncSuite createStandardSuite() {
+        SyncSuite out = new SyncSuite();
+
+        // a local file that decodes easily
+        SyncSimulator sim = new SyncSimulator();
+        Scenario scenario = new Scenario("local", sim);
+        scenario.setMaxLipSync(40000);
+        scenario.setMaxDropped(0.001);
+        scenario.setMaxUnderrunsPerHour(1);
+        out.add(scenario);
+
+        // 60 fps video, displayed at 60 fps
+        sim = new SyncSimulator();
+        sim.setFrameRate(60);
+        sim.setDecodeTime(4000, 500);
+        scenario = new Scenario("local-60fps", sim);
+        scenario.setMaxLipSync(17000);
+        scenario.setMaxDropped(0.01);
+        scenario.setMaxUnderrunsPerHour(1);
+        out.add(scenario);
+
+        // a file that takes most of the frame time to decode
+        sim = new SyncSimulator();
+        sim.setDecodeTime(32000, 1000);
+        scenario = new Scenario("slow-decode", sim);
+        scenario.setMaxLipSync(40000);
+        scenario.setMaxDropped(0.01);
+        scenario.setMaxUnderrunsPerHour(10);
+        out.add(scenario);
+
+        // a network stream with jitter
+        sim = new SyncSimulator();
+        sim.setSourceRate(1.5);
+        sim.setJitter(80000);
+        scenario = new Scenario("network-jitter", sim);
+        scenario.setMaxLipSync(40000);
+        scenario.setMaxDropped(0.02);
+        scenario.setMaxUnderrunsPerHour(30);
+        out.add(scenario);
+
+        // a network stream with loss
+        sim = new SyncSimulator();
+        sim.setSourceRate(1.5);
+        sim.setJitter(5000);
+        sim.setLossRate(0.01);
+        scenario = new Scenario("network-loss", sim);
+        scenario.setMaxLipSync(40000);
+        scenario.setMaxDropped(0.03);
+        scenario.setMaxUnderrunsPerHour(60);
+        out.add(scenario);
+
+        // a network stream that stalls every 30 seconds
+        sim = new SyncSimulator();
+        sim.setSourceRate(1.5);
+        sim.setStalls(30000000, 750000);
+        scenario = new Scenario("network-stalls", sim);
+        scenario.setMaxLipSync(40000);
+        scenario.setMaxDropped(0.05);
+        scenario.setMaxUnderrunsPerHour(150);
+        out.add(scenario);
+
+        return out;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("m", "minutes", true,
+                          "minutes of playback to simulate per scenario " +
+                          "(default 60)");
+        options.addOption("s", "seed", true, "random seed (default 1)");
+        options.addOption("c", "scenarios", true,
+                          "regular expression of scenarios to run");
+        options.addOption("h", "help", false, "print this message");
+
+        CommandLine line;
+        try {
+            line = new PosixParser().parse(options, args);
+        } catch (ParseException pe) {
+            System.err.println(pe.getMessage());
+            line = null;
+        }
+
+        if (line == null || line.hasOption("h")) {
+            new HelpFormatter().printHelp("SyncSuite [options]", options);
+            System.exit(1);
+            return;
+        }
+
+        double minutes = Double.parseDouble(line.getOptionValue("m", "60"));
+        long seed = Long.parseLong(line.getOptionValue("s", "1"));
+        Pattern pattern = Pattern.compile(line.getOptionValue("c", ".*"));
+
+        SyncSuite suite = createStandardSuite();
+        boolean passed = suite.run(pattern, (long) (minutes * 60000000),
+                                   seed, System.out);
+
+        System.exit(passed ? 0 : 1);
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.mediatool.IMediaWriter;
+import com.xuggle.mediatool.ToolFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Generates short audio and video clips to benchmark and test against, so
+ * no media files need to be checked in. The video is a moving bar over
+ * noise, so the encoder and decoder have real work to do, and the audio
+ * is a tone that steps up in pitch once per second.
+ *
+ * @author agent <agent@local>
+ */
+public class SyntheticClip {
+    private static final Logger LOGGER =
+            Logger.getLogger(SyntheticClip.class.getName());
+
+    // number of audio samples (per channel) to encode at once
+    private static final int AUDIO_CHUNK = 1024;
+
+    private int width = 320;
+    private int height = 240;
+    private int frameRate = 25;
+    private int groupOfPictures = 0;
+    private int sampleRate = 44100;
+    private int channels = 2;
+    private double duration = 10.0;
+    private boolean video = true;
+    private boolean audio = true;
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setFrameRate(int frameRate) {
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * Set the number of frames between key frames
+     * @param groupOfPictures the key frame interval, or 0 to use the
+     * encoder's default
+     */
+    public void setGroupOfPictures(int groupOfPictures) {
+        this.groupOfPictures = groupOfPictures;
+    }
+
+    public void setAudioFormat(int sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    public void setDuration(double duration) {
+        this.duration = duration;
+    }
+
+    public void setVideo(boolean video) {
+        this.video = video;
+    }
+
+    public void setAudio(boolean audio) {
+        this.audio = audio;
+    }
+
+    /**
+     * Get a file name describing this clip, so clips with the same
+     * settings can be reused
+     * @param extension the file extension, which determines the container
+     * @return the file name
+     */
+    public String getFileName(String extension) {
+        StringBuilder out = new StringBuilder("synthetic");
+        if (video) {
+            out.append("-").append(width).append("x").append(height);
+            out.append("@").append(frameRate);
+            if (groupOfPictures > 0) {
+                out.append("-gop").append(groupOfPictures);
+            }
+        }
+        if (audio) {
+            out.append("-").append(sampleRate).append("hz");
+            out.append(channels).append("ch");
+        }
+        out.append("-").append((int) (duration * 1000)).append("ms");
+        out.append(".").append(extension);
+        return out.toString();
+    }
+
+    /**
+     * Get a clip in the given directory, creating it if it doesn't
+     * already exist
+     * @param dir the directory to create the clip in
+     * @param extension the file extension, which determines the container
+     * @return the clip file
+     */
+    public File getOrCreate(File dir, String extension) {
+        File file = new File(dir, getFileName(extension));
+        if (!file.exists()) {
+            dir.mkdirs();
+            write(file);
+        }
+
+        return file;
+    }
+
+    /**
+     * Write the clip to a file. The container and codecs are chosen
+     * based on the file extension.
+     * @param file the file to write
+     */
+    public void write(File file) {
+        LOGGER.info("Writing synthetic clip " + file);
+
+        IMediaWriter writer = ToolFactory.makeWriter(file.getPath());
+        int videoIndex = 0;
+        int audioIndex = 1;
+
+        if (video) {
+            int stream = writer.addVideoStream(videoIndex, 0, width, height);
+            if (groupOfPictures > 0) {
+                writer.getContainer().getStream(stream).getStreamCoder()
+                        .setNumPicturesInGroupOfPictures(groupOfPictures);
+            }
+        }
+        if (audio) {
+            writer.addAudioStream(audioIndex, video ? 1 : 0, channels,
+                                  sampleRate);
+        }
+
+        long frameTime = 1000000L / frameRate;
+        long end = (long) (duration * 1000000);
+
+        BufferedImage image = new BufferedImage(width, height,
+                                                BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(0);
+
+        long videoTime = 0;
+        long audioTime = 0;
+        long audioSample = 0;
+
+        // interleave audio and video in time order
+        while ((video && videoTime < end) || (audio && audioTime < end)) {
+            boolean nextVideo = video && videoTime < end &&
+                                (!audio || audioTime >= end ||
+                                 videoTime <= audioTime);
+
+            if (nextVideo) {
+                drawFrame(image, videoTime, random);
+                writer.encodeVideo(videoIndex, image, videoTime,
+                                   TimeUnit.MICROSECONDS);
+                videoTime += frameTime;
+            } else {
+                short[] samples = createSamples(audioSample);
+                writer.encodeAudio(audioIndex, samples, audioTime,
+                                   TimeUnit.MICROSECONDS);
+                audioSample += AUDIO_CHUNK;
+                audioTime = (audioSample * 1000000L) / sampleRate;
+            }
+        }
+
+        writer.close();
+    }
+
+    private void drawFrame(BufferedImage image, long time, Random random) {
+        Graphics2D g = image.createGraphics();
+
+        // noise in the background, in 8x8 blocks so it compresses a bit
+        for (int y = 0; y < height; y += 8) {
+            for (int x = 0; x < width; x += 8) {
+                int v = random.nextInt(64);
+                g.setColor(new Color(v, v, v));
+                g.fillRect(x, y, 8, 8);
+            }
+        }
+
+        // a bar that crosses the screen once a second
+        int barX = (int) ((time % 1000000L) * width / 1000000L);
+        g.setColor(Color.WHITE);
+        g.fillRect(barX, 0, Math.max(width / 20, 1), height);
+
+        g.dispose();
+    }
+
+    private short[] createSamples(long firstSample) {
+        short[] out = new short[AUDIO_CHUNK * channels];
+
+        for (int i = 0; i < AUDIO_CHUNK; i++) {
+            long sample = firstSample + i;
+
+            // 440 Hz, rising by 10% each second
+            double freq = 440.0 * (1.0 + 0.1 * (sample / sampleRate));
+            double value = Math.sin(2 * Math.PI * freq * sample / sampleRate);
+            short s = (short) (value * Short.MAX_VALUE / 4);
+
+            for (int c = 0; c < channels; c++) {
+                out[i * channels + c] = s;
+            }
+        }
+
+        return out;
+    }
+}
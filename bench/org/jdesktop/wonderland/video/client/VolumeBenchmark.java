@@ -0,0 +1,60 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Measures the gain kernel applied to every buffer written to the audio
+ * line. One operation is one line-sized buffer.
+ *
+ * @author agent <agent@local>
+ */
+public class VolumeBenchmark extends Benchmark {
+    private static final AudioFormat FORMAT =
+            new AudioFormat(48000f, 16, 2, true, false);
+
+    // the source data, which is copied into the buffer before each run
+    private final byte[] source;
+    private final byte[] buffer;
+
+    /**
+     * Create a benchmark for the given buffer size
+     * @param size the buffer size in bytes
+     */
+    public VolumeBenchmark(int size) {
+        super("VideoPlayerImpl.adjustVolume[" + size + "]");
+
+        source = new byte[size];
+        new Random(0).nextBytes(source);
+        buffer = new byte[size];
+    }
+
+    @Override
+    public long run() throws Exception {
+        // the volume is applied in place, so start from the original data
+        // each time. Otherwise the samples decay towards zero after a few
+        // runs, and we would measure a degenerate case.
+        System.arraycopy(source, 0, buffer, 0, buffer.length);
+        
+        // less than 1, so the buffer never saturates
+        VideoPlayerImpl.adjustVolume(FORMAT, 0.99f, buffer, 0, buffer.length);
+        return 1;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the audio written to a started sink, and uses it as the
+ * playback clock. This decides when playback can start, how long a read
+ * from the audio stream may wait for data, and when the sink has run
+ * dry. The player's audio thread and the sync simulator both drive
+ * playback through this class, so the simulator measures the player's
+ * own timing decisions.
+ * <p>
+ * This class is not thread safe. The audio thread guards it with its
+ * own lock.
+ *
+ * @author agent <agent@local>
+ */
+class AudioClock {
+    private static final Logger LOGGER =
+            Logger.getLogger(AudioClock.class.getName());
+
+    private final AudioSink sink;
+    private final AudioInputStream stream;
+    private final JitterBuffer jitterBuffer;
+    private final int frameSize;
+
+    // the position of the sink when the clock started
+    private final long lineStartTime;
+
+    // the total bytes written to the sink, including any already in the
+    // sink when the clock started
+    private long bytesWritten;
+
+    // whether the next read should wait to fill the buffer to the target
+    // depth, after starting or underrunning
+    private boolean firstRead = true;
+    private boolean underrun;
+
+    /**
+     * Create a clock for a sink that has just been started
+     * @param sink the started sink
+     * @param stream the stream audio is read from
+     * @param jitterBuffer the jitter estimates to use
+     */
+    AudioClock(AudioSink sink, AudioInputStream stream,
+               JitterBuffer jitterBuffer)
+    {
+        this.sink = sink;
+        this.stream = stream;
+        this.jitterBuffer = jitterBuffer;
+        this.frameSize = sink.getFormat().getFrameSize();
+
+        // start with the number of bytes already in the line
+        this.bytesWritten = sink.getLongFramePosition() * frameSize;
+        this.lineStartTime = sink.getMicrosecondPosition();
+    }
+
+    /**
+     * Decide whether playback can start. When video is being decoded,
+     * wait for the frame queue to fill to one less than its limit,
+     * indicating that all video frames have been cached for writing.
+     * @param videoEnabled true if video is being decoded
+     * @param queued the number of frames in the frame queue
+     * @param limit the most frames the queue will hold
+     * @return true if the audio thread should be started
+     */
+    static boolean isReadyToStart(boolean videoEnabled, int queued,
+                                  int limit)
+    {
+        return !videoEnabled || queued >= limit - 1;
+    }
+
+    /**
+     * Get the size of the buffer to read audio into. This is about 1/4
+     * the size of the sink's buffer, rounded to the nearest frame.
+     * @param sink the sink to write to
+     * @return the buffer size, in bytes
+     */
+    static int getReadBufferSize(AudioSink sink) {
+        int frameSize = sink.getFormat().getFrameSize();
+        int bufferSize = sink.getBufferSize() / 4;
+        return bufferSize - (bufferSize % frameSize);
+    }
+
+    /**
+     * Get the time the sink has played since the clock started
+     * @return the elapsed time, in microseconds
+     */
+    long getElapsed() {
+        return sink.getMicrosecondPosition() - lineStartTime;
+    }
+
+    long getLineStartTime() {
+        return lineStartTime;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Get the minimum amount of data to read, which is the minimum
+     * buffer depth rounded up to the nearest frame
+     * @return the minimum number of bytes to read
+     */
+    int getMinReadBytes() {
+        int minBytes = stream.microsecondsToBytes(jitterBuffer.getMinDepth());
+        if (minBytes % frameSize != 0) {
+            minBytes += frameSize - (minBytes % frameSize);
+        }
+
+        return minBytes;
+    }
+
+    /**
+     * Check for buffer underrun before writing more data. Rather than
+     * restarting the stream, the jitter buffer buffers more deeply from
+     * now on. The line has already played silence, and the input stream
+     * drops any audio that arrives too late to play, so we stay in sync.
+     * @param now the current time, in microseconds
+     * @return true if an underrun started since the last check. Reads
+     * while we are still waiting for data are not counted again.
+     */
+    boolean checkUnderrun(long now) {
+        long lineBytes = sink.getLongFramePosition() * frameSize;
+        if (lineBytes != bytesWritten) {
+            underrun = false;
+            return false;
+        }
+
+        boolean started = !underrun;
+        if (started) {
+            jitterBuffer.underrun(now);
+        }
+
+        // give the buffer a chance to refill before the next read
+        underrun = true;
+        firstRead = true;
+        return started;
+    }
+
+    /**
+     * Record data written to the sink
+     * @param bytes the number of bytes written
+     */
+    void written(int bytes) {
+        bytesWritten += bytes;
+    }
+
+    /**
+     * Calculate how long a read may wait for more data, which is about
+     * the time it will take to play all the data in the sink's buffer
+     * @param bytesRead the number of bytes read so far
+     * @return the read timeout, in microseconds
+     */
+    long getReadTimeout(int bytesRead) {
+        // estimate how long it will take to use all the data in the
+        // audio buffer
+        long lineBytes = sink.getLongFramePosition() * frameSize;
+        long bufferMicros = stream.bytesToMicroseconds(bytesWritten - lineBytes);
+
+        // special case -- if this is the first read after the buffer
+        // has started or underrun, give some time to fill the buffer
+        // to the target depth
+        if (firstRead) {
+            firstRead = false;
+            bufferMicros = jitterBuffer.getTargetDepth();
+        }
+
+        // if there is data in the buffer, pad our timing
+        // so we don't have audio underruns while we are waiting to
+        // fill the buffer. The padding covers the timer resolution
+        // of the line plus the current jitter estimate.
+        if (bytesRead > 0) {
+            bufferMicros -= jitterBuffer.getReadPadding();
+        }
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Read timeout %d (line %d, " +
+                        "written %d)", bufferMicros, lineBytes,
+                        bytesWritten));
+        }
+
+        return Math.max(bufferMicros, 0);
+    }
+}
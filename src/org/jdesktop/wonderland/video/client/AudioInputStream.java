@@ -43,6 +43,24 @@ public class AudioInputStream {
     // the number of bytes of data that have been processed so far
     private long bytePosition;
     
+    // the number of bytes of data that were skipped rather than read.
+    // The time equivalent is kept separately so it can be read without
+    // locking the stream.
+    private long skippedBytes;
+    private volatile long skippedMicros;
+    
+    // if greater than 0, play speedupInterval samples in the time of
+    // speedupInterval - 1, to play slightly faster than realtime. The
+    // data is resampled, so it stays smooth while speeding up.
+    private int speedupInterval;
+    private AudioResampler speedup;
+    private int speedupRate;
+    private long speedupSamples;
+    
+    // if greater than 0, waitForSpace() blocks while this much data is
+    // queued, in microseconds
+    private long maxBufferedMicros;
+    
     // the sample rate (in samples per second)
     float sampleRate;
     
@@ -63,6 +81,10 @@ public class AudioInputStream {
     {
         this.startTime = startTime;
         this.bytePosition = 0;
+        this.skippedBytes = 0;
+        this.skippedMicros = 0;
+        this.speedupInterval = 0;
+        this.speedup = null;
         this.sampleRate = sampleRate;
         this.sampleSize = sampleSize;
         
@@ -74,6 +96,32 @@ public class AudioInputStream {
         }
     }
     
+    /**
+     * Set the most data to queue before <code>waitForSpace()</code>
+     * blocks. Adding data never blocks by itself, so producers that
+     * decode faster than realtime call <code>waitForSpace()</code> first.
+     * @param micros the most data to queue, in microseconds, or 0 for no
+     * limit
+     */
+    public synchronized void setMaxBufferedMicroseconds(long micros) {
+        this.maxBufferedMicros = micros;
+        notifyAll();
+    }
+    
+    /**
+     * Wait until less than the maximum amount of data is queued. Data is
+     * removed by reading, skipping or clearing the stream.
+     * @throws InterruptedException if the thread is interrupted while
+     * waiting
+     */
+    public synchronized void waitForSpace() throws InterruptedException {
+        while (maxBufferedMicros > 0 && 
+               getBufferedMicroseconds() >= maxBufferedMicros) 
+        {
+            wait();
+        }
+    }
+    
     /**
      * Add an audio packet
      * @param frame the audio data to add
@@ -167,7 +215,7 @@ public class AudioInputStream {
         }
         
         // notify any listeners that the queue has changed
-        notify();
+        notifyAll();
     }
     
     /**
@@ -288,12 +336,19 @@ public class AudioInputStream {
             if (cur != null) {
                 int read = cur.read(data, offset + written, length - written);
                 
-                // update how much data has been written to the buffer
-                written += read;
-                
                 // update our current position based on consuming this packet
                 bytePosition += read;
                 
+                // if we are catching up, drop some of what we read
+                if (speedup != null) {
+                    int kept = speedUp(data, offset + written, read);
+                    addSkipped(read - kept);
+                    read = kept;
+                }
+                
+                // update how much data has been written to the buffer
+                written += read;
+                
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine(String.format("Read %d bytes from %s. " +
                                 "Total = %d. Position = %d", read, cur, 
@@ -326,10 +381,186 @@ public class AudioInputStream {
             written = min;
         }
         
+        // data was removed, so wake up anyone waiting for space
+        notifyAll();
+        
         // return the number of bytes written
         return written;
     }
     
+    /**
+     * Read silence in place of the queued data, when audio is not being
+     * played but the stream is still used as a clock. The queued data the
+     * silence stands in for is discarded, so the queue keeps up with the 
+     * clock, and audio starts from the right place when it is played 
+     * again.
+     * @param data the buffer to read into
+     * @param offset the offset in buffer to read into
+     * @param length the number of bytes to read
+     * @return the number of bytes read, which is always length
+     */
+    public synchronized int readSilence(byte[] data, int offset, 
+                                        int length) 
+    {
+        Arrays.fill(data, offset, offset + length, (byte) 0);
+        bytePosition += length;
+        
+        // drop data the position has passed
+        int dropped = 0;
+        while (!queue.isEmpty()) {
+            PacketAccess cur = queue.peek();
+            long behind = bytePosition - cur.getPosition();
+            if (behind <= 0) {
+                break;
+            }
+            
+            dropped += cur.skip((int) Math.min(behind, Integer.MAX_VALUE));
+            if (!cur.isFinished()) {
+                break;
+            }
+            
+            queue.remove();
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Read %d bytes of silence, dropped " +
+                        "%d. Position = %d", length, dropped, bytePosition));
+        }
+        
+        notifyAll();
+        return length;
+    }
+    
+    /**
+     * Resample the given region of the buffer in place, so it plays
+     * faster. Because the data is treated as if it were recorded at a
+     * higher rate, fewer samples come out than go in.
+     * @param data the buffer
+     * @param offset the start of the region
+     * @param length the length of the region, in bytes
+     * @return the length of the region after resampling
+     */
+    private int speedUp(byte[] data, int offset, int length) {
+        int frameBytes = sampleSize / 8;
+        int samples = length / frameBytes;
+        if (samples == 0) {
+            return 0;
+        }
+        
+        // the resampler uses the time of each frame to detect gaps, so 
+        // give it times at the rate it thinks the data was recorded at
+        byte[] in = Arrays.copyOfRange(data, offset, 
+                                       offset + samples * frameBytes);
+        long pts = (speedupSamples * 1000000L) / speedupRate;
+        speedupSamples += samples;
+        
+        AudioFrame out = speedup.resample(new AudioFrame(pts, in, in.length));
+        if (out == null) {
+            return 0;
+        }
+        
+        // the output is never longer than the input
+        int outLength = Math.min(out.getLength(), length);
+        System.arraycopy(out.getData(), 0, data, offset, outLength);
+        return outLength;
+    }
+    
+    /**
+     * Play slightly faster than realtime, by playing <code>interval</code>
+     * samples in the time of <code>interval - 1</code>. The audio is 
+     * resampled with a low-pass filter, so this is heard as a slight rise 
+     * in pitch rather than as clicks. It is used to reduce latency 
+     * gradually without an audible jump.
+     * @param interval the number of samples to play in the time of one
+     * less, or 0 to play at normal speed
+     */
+    public synchronized void setSpeedup(int interval) {
+        if (interval == speedupInterval) {
+            return;
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Set speedup interval " + interval);
+        }
+        
+        this.speedupInterval = interval;
+        this.speedup = null;
+        
+        // the resampler handles 16 bit samples
+        int channels = sampleSize / 16;
+        if (interval > 1 && channels > 0) {
+            int rate = Math.round(sampleRate);
+            speedupRate = rate * interval;
+            speedupSamples = 0;
+            speedup = new AudioResampler(speedupRate, channels,
+                                         rate * (interval - 1), channels);
+        }
+    }
+    
+    /**
+     * Skip queued data without playing it.
+     * @param micros the maximum amount of data to skip, in microseconds
+     * @return the amount of data skipped, in microseconds
+     */
+    public synchronized long skip(long micros) {
+        long toSkip = microsecondsToBytes(micros);
+        long skipped = 0;
+        
+        // skip whole packets and part of the last packet
+        while (skipped < toSkip && !queue.isEmpty()) {
+            PacketAccess cur = queue.peek();
+            int count = cur.skip((int) Math.min(toSkip - skipped, 
+                                                Integer.MAX_VALUE));
+            skipped += count;
+            
+            if (cur.isFinished()) {
+                queue.remove();
+            } else if (count == 0) {
+                // less than a sample left to skip
+                break;
+            }
+        }
+        
+        bytePosition += skipped;
+        addSkipped(skipped);
+        notifyAll();
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Skipped %d of %d bytes. Position = %d",
+                        skipped, toSkip, bytePosition));
+        }
+        
+        return bytesToMicroseconds(skipped);
+    }
+    
+    /**
+     * Get the total amount of data that has been skipped, either by
+     * calling skip() or by playing faster than realtime. This method does
+     * not lock the stream, so it is safe to call from a read timeout.
+     * @return the amount of skipped data, in microseconds
+     */
+    public long getSkippedMicroseconds() {
+        return skippedMicros;
+    }
+    
+    private void addSkipped(long bytes) {
+        skippedBytes += bytes;
+        skippedMicros = bytesToMicroseconds(skippedBytes);
+    }
+    
+    /**
+     * Get the amount of data queued and not yet read
+     * @return the amount of queued data, in microseconds
+     */
+    public synchronized long getBufferedMicroseconds() {
+        long bytes = 0;
+        for (PacketAccess packet : queue) {
+            bytes += packet.getRemaining();
+        }
+        
+        return bytesToMicroseconds(bytes);
+    }
+    
     /**
      * Get the position of the input stream in microseconds
      * @return the position of the stream in microseconds
@@ -348,7 +579,7 @@ public class AudioInputStream {
         }
         
         queue.clear();
-        notify();
+        notifyAll();
     }    
     
     /**
@@ -434,6 +665,29 @@ public class AudioInputStream {
             return toRead;
         }
         
+        /**
+         * Skip data in this packet without reading it
+         * @param length the maximum number of bytes to skip
+         * @return the number of bytes skipped
+         */
+        public int skip(int length) {
+            int toSkip = Math.min(length, getSize() - curOffset);
+            
+            // keep the position sample-aligned
+            toSkip -= toSkip % (sampleSize / 8);
+            
+            curOffset += toSkip;
+            return toSkip;
+        }
+        
+        /**
+         * Get the number of bytes left to read in this packet
+         * @return the number of bytes remaining
+         */
+        int getRemaining() {
+            return Math.max(getSize() - curOffset, 0);
+        }
+        
         /**
          * Get the total length of this packet, in bytes
          * @return the size of the packet, in bytes
@@ -470,6 +724,15 @@ public class AudioInputStream {
             return startBytePosition;
         }
         
+        /**
+         * Get the position in the stream of the next byte to read from
+         * this packet
+         * @return the byte position of the next byte
+         */
+        long getPosition() {
+            return startBytePosition + curOffset;
+        }
+        
         /**
          * Get the end position of this packet in the stream. The end position
          * is the byte position in the stream of the end of this packet.
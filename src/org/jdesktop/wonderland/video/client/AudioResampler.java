@@ -0,0 +1,369 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
+
+/**
+ * Converts decoded audio from the sample rate and channel count of the
+ * stream to the sample rate and channel count of the output line. Data
+ * is signed 16 bit little-endian PCM on both sides, which is what xuggler
+ * produces and what we ask JavaSound for.
+ * <p>
+ * Resampling uses a polyphase windowed-sinc filter. The filter history is
+ * kept between frames, so consecutive frames are resampled as a single
+ * continuous signal. A discontinuity in the PTS values (for example after
+ * a seek) resets the history.
+ *
+ * @author agent <agent@local>
+ */
+public class AudioResampler {
+    private static final Logger LOGGER =
+            Logger.getLogger(AudioResampler.class.getName());
+
+    // number of filter phases. Coefficients between two phases are
+    // linearly interpolated
+    private static final int PHASES = 256;
+
+    // number of taps on each side of the interpolation point
+    private static final int HALF_TAPS = 16;
+    private static final int TAPS = HALF_TAPS * 2;
+
+    private final int inRate;
+    private final int inChannels;
+    private final int outRate;
+    private final int outChannels;
+
+    // the distance between output samples, in input samples
+    private final double step;
+
+    // the filter table: (PHASES + 1) rows of TAPS coefficients
+    private final float[] filter;
+
+    // input samples (after channel mapping) that are still needed by the
+    // filter, one array per output channel
+    private float[][] history;
+    private int historyLength;
+
+    // the position of the next output sample, in input samples relative
+    // to the start of the history
+    private double position;
+
+    // timing of the current continuous segment
+    private boolean started = false;
+    private long startPTS;
+    private long inputSamples;
+    private long outputSamples;
+
+    /**
+     * Create a new resampler
+     * @param inRate the sample rate of the decoded audio
+     * @param inChannels the number of channels in the decoded audio
+     * @param outRate the sample rate of the output line
+     * @param outChannels the number of channels of the output line
+     */
+    public AudioResampler(int inRate, int inChannels,
+                          int outRate, int outChannels)
+    {
+        this.inRate = inRate;
+        this.inChannels = inChannels;
+        this.outRate = outRate;
+        this.outChannels = outChannels;
+
+        this.step = (double) inRate / (double) outRate;
+        this.filter = createFilter(Math.min(1.0, (double) outRate / inRate));
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Create resampler from %d Hz, %d " +
+                        "channels to %d Hz, %d channels", inRate, inChannels,
+                        outRate, outChannels));
+        }
+    }
+
+    /**
+     * Get whether this resampler changes the sample rate. If it does not,
+     * only channel mapping is performed.
+     * @return true if the input and output rates differ
+     */
+    public boolean isResampling() {
+        return inRate != outRate;
+    }
+
+    /**
+     * Convert a frame of audio. Because of the filter delay, the output
+     * of a frame may contain samples from the previous frame, and some
+     * samples of this frame may not be output until the next frame is added.
+     * @param frame the frame to convert
+     * @return the converted frame, or null if not enough data has been
+     * added to produce any output
+     */
+    public AudioFrame resample(AudioFrame frame) {
+        int frameSamples = frame.getLength() / (2 * inChannels);
+
+        // without resampling, just map the channels with no delay
+        if (!isResampling()) {
+            byte[] out = new byte[frameSamples * 2 * outChannels];
+            mapChannels(frame.getData(), frameSamples, out);
+            return new AudioFrame(frame.getPTS(), out, out.length);
+        }
+
+        // check for a discontinuity in the input
+        long expectedPTS = startPTS + (inputSamples * 1000000L) / inRate;
+        long tolerance = (2 * 1000000L) / inRate;
+        if (!started || Math.abs(frame.getPTS() - expectedPTS) > tolerance) {
+            reset(frame.getPTS());
+        }
+
+        append(frame.getData(), frameSamples);
+        inputSamples += frameSamples;
+
+        // figure out how many output samples we can generate. Each output
+        // sample needs HALF_TAPS input samples after its position
+        int count = 0;
+        double p = position;
+        while ((int) p + HALF_TAPS < historyLength) {
+            count++;
+            p += step;
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        long pts = startPTS + (outputSamples * 1000000L) / outRate;
+        byte[] out = new byte[count * 2 * outChannels];
+        int outOffset = 0;
+
+        for (int i = 0; i < count; i++) {
+            int base = (int) position;
+            double frac = (position - base) * PHASES;
+            int phase = (int) frac;
+            float mix = (float) (frac - phase);
+
+            int row0 = phase * TAPS;
+            int row1 = row0 + TAPS;
+            int first = base - HALF_TAPS + 1;
+
+            for (int c = 0; c < outChannels; c++) {
+                float[] h = history[c];
+                float sum = 0f;
+
+                for (int t = 0; t < TAPS; t++) {
+                    float coeff = filter[row0 + t] +
+                                  mix * (filter[row1 + t] - filter[row0 + t]);
+                    sum += coeff * h[first + t];
+                }
+
+                int sample = Math.round(sum);
+                sample = Math.min(sample, Short.MAX_VALUE);
+                sample = Math.max(sample, Short.MIN_VALUE);
+
+                out[outOffset++] = (byte) sample;
+                out[outOffset++] = (byte) (sample >> 8);
+            }
+
+            position += step;
+        }
+
+        outputSamples += count;
+        compact();
+
+        return new AudioFrame(pts, out, out.length);
+    }
+
+    /**
+     * Reset the resampler, discarding any saved history.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Start a new continuous segment at the given time
+     * @param pts the time of the first input sample in the segment
+     */
+    private void reset(long pts) {
+        if (started && LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Resampler discontinuity at " + pts);
+        }
+
+        // start with HALF_TAPS samples of silence, so the first output
+        // sample lines up with the first input sample
+        history = new float[outChannels][1024];
+        historyLength = HALF_TAPS;
+        position = HALF_TAPS;
+
+        started = true;
+        startPTS = pts;
+        inputSamples = 0;
+        outputSamples = 0;
+    }
+
+    /**
+     * Add input data to the history, mapping channels as we go
+     * @param data the input data
+     * @param samples the number of samples (per channel) in the data
+     */
+    private void append(byte[] data, int samples) {
+        ensureCapacity(historyLength + samples);
+
+        for (int i = 0; i < samples; i++) {
+            int offset = i * 2 * inChannels;
+
+            for (int c = 0; c < outChannels; c++) {
+                history[c][historyLength + i] = mapSample(data, offset, c);
+            }
+        }
+
+        historyLength += samples;
+    }
+
+    /**
+     * Map channels without changing the sample rate
+     * @param data the input data
+     * @param samples the number of samples (per channel) in the data
+     * @param out the output buffer
+     */
+    private void mapChannels(byte[] data, int samples, byte[] out) {
+        int outOffset = 0;
+
+        for (int i = 0; i < samples; i++) {
+            int offset = i * 2 * inChannels;
+
+            for (int c = 0; c < outChannels; c++) {
+                int sample = Math.round(mapSample(data, offset, c));
+                out[outOffset++] = (byte) sample;
+                out[outOffset++] = (byte) (sample >> 8);
+            }
+        }
+    }
+
+    /**
+     * Get the value of an output channel for the sample starting at the
+     * given offset. If there are fewer output channels than input channels,
+     * the extra input channels are averaged in. If there are more, input
+     * channels are repeated.
+     * @param data the input data
+     * @param offset the offset of the first channel of the sample
+     * @param channel the output channel
+     * @return the value of the output channel
+     */
+    private float mapSample(byte[] data, int offset, int channel) {
+        if (outChannels >= inChannels) {
+            return readSample(data, offset, channel % inChannels);
+        }
+
+        float sum = 0f;
+        int count = 0;
+        for (int c = channel; c < inChannels; c += outChannels) {
+            sum += readSample(data, offset, c);
+            count++;
+        }
+
+        return sum / count;
+    }
+
+    private static float readSample(byte[] data, int offset, int channel) {
+        int idx = offset + (channel * 2);
+        return (short) ((data[idx] & 0xff) | (data[idx + 1] << 8));
+    }
+
+    /**
+     * Make sure the history can hold the given number of samples
+     * @param size the required size
+     */
+    private void ensureCapacity(int size) {
+        if (history[0].length >= size) {
+            return;
+        }
+
+        int newSize = Math.max(size, history[0].length * 2);
+        for (int c = 0; c < outChannels; c++) {
+            float[] grown = new float[newSize];
+            System.arraycopy(history[c], 0, grown, 0, historyLength);
+            history[c] = grown;
+        }
+    }
+
+    /**
+     * Remove input samples that will not be used by any future output
+     * sample
+     */
+    private void compact() {
+        int discard = (int) position - HALF_TAPS + 1;
+        if (discard <= 0) {
+            return;
+        }
+
+        for (int c = 0; c < outChannels; c++) {
+            System.arraycopy(history[c], discard, history[c], 0,
+                             historyLength - discard);
+        }
+
+        historyLength -= discard;
+        position -= discard;
+    }
+
+    /**
+     * Create the polyphase filter table: a Blackman-windowed sinc low-pass
+     * filter, normalized to unity gain for each phase.
+     * @param cutoff the cutoff frequency as a fraction of the input
+     * Nyquist frequency
+     * @return the filter table
+     */
+    private static float[] createFilter(double cutoff) {
+        // leave a little room for the transition band
+        cutoff *= 0.95;
+
+        float[] out = new float[(PHASES + 1) * TAPS];
+
+        for (int phase = 0; phase <= PHASES; phase++) {
+            double frac = (double) phase / PHASES;
+            double sum = 0.0;
+
+            for (int t = 0; t < TAPS; t++) {
+                // distance from the interpolation point, in input samples
+                double x = (t - HALF_TAPS + 1) - frac;
+
+                double sinc;
+                if (x == 0.0) {
+                    sinc = 1.0;
+                } else {
+                    double px = Math.PI * x * cutoff;
+                    sinc = Math.sin(px) / px;
+                }
+
+                double u = (x + HALF_TAPS) / TAPS;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * u) +
+                                0.08 * Math.cos(4 * Math.PI * u);
+
+                double value = sinc * window;
+                out[phase * TAPS + t] = (float) value;
+                sum += value;
+            }
+
+            for (int t = 0; t < TAPS; t++) {
+                out[phase * TAPS + t] /= sum;
+            }
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * The destination for decoded audio. The player writes audio to the sink
+ * as it is needed, and uses the sink's position as the clock that video is
+ * synchronized to. A sink behaves like a JavaSound
+ * <code>SourceDataLine</code>: it has a fixed size buffer, writes block
+ * until there is room in the buffer, and the position advances as
+ * buffered data is played.
+ * <p>
+ * A new sink is created each time the player starts playing, by
+ * <code>VideoPlayerImpl.createAudioSink()</code>.
+ *
+ * @author agent <agent@local>
+ */
+public interface AudioSink {
+    /**
+     * Choose the format this sink will be opened with. This is called
+     * before <code>open()</code>.
+     * @param coderFormat the format of the decoded audio
+     * @param resample true to prefer the sink's own format over the
+     * format of the decoded audio
+     * @return the format to open the sink with. If this differs from the
+     * coder format, the player converts audio before writing it.
+     */
+    public AudioFormat chooseFormat(AudioFormat coderFormat, boolean resample);
+
+    /**
+     * Open the sink
+     * @param format the format to open with
+     * @throws LineUnavailableException if the sink can't be opened
+     */
+    public void open(AudioFormat format) throws LineUnavailableException;
+
+    /**
+     * Get the format the sink was opened with
+     * @return the format of the sink
+     */
+    public AudioFormat getFormat();
+
+    /**
+     * Get the size of the sink's buffer
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize();
+
+    /**
+     * Start playing
+     */
+    public void start();
+
+    /**
+     * Write audio data, blocking until there is room in the buffer for all
+     * of it
+     * @param data the data to write
+     * @param offset the offset of the data to write
+     * @param length the number of bytes to write
+     * @return the number of bytes written
+     */
+    public int write(byte[] data, int offset, int length);
+
+    /**
+     * Get the number of sample frames played since the sink was opened
+     * @return the frame position
+     */
+    public long getLongFramePosition();
+
+    /**
+     * Get the time played since the sink was opened
+     * @return the position in microseconds
+     */
+    public long getMicrosecondPosition();
+
+    /**
+     * Discard any buffered data that has not been played
+     */
+    public void flush();
+
+    /**
+     * Close the sink, releasing any resources
+     */
+    public void close();
+}
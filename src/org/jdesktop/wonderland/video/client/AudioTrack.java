@@ -0,0 +1,90 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+/**
+ * A description of one of the audio streams in a piece of media, for
+ * choosing which one to play.
+ *
+ * @author agent <agent@local>
+ */
+public class AudioTrack {
+    private final int index;
+    private final String language;
+    private final String codec;
+    private final int channels;
+    private final int sampleRate;
+
+    /**
+     * Create a new track description
+     * @param index the index of the stream in the container
+     * @param language the language of the track, or null if unknown
+     * @param codec the name of the codec
+     * @param channels the number of channels
+     * @param sampleRate the sample rate, in Hz
+     */
+    public AudioTrack(int index, String language, String codec,
+                      int channels, int sampleRate)
+    {
+        this.index = index;
+        this.language = language;
+        this.codec = codec;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Get the index of this track's stream in the container. This is the
+     * value to pass to <code>setAudioTrack()</code>.
+     * @return the stream index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the language of this track, typically as an ISO 639 code
+     * @return the language, or null if the media doesn't say
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Get the name of the codec this track is encoded with
+     * @return the codec name
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "AudioTrack[" + index + ", " +
+               ((language == null) ? "unknown" : language) + ", " + codec +
+               ", " + channels + " channels, " + sampleRate + " Hz]";
+    }
+}
@@ -0,0 +1,414 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IAudioSamples;
+import com.xuggle.xuggler.ICodec;
+import com.xuggle.xuggler.IStreamCoder;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.jdesktop.wonderland.video.client.PipelineTrace.Stage;
+import org.jdesktop.wonderland.video.client.PipelineTrace.TraceRecorderSPI;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
+import org.jdesktop.wonderland.video.client.VideoQueueFiller.VideoQueue;
+
+/**
+ * Decodes media as fast as possible, with no display or audio device, and
+ * reports how fast it went. This is used to qualify content and hardware:
+ * if the realtime factors are not comfortably above 1, the media will not
+ * play smoothly on this machine.
+ * <p>
+ * Usage: <code>DecodeTool [options] &lt;file or uri&gt;</code>
+ *
+ * @author agent <agent@local>
+ */
+public class DecodeTool implements VideoQueue {
+    private static final Logger LOGGER =
+            Logger.getLogger(DecodeTool.class.getName());
+
+    // where to find peak resident memory on Linux
+    private static final File PROC_STATUS = new File("/proc/self/status");
+
+    // give up if nothing is decoded for this long, in milliseconds. This
+    // happens if the decoder thread exits with an error
+    private static final long STALL_TIMEOUT = 30000;
+
+    private final VideoQueueFiller filler;
+
+    // stream information
+    private double frameRate;
+    private int audioBytesPerSecond;
+
+    // counts for the current run
+    private long videoFrames;
+    private long audioBytes;
+    private boolean finished;
+    private long lastProgress;
+
+    public DecodeTool() {
+        filler = new VideoQueueFiller(this);
+    }
+
+    /**
+     * Set whether audio is decoded
+     * @param audioEnabled true to decode audio
+     */
+    public void setAudioEnabled(boolean audioEnabled) {
+        filler.setAudioEnabled(audioEnabled);
+    }
+
+    /**
+     * Set whether only key frames are decoded
+     * @param keyFramesOnly true to decode only key frames
+     */
+    public void setKeyFramesOnly(boolean keyFramesOnly) {
+        filler.setKeyFramesOnly(keyFramesOnly);
+    }
+
+    /**
+     * Decode the given media from start to finish
+     * @param uri the media to decode
+     * @return the result of decoding
+     * @throws InterruptedException if the thread is interrupted
+     * @throws IllegalArgumentException if the media can't be opened
+     * @throws IllegalStateException if decoding stops before the end
+     */
+    public Result decode(String uri) throws InterruptedException {
+        synchronized (this) {
+            videoFrames = 0;
+            audioBytes = 0;
+            finished = false;
+            lastProgress = System.currentTimeMillis();
+        }
+
+        long start = System.nanoTime();
+        if (!filler.openMedia(uri)) {
+            throw new IllegalArgumentException("Unable to open " + uri);
+        }
+        long opened = System.nanoTime();
+
+        synchronized (this) {
+            while (!finished) {
+                wait(1000);
+
+                if (System.currentTimeMillis() - lastProgress > STALL_TIMEOUT) {
+                    filler.disable();
+                    throw new IllegalStateException("Decoding stalled");
+                }
+            }
+        }
+        long end = System.nanoTime();
+
+        // wait for the media to close, so it isn't counted in the next run
+        try {
+            filler.disable().get();
+        } catch (ExecutionException ee) {
+            LOGGER.log(Level.WARNING, "Error closing " + uri, ee.getCause());
+        }
+
+        synchronized (this) {
+            Result out = new Result();
+            out.openTime = (opened - start) / 1000000000.0;
+            out.decodeTime = (end - start) / 1000000000.0;
+            out.videoFrames = videoFrames;
+
+            if (frameRate > 0) {
+                out.videoDuration = videoFrames / frameRate;
+            }
+            if (audioBytesPerSecond > 0) {
+                out.audioDuration = (double) audioBytes / audioBytesPerSecond;
+            }
+
+            return out;
+        }
+    }
+
+    public synchronized void newStream(int id, IStreamCoder coder) {
+        if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
+            frameRate = coder.getFrameRate().getDouble();
+        } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
+            int bits = (int) IAudioSamples.findSampleBitDepth(
+                    coder.getSampleFormat());
+            audioBytesPerSecond = coder.getSampleRate() * coder.getChannels() *
+                                  (bits / 8);
+        }
+    }
+
+    public void add(VideoFrame frame) {
+        synchronized (this) {
+            videoFrames++;
+            lastProgress = System.currentTimeMillis();
+        }
+
+        // release the native memory right away, rather than waiting for
+        // the garbage collector
+        frame.release();
+    }
+
+    public void seekFrame(VideoFrame frame) {
+        frame.release();
+    }
+
+    public void seekEnabledChanged(boolean seekEnabled) {
+    }
+
+    public synchronized void add(AudioFrame audio) {
+        audioBytes += audio.getLength();
+        lastProgress = System.currentTimeMillis();
+    }
+
+    public void clear() {
+    }
+
+    public synchronized void finished() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * The result of decoding a single file
+     */
+    public static class Result {
+        private double openTime;
+        private double decodeTime;
+        private long videoFrames;
+        private double videoDuration;
+        private double audioDuration;
+
+        /** @return the time to open the media, in seconds */
+        public double getOpenTime() {
+            return openTime;
+        }
+
+        /** @return the total time to open and decode, in seconds */
+        public double getDecodeTime() {
+            return decodeTime;
+        }
+
+        /** @return the number of video frames decoded */
+        public long getVideoFrames() {
+            return videoFrames;
+        }
+
+        /** @return the number of video frames decoded per second */
+        public double getFramesPerSecond() {
+            return videoFrames / decodeTime;
+        }
+
+        /**
+         * @return the amount of video decoded divided by the time taken
+         * to decode it
+         */
+        public double getVideoRealtimeFactor() {
+            return videoDuration / decodeTime;
+        }
+
+        /**
+         * @return the amount of audio decoded divided by the time taken
+         * to decode it
+         */
+        public double getAudioRealtimeFactor() {
+            return audioDuration / decodeTime;
+        }
+    }
+
+    /**
+     * Collects per-stage timing from the pipeline trace
+     */
+    static class StageRecorder implements TraceRecorderSPI {
+        private final Map<Stage, Histogram> stages =
+                new EnumMap<Stage, Histogram>(Stage.class);
+
+        public StageRecorder() {
+            for (Stage stage : Stage.values()) {
+                stages.put(stage, new Histogram());
+            }
+        }
+
+        public void record(Stage stage, int streamId, long pts,
+                           long startNanos, long durationNanos)
+        {
+            stages.get(stage).record(durationNanos / 1000);
+        }
+
+        public void report(PrintStream out) {
+            for (Map.Entry<Stage, Histogram> e : stages.entrySet()) {
+                if (e.getValue().getCount() > 0) {
+                    out.println(String.format("  %-16s %s", e.getKey(),
+                                              e.getValue().getSnapshot()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the peak resident memory of this process, which includes native
+     * memory used by the decoders
+     * @return the peak resident set size in kilobytes, or -1 if it is not
+     * available on this platform
+     */
+    static long getPeakResidentMemory() {
+        if (!PROC_STATUS.canRead()) {
+            return -1;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(PROC_STATUS));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    String[] parts = line.substring(6).trim().split("\\s+");
+                    return Long.parseLong(parts[0]);
+                }
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Error reading " + PROC_STATUS, ioe);
+        } catch (NumberFormatException nfe) {
+            LOGGER.log(Level.WARNING, "Error reading " + PROC_STATUS, nfe);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the peak Java heap usage, summed over all heap pools
+     * @return the peak heap usage in kilobytes
+     */
+    static long getPeakHeapMemory() {
+        long out = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                out += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return out / 1024;
+    }
+
+    private static void printResult(PrintStream out, int run, Result result) {
+        out.println(String.format("Run %d: open %.3f s, decode %.3f s, " +
+                    "%d frames, %.1f fps, video %.2fx realtime, " +
+                    "audio %.2fx realtime", run, result.getOpenTime(),
+                    result.getDecodeTime(), result.getVideoFrames(),
+                    result.getFramesPerSecond(),
+                    result.getVideoRealtimeFactor(),
+                    result.getAudioRealtimeFactor()));
+    }
+
+    private static void printSystem(PrintStream out) {
+        long rss = getPeakResidentMemory();
+        out.println("Peak resident memory: " +
+                    ((rss < 0) ? "n/a" : (rss / 1024) + " MB"));
+        out.println("Peak heap memory: " + (getPeakHeapMemory() / 1024) + " MB");
+
+        for (GarbageCollectorMXBean gc :
+                ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            out.println(String.format("GC %s: %d collections, %d ms",
+                        gc.getName(), gc.getCollectionCount(),
+                        gc.getCollectionTime()));
+        }
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("r", "repeat", true,
+                          "number of times to decode (default 1)");
+        options.addOption("a", "no-audio", false, "don't decode audio");
+        options.addOption("k", "key-frames", false, "decode key frames only");
+        options.addOption("h", "help", false, "print this message");
+
+        CommandLine line;
+        try {
+            line = new PosixParser().parse(options, args);
+        } catch (ParseException pe) {
+            System.err.println(pe.getMessage());
+            line = null;
+        }
+
+        if (line == null || line.hasOption("h") || line.getArgs().length != 1) {
+            new HelpFormatter().printHelp("DecodeTool [options] <file or uri>",
+                                          options);
+            System.exit(1);
+            return;
+        }
+
+        if (!VideoPlayerImpl.isVideoAvailable()) {
+            System.err.println("Video libraries not available");
+            System.exit(1);
+            return;
+        }
+
+        String uri = line.getArgs()[0];
+        if (new File(uri).exists()) {
+            uri = new File(uri).toURI().toString();
+        }
+
+        int repeat = Integer.parseInt(line.getOptionValue("r", "1"));
+
+        StageRecorder stages = new StageRecorder();
+        PipelineTrace.setRecorder(stages);
+
+        DecodeTool tool = new DecodeTool();
+        tool.setAudioEnabled(!line.hasOption("a"));
+        tool.setKeyFramesOnly(line.hasOption("k"));
+
+        try {
+            for (int i = 0; i < repeat; i++) {
+                printResult(System.out, i + 1, tool.decode(uri));
+            }
+        } catch (Exception ex) {
+            LOGGER.log(Level.WARNING, "Error decoding " + uri, ex);
+            System.exit(1);
+        } finally {
+            PipelineTrace.setRecorder(null);
+        }
+
+        System.out.println("Stage timing (microseconds):");
+        stages.report(System.out);
+        printSystem(System.out);
+
+        System.exit(0);
+    }
+}
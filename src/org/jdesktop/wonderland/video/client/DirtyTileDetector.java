@@ -0,0 +1,174 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.ferry.JNIReference;
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IVideoPicture;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the tiles that differ between two frames, by comparing the
+ * pictures directly in native memory. Only YUV 4:2:0 pictures are
+ * compared, with the three planes stored one after the other the way
+ * Xuggler allocates them. A tile is dirty if its luma or either of its
+ * chroma blocks changed.
+ *
+ * @author agent <agent@local>
+ */
+class DirtyTileDetector {
+    private final int tileSize;
+
+    /**
+     * Create a new detector
+     * @param tileSize the width and height of each tile, in pixels. This
+     * must be a positive multiple of 16.
+     */
+    public DirtyTileDetector(int tileSize) {
+        if (tileSize <= 0 || tileSize % 16 != 0) {
+            throw new IllegalArgumentException("Tile size must be a " +
+                                               "multiple of 16: " + tileSize);
+        }
+
+        this.tileSize = tileSize;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Find the tiles that changed between two frames
+     * @param previous the earlier frame
+     * @param current the later frame
+     * @return the tiles of the current frame that differ from the previous
+     * frame, or null if the frames can't be compared
+     */
+    public DirtyTiles compare(VideoFrame previous, VideoFrame current) {
+        IVideoPicture prev = previous.getPicture();
+        IVideoPicture cur = current.getPicture();
+
+        int width = cur.getWidth();
+        int height = cur.getHeight();
+        if (cur.getPixelType() != IPixelFormat.Type.YUV420P ||
+            prev.getPixelType() != IPixelFormat.Type.YUV420P ||
+            prev.getWidth() != width || prev.getHeight() != height)
+        {
+            return null;
+        }
+
+        int lumaStride = cur.getDataLineSize(0);
+        int chromaStride = cur.getDataLineSize(1);
+        if (prev.getDataLineSize(0) != lumaStride ||
+            prev.getDataLineSize(1) != chromaStride ||
+            cur.getDataLineSize(2) != chromaStride)
+        {
+            return null;
+        }
+
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int lumaSize = lumaStride * height;
+        int chromaSize = chromaStride * chromaHeight;
+
+        AtomicReference<JNIReference> prevRef =
+                new AtomicReference<JNIReference>();
+        AtomicReference<JNIReference> curRef =
+                new AtomicReference<JNIReference>();
+
+        try {
+            ByteBuffer a = prev.getByteBuffer(prevRef);
+            ByteBuffer b = cur.getByteBuffer(curRef);
+            int size = lumaSize + 2 * chromaSize;
+            if (a == null || b == null || a.limit() < size || b.limit() < size) {
+                return null;
+            }
+
+            DirtyTiles out = new DirtyTiles(tileSize, width, height,
+                                            previous.getTimeStamp());
+            comparePlane(a, b, 0, lumaStride, width, height, tileSize, out);
+            comparePlane(a, b, lumaSize, chromaStride, chromaWidth,
+                         chromaHeight, tileSize / 2, out);
+            comparePlane(a, b, lumaSize + chromaSize, chromaStride,
+                         chromaWidth, chromaHeight, tileSize / 2, out);
+            return out;
+        } finally {
+            if (prevRef.get() != null) {
+                prevRef.get().delete();
+            }
+
+            if (curRef.get() != null) {
+                curRef.get().delete();
+            }
+        }
+    }
+
+    /**
+     * Compare one plane of the pictures, marking tiles that differ. Tiles
+     * that are already dirty are not compared again.
+     * @param a the data of the previous picture
+     * @param b the data of the current picture
+     * @param offset the offset of the plane in the data
+     * @param stride the number of bytes in each line of the plane
+     * @param width the width of the plane
+     * @param height the height of the plane
+     * @param tile the size of a tile in this plane
+     * @param out the tiles to mark
+     */
+    private static void comparePlane(ByteBuffer a, ByteBuffer b, int offset,
+                                     int stride, int width, int height,
+                                     int tile, DirtyTiles out)
+    {
+        for (int y = 0; y < height; y++) {
+            int row = y / tile;
+            int line = offset + y * stride;
+
+            for (int column = 0; column < out.getColumns(); column++) {
+                if (out.isDirty(column, row)) {
+                    continue;
+                }
+
+                int x = column * tile;
+                int length = Math.min(x + tile, width) - x;
+                if (!equal(a, b, line + x, length)) {
+                    out.setDirty(column, row);
+                }
+            }
+        }
+    }
+
+    private static boolean equal(ByteBuffer a, ByteBuffer b, int position,
+                                 int length)
+    {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (a.getLong(position + i) != b.getLong(position + i)) {
+                return false;
+            }
+        }
+
+        for (; i < length; i++) {
+            if (a.get(position + i) != b.get(position + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
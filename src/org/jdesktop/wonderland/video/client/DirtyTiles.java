@@ -0,0 +1,163 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The parts of a frame that changed since the previous frame. The frame
+ * is divided into a grid of square tiles, and each tile is marked dirty
+ * if any pixel in it changed. Tiles on the right and bottom edges may be
+ * smaller than the tile size.
+ *
+ * @author agent <agent@local>
+ */
+public class DirtyTiles {
+    private final int tileSize;
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final long baseTimeStamp;
+    private final BitSet dirty;
+
+    /**
+     * Create a new set of tiles, with no tiles dirty
+     * @param tileSize the width and height of each tile, in pixels
+     * @param width the width of the frame
+     * @param height the height of the frame
+     * @param baseTimeStamp the timestamp of the frame the changes are
+     * relative to
+     */
+    DirtyTiles(int tileSize, int width, int height, long baseTimeStamp) {
+        this.tileSize = tileSize;
+        this.width = width;
+        this.height = height;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        this.baseTimeStamp = baseTimeStamp;
+        this.dirty = new BitSet(columns * rows);
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the timestamp of the frame these changes are relative to
+     * @return the timestamp, in microseconds
+     */
+    public long getBaseTimeStamp() {
+        return baseTimeStamp;
+    }
+
+    /**
+     * Find out if a tile changed
+     * @param column the column of the tile
+     * @param row the row of the tile
+     * @return true if any pixel in the tile changed
+     */
+    public boolean isDirty(int column, int row) {
+        return dirty.get(row * columns + column);
+    }
+
+    void setDirty(int column, int row) {
+        dirty.set(row * columns + column);
+    }
+
+    /**
+     * Mark every tile as dirty, for when the previous frame is not known
+     */
+    void setAllDirty() {
+        dirty.set(0, columns * rows);
+    }
+
+    /**
+     * Get the number of tiles that changed
+     * @return the number of dirty tiles
+     */
+    public int getDirtyCount() {
+        return dirty.cardinality();
+    }
+
+    /**
+     * Find out if nothing changed
+     * @return true if no tiles are dirty
+     */
+    public boolean isEmpty() {
+        return dirty.isEmpty();
+    }
+
+    /**
+     * Find out if the whole frame changed
+     * @return true if every tile is dirty
+     */
+    public boolean isAllDirty() {
+        return getDirtyCount() == columns * rows;
+    }
+
+    /**
+     * Get the changed parts of the frame as rectangles in pixels. Dirty
+     * tiles next to each other in a row are combined into a single
+     * rectangle, and rectangles are clipped to the size of the frame.
+     * @return the changed regions, in row order
+     */
+    public List<Rectangle> getDirtyRegions() {
+        List<Rectangle> out = new ArrayList<Rectangle>();
+
+        for (int row = 0; row < rows; row++) {
+            int column = 0;
+            while (column < columns) {
+                if (!isDirty(column, row)) {
+                    column++;
+                    continue;
+                }
+
+                int start = column;
+                while (column < columns && isDirty(column, row)) {
+                    column++;
+                }
+
+                int x = start * tileSize;
+                int y = row * tileSize;
+                out.add(new Rectangle(x, y,
+                                      Math.min(column * tileSize, width) - x,
+                                      Math.min(y + tileSize, height) - y));
+            }
+        }
+
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return "DirtyTiles[" + getDirtyCount() + " of " + (columns * rows) +
+               "]";
+    }
+}
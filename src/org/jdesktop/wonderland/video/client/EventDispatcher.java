@@ -0,0 +1,139 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers a player's events to its listeners on a separate thread, so a
+ * slow listener never holds up decoding or audio. Events are delivered one
+ * at a time, in the order they were dispatched. An event that has not
+ * been delivered yet may absorb the event dispatched right after it, so
+ * a listener that falls behind sees only the latest of a run of state
+ * changes or preview frames.
+ * <p>
+ * The dispatch thread exits when it has been idle for a while, so players
+ * that are no longer used don't hold on to threads.
+ *
+ * @author agent <agent@local>
+ */
+class EventDispatcher {
+    private static final Logger LOGGER =
+            Logger.getLogger(EventDispatcher.class.getName());
+
+    // how long the dispatch thread waits for events before exiting, in
+    // seconds
+    private static final long IDLE_TIMEOUT = 5;
+
+    private final ThreadPoolExecutor executor;
+
+    // the last event dispatched, if it has not started running yet
+    private Event tail;
+
+    /**
+     * Create a new dispatcher
+     * @param name the name of the dispatch thread
+     */
+    public EventDispatcher(final String name) {
+        executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread out = new Thread(r, name);
+                out.setDaemon(true);
+                return out;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Dispatch an event. If the previous event has not started running
+     * yet, it is given the chance to absorb this one.
+     * @param event the event to dispatch
+     */
+    public synchronized void dispatch(Event event) {
+        if (tail != null && tail.coalesce(event)) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Coalesced " + event + " into " + tail);
+            }
+
+            return;
+        }
+
+        tail = event;
+        executor.execute(new Delivery(event));
+    }
+
+    /**
+     * Mark an event as started, so no more events are coalesced into it
+     */
+    private synchronized void started(Event event) {
+        if (tail == event) {
+            tail = null;
+        }
+    }
+
+    /**
+     * An event to deliver to listeners
+     */
+    static abstract class Event {
+        /**
+         * Deliver this event to the listeners
+         */
+        public abstract void deliver();
+
+        /**
+         * Absorb an event dispatched right after this one, before this
+         * one has been delivered
+         * @param next the next event
+         * @return true if this event now stands for both, or false if the
+         * next event must be delivered separately
+         */
+        public boolean coalesce(Event next) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs an event on the dispatch thread
+     */
+    private class Delivery implements Runnable {
+        private final Event event;
+
+        public Delivery(Event event) {
+            this.event = event;
+        }
+
+        public void run() {
+            started(event);
+
+            // a listener that throws shouldn't stop later events from
+            // being delivered
+            try {
+                event.deliver();
+            } catch (RuntimeException re) {
+                LOGGER.log(Level.WARNING, "Error delivering " + event, re);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded cache of recently decoded frames, used to step through video
+ * one frame at a time without decoding again. The cache only ever holds
+ * a single contiguous run of frames: adding a frame that doesn't directly
+ * follow the last frame added clears the cache. When the cache is full,
+ * the oldest frames are removed first.
+ * <p>
+ * The cache holds its own reference to each frame, and releases it when
+ * the frame is removed.
+ *
+ * @author agent <agent@local>
+ */
+class FrameCache {
+    private static final Logger LOGGER =
+            Logger.getLogger(FrameCache.class.getName());
+
+    // frames in PTS order
+    private final TreeMap<Long, VideoFrame> frames =
+            new TreeMap<Long, VideoFrame>();
+
+    // the maximum size of the cache, in bytes
+    private long maxSize;
+
+    // the current size of the cache, in bytes
+    private long size;
+
+    /**
+     * Create a new cache
+     * @param maxSize the maximum size of the cache, in bytes
+     */
+    public FrameCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the maximum size of the cache
+     * @return the maximum size in bytes
+     */
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum size of the cache. A size of 0 disables the cache.
+     * @param maxSize the maximum size in bytes
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    /**
+     * Add a frame to the cache. The cache retains the frame, so the caller
+     * keeps its own reference.
+     * @param frame the frame to add
+     * @param frameTime the expected time between frames, in microseconds
+     */
+    public synchronized void add(VideoFrame frame, long frameTime) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        // make sure this frame follows on from the ones we have
+        if (!frames.isEmpty()) {
+            long last = frames.lastKey();
+            long gap = frame.getTimeStamp() - last;
+
+            if (gap <= 0 || gap > frameTime + (frameTime / 2)) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(String.format("Frame at %d does not follow " +
+                                "%d. Clear cache.", frame.getTimeStamp(), last));
+                }
+
+                clear();
+            }
+        }
+
+        frame.retain();
+        VideoFrame replaced = frames.put(frame.getTimeStamp(), frame);
+        if (replaced != null) {
+            size -= replaced.getSize();
+            replaced.release();
+        }
+
+        size += frame.getSize();
+        trim();
+    }
+
+    /**
+     * Get the frame immediately after the given frame
+     * @param pts the time of the current frame
+     * @return the next frame, or null if the next frame is not cached. The
+     * caller must release the returned frame.
+     */
+    public synchronized VideoFrame getNext(long pts) {
+        if (!frames.containsKey(pts)) {
+            return null;
+        }
+
+        return retain(frames.higherEntry(pts));
+    }
+
+    /**
+     * Get the frame immediately before the given frame
+     * @param pts the time of the current frame
+     * @return the previous frame, or null if the previous frame is not
+     * cached. The caller must release the returned frame.
+     */
+    public synchronized VideoFrame getPrevious(long pts) {
+        if (!frames.containsKey(pts)) {
+            return null;
+        }
+
+        return retain(frames.lowerEntry(pts));
+    }
+
+    /**
+     * Remove all frames from the cache
+     */
+    public synchronized void clear() {
+        for (VideoFrame frame : frames.values()) {
+            frame.release();
+        }
+
+        frames.clear();
+        size = 0;
+    }
+
+    private static VideoFrame retain(Map.Entry<Long, VideoFrame> entry) {
+        if (entry == null) {
+            return null;
+        }
+
+        entry.getValue().retain();
+        return entry.getValue();
+    }
+
+    /**
+     * Remove the oldest frames until the cache fits in the maximum size
+     */
+    private void trim() {
+        while (size > maxSize && !frames.isEmpty()) {
+            VideoFrame removed = frames.pollFirstEntry().getValue();
+            size -= removed.getSize();
+            removed.release();
+        }
+    }
+}
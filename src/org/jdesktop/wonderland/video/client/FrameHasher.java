@@ -0,0 +1,109 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.ferry.JNIReference;
+import com.xuggle.xuggler.IVideoPicture;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes a hash of the data in a picture, used to find frames that are
+ * the same as the frame before them. Slide decks and screen recordings
+ * are mostly made of such frames.
+ * <p>
+ * The picture is read directly from native memory, eight bytes at a time.
+ * With a sample step of 1 every word is hashed, so two pictures only get
+ * the same hash if they are identical (barring a 64-bit collision). Larger
+ * steps read less of the picture, but may miss small changes.
+ *
+ * @author agent <agent@local>
+ */
+class FrameHasher {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int sampleStep;
+
+    /**
+     * Create a new hasher
+     * @param sampleStep hash every <code>sampleStep</code>th word of the
+     * picture
+     */
+    public FrameHasher(int sampleStep) {
+        if (sampleStep < 1) {
+            throw new IllegalArgumentException("Bad sample step: " +
+                                               sampleStep);
+        }
+
+        this.sampleStep = sampleStep;
+    }
+
+    public int getSampleStep() {
+        return sampleStep;
+    }
+
+    /**
+     * Hash a picture
+     * @param picture the picture to hash
+     * @return the hash of the picture data
+     */
+    public long hash(IVideoPicture picture) {
+        AtomicReference<JNIReference> ref =
+                new AtomicReference<JNIReference>();
+        ByteBuffer data = picture.getByteBuffer(ref);
+
+        try {
+            // include the size, so pictures of different sizes that happen
+            // to start with the same data don't match
+            long out = mix(FNV_OFFSET, picture.getWidth());
+            out = mix(out, picture.getHeight());
+
+            if (data == null) {
+                return out;
+            }
+
+            data.order(ByteOrder.nativeOrder());
+            int limit = data.limit() - 7;
+            int step = sampleStep * 8;
+
+            int i = 0;
+            for (; i < limit; i += step) {
+                out = mix(out, data.getLong(i));
+            }
+
+            // hash any bytes left over at the end
+            if (sampleStep == 1) {
+                for (; i < data.limit(); i++) {
+                    out = mix(out, data.get(i));
+                }
+            }
+
+            return out;
+        } finally {
+            if (ref.get() != null) {
+                ref.get().delete();
+            }
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+}
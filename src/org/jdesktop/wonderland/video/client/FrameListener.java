@@ -18,9 +18,11 @@
 package org.jdesktop.wonderland.video.client;
 
 import com.xuggle.xuggler.IPixelFormat;
-import com.xuggle.xuggler.IVideoPicture;
 
 /**
+ * A listener for the frames of a video. Calls are made in order on the
+ * player's event thread, never on the threads decoding the video, so a
+ * slow listener delays other listeners but not playback.
  *
  * @author nsimpson
  */
@@ -28,7 +30,14 @@ public interface FrameListener {
     public void openVideo(int videoWidth, int videoHeight,
                           IPixelFormat.Type videoFormat);
 
-    public void previewFrame(IVideoPicture frame);
+    /**
+     * Show a single frame, for example after a seek or while stepping.
+     * The frame is only valid during this call. To use it later, call
+     * <code>retain()</code> on the frame, and <code>release()</code> when
+     * done with it.
+     * @param frame the frame to show
+     */
+    public void previewFrame(VideoFrame frame);
     public void playVideo(FrameQueue queue);
     public void stopVideo();
 
@@ -36,9 +45,17 @@ public interface FrameListener {
 
     public interface FrameQueue {
         /**
-         * Get the next frame in the queue
+         * Get the next frame in the queue. The caller owns the returned
+         * reference, and must call <code>release()</code> on the frame
+         * when it is done with it.
+         * <p>
+         * If <code>isDuplicate()</code> is true for the returned frame,
+         * its picture is the same as the last frame returned, and the
+         * caller can skip converting or uploading it. If the player
+         * reports dirty tiles, <code>getDirtyTiles()</code> gives the parts
+         * of the frame that changed, and only those need to be updated.
          * @return the next frame, or null if the current frame is active
          */
-        public IVideoPicture nextFrame();
+        public VideoFrame nextFrame();
     }
 }
@@ -0,0 +1,241 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chooses which decoded frame to display at a given clock time. Frames
+ * the clock has already passed are removed from the queue, and frames
+ * that are not yet due are left for a later call. Frames that are
+ * discarded are released right away, so their memory is freed.
+ *
+ * @author agent <agent@local>
+ */
+class FrameSelector {
+    private static final Logger LOGGER =
+            Logger.getLogger(FrameSelector.class.getName());
+
+    /**
+     * Access to decoded frames
+     */
+    static final FrameAccess<VideoFrame> VIDEO_FRAMES =
+            new FrameAccess<VideoFrame>() {
+        public long getTimeStamp(VideoFrame frame) {
+            return frame.getTimeStamp();
+        }
+
+        public void discard(VideoFrame frame) {
+            frame.release();
+        }
+    };
+
+    /**
+     * Select the frame to show when playing at normal speed. Frames more
+     * than one frame time behind the target are discarded, and the next
+     * frame is shown only if it is within one frame time of the target.
+     * @param queue the queue of decoded frames, in PTS order
+     * @param targetPTS the current clock time, in microseconds
+     * @param frameTime the time between frames, in microseconds
+     * @param stats statistics to update, or null
+     * @return the frame to show, or null if no frame is due. The frame is
+     * removed from the queue, and the caller takes over its reference.
+     */
+    static VideoFrame select(Queue<VideoFrame> queue, long targetPTS,
+                             long frameTime, PlaybackStats stats)
+    {
+        return select(queue, VIDEO_FRAMES, targetPTS, frameTime, stats);
+    }
+
+    /**
+     * Select the frame to show when playing at normal speed, from a queue
+     * of any type of frame.
+     * @param queue the queue of frames, in PTS order
+     * @param access reads and disposes of frames
+     * @param targetPTS the current clock time, in microseconds
+     * @param frameTime the time between frames, in microseconds
+     * @param stats statistics to update, or null
+     * @return the frame to show, or null if no frame is due. The frame is
+     * removed from the queue, and the caller takes over its reference.
+     */
+    static <T> T select(Queue<T> queue, FrameAccess<T> access,
+                        long targetPTS, long frameTime, PlaybackStats stats)
+    {
+        boolean logStats = LOGGER.isLoggable(Level.FINE);
+        StringBuilder log = null;
+
+        if (logStats) {
+            log = new StringBuilder();
+            log.append("Target PTS: ").append(targetPTS);
+            log.append(" frame time: ").append(frameTime).append("\n");
+        }
+
+        T out = queue.peek();
+
+        // find the first frame after the targetPTS
+        while (out != null && access.getTimeStamp(out) < targetPTS - frameTime) {
+            queue.poll();
+            if (stats != null) {
+                stats.frameSkipped();
+            }
+
+            if (logStats) {
+                log.append("    Skip : ").append(access.getTimeStamp(out)).append("\n");
+            }
+
+            access.discard(out);
+            out = queue.peek();
+        }
+
+        // see if it is too far in the future
+        if (out != null &&
+            Math.abs(access.getTimeStamp(out) - targetPTS) < frameTime)
+        {
+            if (logStats) {
+                log.append("    GOOD : ").append(access.getTimeStamp(out)).append("\n");
+            }
+
+            queue.poll();
+            if (stats != null) {
+                stats.frameDisplayed(access.getTimeStamp(out) - targetPTS);
+            }
+        } else {
+            if (out != null) {
+                if (logStats) {
+                    log.append("    Wait : ").append(access.getTimeStamp(out)).append("\n");
+                }
+
+                if (stats != null) {
+                    stats.frameNotDue();
+                }
+            }
+
+            // don't take the frame, just return null
+            out = null;
+        }
+
+        if (logStats) {
+            LOGGER.fine(log.toString());
+        }
+
+        return out;
+    }
+
+    /**
+     * Select the frame to show when playing at a rate other than normal
+     * speed. Frames may be sparse (for example when only key frames are
+     * decoded), so the latest frame that is due is shown, and any earlier
+     * frames are discarded.
+     * @param queue the queue of decoded frames, in PTS order
+     * @param targetPTS the current clock time, in microseconds
+     * @param frameTime the time between frames, in microseconds
+     * @param stats statistics to update, or null
+     * @return the frame to show, or null if no frame is due. The frame is
+     * removed from the queue, and the caller takes over its reference.
+     */
+    static VideoFrame selectLatest(Queue<VideoFrame> queue,
+                                   long targetPTS, long frameTime,
+                                   PlaybackStats stats)
+    {
+        return selectLatest(queue, VIDEO_FRAMES, targetPTS, frameTime, stats);
+    }
+
+    /**
+     * Select the latest frame that is due, from a queue of any type of
+     * frame.
+     * @param queue the queue of frames, in PTS order
+     * @param access reads and disposes of frames
+     * @param targetPTS the current clock time, in microseconds
+     * @param frameTime the time between frames, in microseconds
+     * @param stats statistics to update, or null
+     * @return the frame to show, or null if no frame is due. The frame is
+     * removed from the queue, and the caller takes over its reference.
+     */
+    static <T> T selectLatest(Queue<T> queue, FrameAccess<T> access,
+                              long targetPTS, long frameTime,
+                              PlaybackStats stats)
+    {
+        boolean logStats = LOGGER.isLoggable(Level.FINE);
+        StringBuilder log = null;
+
+        if (logStats) {
+            log = new StringBuilder();
+            log.append("Target PTS: ").append(targetPTS);
+            log.append(" frame time: ").append(frameTime).append("\n");
+        }
+
+        T out = null;
+
+        T next = queue.peek();
+        while (next != null && access.getTimeStamp(next) < targetPTS + frameTime) {
+            queue.poll();
+
+            if (out != null) {
+                if (stats != null) {
+                    stats.frameSkipped();
+                }
+
+                if (logStats) {
+                    log.append("    Skip : ").append(access.getTimeStamp(out)).append("\n");
+                }
+
+                access.discard(out);
+            }
+
+            out = next;
+            next = queue.peek();
+        }
+
+        if (logStats) {
+            LOGGER.fine(log.toString());
+        }
+
+        // an empty queue isn't counted, since no frame was waiting
+        if (stats != null) {
+            if (out != null) {
+                stats.frameDisplayed(access.getTimeStamp(out) - targetPTS);
+            } else if (next != null) {
+                stats.frameNotDue();
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Reads the presentation time of a frame, and disposes of frames that
+     * are not displayed
+     */
+    interface FrameAccess<T> {
+        /**
+         * Get the timestamp of the given frame
+         * @param frame the frame
+         * @return the timestamp, in microseconds
+         */
+        long getTimeStamp(T frame);
+
+        /**
+         * Dispose of a frame that was removed from the queue without
+         * being displayed
+         * @param frame the frame
+         */
+        void discard(T frame);
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.ferry.JNIReference;
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IVideoPicture;
+import com.xuggle.xuggler.IVideoResampler;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Crops and scales frames, so a single decoded video can be shown in
+ * pieces, for example across the screens of a video wall. Cropping is done
+ * by copying lines of YUV 4:2:0 pictures, and scaling with Xuggler's
+ * resampler. Pictures in other formats are passed through unchanged.
+ *
+ * @author agent <agent@local>
+ */
+class FrameTransform {
+    private static final Logger LOGGER =
+            Logger.getLogger(FrameTransform.class.getName());
+
+    private final Rectangle crop;
+    private final Dimension size;
+
+    private IVideoResampler resampler;
+
+    /**
+     * Create a new transform
+     * @param crop the part of the frame to keep, or null to keep the
+     * whole frame
+     * @param size the size to scale the result to, or null to keep the
+     * cropped size
+     */
+    public FrameTransform(Rectangle crop, Dimension size) {
+        this.crop = crop;
+        this.size = size;
+    }
+
+    /**
+     * Get the part of a frame that is kept, aligned to even pixels so the
+     * chroma planes can be cropped exactly
+     * @param width the width of the frame
+     * @param height the height of the frame
+     * @return the crop rectangle, within the frame
+     */
+    public Rectangle getCrop(int width, int height) {
+        Rectangle bounds = new Rectangle(0, 0, width, height);
+        if (crop == null) {
+            return bounds;
+        }
+
+        Rectangle out = crop.intersection(bounds);
+        out.x &= ~1;
+        out.y &= ~1;
+        out.width = Math.max(out.width & ~1, 2);
+        out.height = Math.max(out.height & ~1, 2);
+        return out;
+    }
+
+    /**
+     * Get the size of transformed frames
+     * @param width the width of the source frames
+     * @param height the height of the source frames
+     * @return the size of the transformed frames
+     */
+    public Dimension getOutputSize(int width, int height) {
+        if (size != null) {
+            return new Dimension(size);
+        }
+
+        Rectangle r = getCrop(width, height);
+        return new Dimension(r.width, r.height);
+    }
+
+    /**
+     * Transform a frame
+     * @param frame the frame to transform
+     * @return a new frame with the transformed picture, or null if the
+     * frame can't be transformed. The caller owns the returned frame.
+     */
+    public VideoFrame apply(VideoFrame frame) {
+        IVideoPicture picture = frame.getPicture();
+        if (picture.getPixelType() != IPixelFormat.Type.YUV420P) {
+            return null;
+        }
+
+        Rectangle r = getCrop(picture.getWidth(), picture.getHeight());
+        Dimension out = getOutputSize(picture.getWidth(),
+                                      picture.getHeight());
+
+        IVideoPicture cropped = crop(picture, r);
+        if (cropped == null) {
+            return null;
+        }
+
+        if (out.width == r.width && out.height == r.height) {
+            return new VideoFrame(cropped);
+        }
+
+        IVideoPicture scaled = scale(cropped, out);
+        cropped.delete();
+        return (scaled == null) ? null : new VideoFrame(scaled);
+    }
+
+    /**
+     * Copy part of a picture into a new picture
+     * @param picture the picture to copy from
+     * @param r the area to copy
+     * @return the new picture, or null if the picture can't be read
+     */
+    private IVideoPicture crop(IVideoPicture picture, Rectangle r) {
+        IVideoPicture out = IVideoPicture.make(IPixelFormat.Type.YUV420P,
+                                               r.width, r.height);
+
+        AtomicReference<JNIReference> srcRef =
+                new AtomicReference<JNIReference>();
+        AtomicReference<JNIReference> dstRef =
+                new AtomicReference<JNIReference>();
+
+        try {
+            ByteBuffer src = picture.getByteBuffer(srcRef);
+            ByteBuffer dst = out.getByteBuffer(dstRef);
+            if (src == null || dst == null) {
+                out.delete();
+                return null;
+            }
+
+            int srcLuma = picture.getDataLineSize(0);
+            int srcChroma = picture.getDataLineSize(1);
+            int dstLuma = out.getDataLineSize(0);
+            int dstChroma = out.getDataLineSize(1);
+
+            int srcChromaOffset = srcLuma * picture.getHeight();
+            int srcChromaSize = srcChroma * ((picture.getHeight() + 1) / 2);
+            int dstChromaOffset = dstLuma * r.height;
+            int dstChromaSize = dstChroma * (r.height / 2);
+
+            copyPlane(src, 0, srcLuma, dst, 0, dstLuma,
+                      r.x, r.y, r.width, r.height);
+            copyPlane(src, srcChromaOffset, srcChroma,
+                      dst, dstChromaOffset, dstChroma,
+                      r.x / 2, r.y / 2, r.width / 2, r.height / 2);
+            copyPlane(src, srcChromaOffset + srcChromaSize, srcChroma,
+                      dst, dstChromaOffset + dstChromaSize, dstChroma,
+                      r.x / 2, r.y / 2, r.width / 2, r.height / 2);
+        } finally {
+            if (srcRef.get() != null) {
+                srcRef.get().delete();
+            }
+
+            if (dstRef.get() != null) {
+                dstRef.get().delete();
+            }
+        }
+
+        out.setComplete(true, IPixelFormat.Type.YUV420P, r.width, r.height,
+                        picture.getTimeStamp());
+        return out;
+    }
+
+    /**
+     * Copy a rectangle of one plane
+     */
+    private static void copyPlane(ByteBuffer src, int srcOffset, int srcStride,
+                                  ByteBuffer dst, int dstOffset, int dstStride,
+                                  int x, int y, int width, int height)
+    {
+        ByteBuffer in = src.duplicate();
+        ByteBuffer out = dst.duplicate();
+
+        for (int line = 0; line < height; line++) {
+            int start = srcOffset + (y + line) * srcStride + x;
+            in.limit(start + width).position(start);
+            out.position(dstOffset + line * dstStride);
+            out.put(in);
+        }
+    }
+
+    /**
+     * Scale a picture to a new size
+     * @param picture the picture to scale
+     * @param out the size to scale to
+     * @return the scaled picture, or null if it can't be scaled
+     */
+    private IVideoPicture scale(IVideoPicture picture, Dimension out) {
+        if (!IVideoResampler.isSupported(
+                IVideoResampler.Feature.FEATURE_IMAGERESCALING))
+        {
+            return null;
+        }
+
+        if (resampler == null ||
+            resampler.getInputWidth() != picture.getWidth() ||
+            resampler.getInputHeight() != picture.getHeight())
+        {
+            if (resampler != null) {
+                resampler.delete();
+            }
+
+            resampler = IVideoResampler.make(out.width, out.height,
+                    IPixelFormat.Type.YUV420P, picture.getWidth(),
+                    picture.getHeight(), IPixelFormat.Type.YUV420P);
+            if (resampler == null) {
+                LOGGER.warning("Unable to scale video to " + out.width +
+                               "x" + out.height);
+                return null;
+            }
+        }
+
+        IVideoPicture scaled = IVideoPicture.make(IPixelFormat.Type.YUV420P,
+                                                  out.width, out.height);
+        if (resampler.resample(scaled, picture) < 0) {
+            scaled.delete();
+            return null;
+        }
+
+        return scaled;
+    }
+
+    /**
+     * Free the resampler
+     */
+    public void dispose() {
+        if (resampler != null) {
+            resampler.delete();
+            resampler = null;
+        }
+    }
+}
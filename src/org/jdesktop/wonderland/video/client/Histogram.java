@@ -0,0 +1,200 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative values, typically durations in
+ * microseconds. Values are stored in buckets that are exact below 16
+ * and then four buckets per power of two, so percentiles are accurate to
+ * within about 20%, using a small fixed amount of memory.
+ *
+ * @author agent <agent@local>
+ */
+public class Histogram {
+    // values below this are stored exactly
+    private static final int LINEAR_BUCKETS = 16;
+
+    // sub-buckets per power of two above that
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS +
+            (64 - 4) * SUB_BUCKETS;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     * @param value the value to record
+     */
+    public synchronized void record(long value) {
+        value = Math.max(value, 0);
+
+        buckets[bucketFor(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Remove all recorded values
+     */
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Get the number of values recorded
+     * @return the number of values
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the approximate value at the given percentile
+     * @param percentile the percentile, between 0 and 100
+     * @return the approximate value, or 0 if no values are recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil((percentile / 100.0) * count);
+        target = Math.max(target, 1);
+
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return Math.min(bucketValue(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Get a snapshot of the current statistics
+     * @return a snapshot
+     */
+    public synchronized Snapshot getSnapshot() {
+        double mean = (count == 0) ? 0.0 : (double) sum / count;
+
+        return new Snapshot(count, mean, getPercentile(50), getPercentile(90),
+                            getPercentile(99), max);
+    }
+
+    /**
+     * Find the bucket for a value
+     * @param value the value
+     * @return the bucket index
+     */
+    private static int bucketFor(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exp - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get a representative value for a bucket (the middle of its range)
+     * @param bucket the bucket index
+     * @return the value
+     */
+    private static long bucketValue(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+
+        int exp = ((bucket - LINEAR_BUCKETS) / SUB_BUCKETS) + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+
+        long width = 1L << (exp - SUB_BUCKET_BITS);
+        long low = (1L << exp) + (sub * width);
+        return low + (width / 2);
+    }
+
+    /**
+     * An immutable view of a histogram at a point in time. This is exposed
+     * through JMX as composite data.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+        public Snapshot(long count, double mean, long p50, long p90,
+                        long p99, long max)
+        {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d " +
+                                 "max=%d", count, mean, p50, p90, p99, max);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * An audio sink that plays audio through a JavaSound
+ * <code>SourceDataLine</code>.
+ *
+ * @author agent <agent@local>
+ */
+public class JavaSoundAudioSink implements AudioSink {
+    private static final Logger LOGGER =
+            Logger.getLogger(JavaSoundAudioSink.class.getName());
+
+    // output formats to try, in order, if the line does not support the
+    // format of the media and doesn't report a format of its own
+    private static final float[][] FALLBACK_FORMATS = new float[][] {
+        { 48000f, 2 }, { 44100f, 2 }, { 48000f, 1 }, { 44100f, 1 }
+    };
+
+    private SourceDataLine line;
+
+    /**
+     * Determine if JavaSound has any output lines on this machine
+     * @return true if there is an output line available
+     */
+    public static boolean isAvailable() {
+        try {
+            return AudioSystem.isLineSupported(
+                    new Line.Info(SourceDataLine.class));
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Error checking for JavaSound", t);
+            return false;
+        }
+    }
+
+    public AudioFormat chooseFormat(AudioFormat coderFormat, boolean resample) {
+        if (!resample && isLineSupported(coderFormat)) {
+            return coderFormat;
+        }
+
+        // see if the line reports a format it prefers. Most mixers
+        // report formats with unspecified rates, so these are often
+        // not useful
+        Line.Info[] infos = AudioSystem.getSourceLineInfo(
+                new Line.Info(SourceDataLine.class));
+        for (Line.Info info : infos) {
+            if (!(info instanceof DataLine.Info)) {
+                continue;
+            }
+
+            for (AudioFormat format : ((DataLine.Info) info).getFormats()) {
+                if (format.getSampleRate() == AudioSystem.NOT_SPECIFIED ||
+                    format.getChannels() == AudioSystem.NOT_SPECIFIED ||
+                    format.getChannels() > 2)
+                {
+                    continue;
+                }
+
+                AudioFormat out = new AudioFormat(format.getSampleRate(), 16,
+                        format.getChannels(), true, false);
+                if (isLineSupported(out)) {
+                    return out;
+                }
+            }
+        }
+
+        // try the standard formats, keeping the channel count if we can
+        for (float[] fallback : FALLBACK_FORMATS) {
+            int channels = (int) fallback[1];
+            if (resample && channels != coderFormat.getChannels() &&
+                coderFormat.getChannels() <= 2)
+            {
+                continue;
+            }
+
+            AudioFormat out = new AudioFormat(fallback[0], 16, channels,
+                                              true, false);
+            if (isLineSupported(out)) {
+                return out;
+            }
+        }
+
+        // nothing better found -- use the original format and hope for
+        // the best
+        return coderFormat;
+    }
+
+    public void open(AudioFormat format) throws LineUnavailableException {
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        line = (SourceDataLine) AudioSystem.getLine(info);
+
+        // try opening the line.
+        line.open(format);
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            final int frameSize = format.getFrameSize();
+            line.addLineListener(new LineListener() {
+                public void update(LineEvent event) {
+                    long bytePosition = event.getFramePosition() * frameSize;
+                    LOGGER.fine(String.format("Line %s at %d",
+                                event.getType(), bytePosition));
+                }
+            });
+        }
+    }
+
+    public AudioFormat getFormat() {
+        return line.getFormat();
+    }
+
+    public int getBufferSize() {
+        return line.getBufferSize();
+    }
+
+    public void start() {
+        line.start();
+    }
+
+    public int write(byte[] data, int offset, int length) {
+        return line.write(data, offset, length);
+    }
+
+    public long getLongFramePosition() {
+        return line.getLongFramePosition();
+    }
+
+    public long getMicrosecondPosition() {
+        return line.getMicrosecondPosition();
+    }
+
+    public void flush() {
+        line.flush();
+    }
+
+    public void close() {
+        line.close();
+    }
+
+    private static boolean isLineSupported(AudioFormat format) {
+        return AudioSystem.isLineSupported(
+                new DataLine.Info(SourceDataLine.class, format));
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estimates how much audio needs to be buffered ahead of the output line.
+ * The estimate is based on the variance in packet arrival times (using the
+ * interarrival jitter calculation from RFC 3550) plus an extra amount that
+ * grows each time the line underruns and slowly shrinks back while playback
+ * is stable.
+ * <p>
+ * For live streams, the arrivals are also used to estimate the live edge
+ * of the stream: the latest time the source could have produced, based on
+ * the packet that arrived with the least delay.
+ * <p>
+ * All times are in microseconds.
+ *
+ * @author agent <agent@local>
+ */
+public class JitterBuffer {
+    private static final Logger LOGGER =
+            Logger.getLogger(JitterBuffer.class.getName());
+
+    // the smallest amount of data to write to the line at once
+    public static final long DEFAULT_MIN_DEPTH = 20000;
+
+    // the largest depth we will ever target
+    public static final long DEFAULT_MAX_DEPTH = 500000;
+
+    // The approximate resolution observed on the Mac implementation
+    // of JavaSound. A similar resolution was estimated on Windows. By
+    // padding reads by the timer resolution, we guarantee the audio won't
+    // underrun because the timer hasn't updated yet.
+    private static final long TIMER_RESOLUTION = 12000;
+
+    // how much to grow the depth on each underrun
+    private static final long UNDERRUN_STEP = 20000;
+
+    // how long playback must be stable before we start shrinking, and
+    // how much we shrink by each interval
+    private static final long DECAY_INTERVAL = 5000000;
+    private static final double DECAY_FACTOR = 0.75;
+
+    // a difference larger than this is a discontinuity (seek or new
+    // stream), not jitter
+    private static final long DISCONTINUITY = 1000000;
+
+    // how long to keep the minimum arrival delay for when estimating the
+    // live edge. Using a window lets the estimate follow slow drift between
+    // the source clock and ours
+    private static final long EDGE_WINDOW = 30000000;
+
+    private long minDepth = DEFAULT_MIN_DEPTH;
+    private long maxDepth = DEFAULT_MAX_DEPTH;
+
+    // the current jitter estimate
+    private double jitter;
+
+    // the last arrival
+    private boolean hasArrival = false;
+    private long lastPTS;
+    private long lastArrival;
+
+    // the smallest difference between arrival time and PTS in the current
+    // and previous windows
+    private long minOffset;
+    private long prevMinOffset;
+    private long windowStart;
+
+    // the extra depth added due to underruns
+    private long underrunDepth;
+    private long lastChange;
+    private int underruns;
+
+    /**
+     * Get the minimum depth
+     * @return the minimum depth in microseconds
+     */
+    public synchronized long getMinDepth() {
+        return minDepth;
+    }
+
+    /**
+     * Get the maximum depth
+     * @return the maximum depth in microseconds
+     */
+    public synchronized long getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Set the range the target depth is allowed to vary within. Setting
+     * the minimum and maximum to the same value gives a fixed buffer.
+     * @param minDepth the minimum depth in microseconds
+     * @param maxDepth the maximum depth in microseconds
+     */
+    public synchronized void setDepthRange(long minDepth, long maxDepth) {
+        if (minDepth <= 0 || maxDepth < minDepth) {
+            throw new IllegalArgumentException("Bad depth range " + minDepth +
+                                               " - " + maxDepth);
+        }
+
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Record the arrival of a packet
+     * @param pts the presentation time of the packet
+     * @param arrivalTime the wall time the packet arrived
+     */
+    public synchronized void arrival(long pts, long arrivalTime) {
+        if (hasArrival) {
+            // the difference between how far apart the packets arrived and
+            // how far apart they should be played
+            long diff = (arrivalTime - lastArrival) - (pts - lastPTS);
+
+            if (Math.abs(pts - lastPTS) < DISCONTINUITY) {
+                jitter += (Math.abs(diff) - jitter) / 16.0;
+            } else {
+                // the timeline changed, so the edge estimate is no good
+                resetEdge(arrivalTime);
+            }
+        } else {
+            resetEdge(arrivalTime);
+        }
+
+        // track the least delayed packet
+        long offset = arrivalTime - pts;
+        if (arrivalTime - windowStart >= EDGE_WINDOW) {
+            prevMinOffset = minOffset;
+            minOffset = offset;
+            windowStart = arrivalTime;
+        } else {
+            minOffset = Math.min(minOffset, offset);
+        }
+
+        hasArrival = true;
+        lastPTS = pts;
+        lastArrival = arrivalTime;
+
+        decay(arrivalTime);
+    }
+
+    /**
+     * Record an underrun of the output line.
+     * @param now the current wall time
+     */
+    public synchronized void underrun(long now) {
+        underruns++;
+        underrunDepth = Math.min(underrunDepth + UNDERRUN_STEP, maxDepth);
+        lastChange = now;
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Underrun %d. Target depth now %d",
+                        underruns, getTargetDepth()));
+        }
+    }
+
+    /**
+     * Get the number of underruns recorded since the last reset
+     * @return the number of underruns
+     */
+    public synchronized int getUnderrunCount() {
+        return underruns;
+    }
+
+    /**
+     * Get the current jitter estimate
+     * @return the jitter in microseconds
+     */
+    public synchronized long getJitter() {
+        return (long) jitter;
+    }
+
+    /**
+     * Get the amount of audio that should be buffered ahead of the line
+     * @return the target depth in microseconds
+     */
+    public synchronized long getTargetDepth() {
+        long depth = minDepth + (long) (3 * jitter) + underrunDepth;
+        return Math.max(minDepth, Math.min(depth, maxDepth));
+    }
+
+    /**
+     * Get how early we should give up waiting for data and fill the line
+     * with silence instead
+     * @return the read padding in microseconds
+     */
+    public synchronized long getReadPadding() {
+        return TIMER_RESOLUTION + Math.min((long) jitter, minDepth);
+    }
+
+    /**
+     * Estimate the live edge of the stream: the PTS the source is producing
+     * now, assuming the least delayed packet we have seen arrived
+     * immediately.
+     * @param now the current wall time
+     * @return the estimated PTS of the live edge, or -1 if no packets
+     * have arrived
+     */
+    public synchronized long getLiveEdge(long now) {
+        if (!hasArrival) {
+            return -1;
+        }
+
+        return now - Math.min(minOffset, prevMinOffset);
+    }
+
+    /**
+     * Forget the last arrival, for example after a seek. The learned depth
+     * is kept, since network conditions are unlikely to have changed.
+     */
+    public synchronized void resetArrivals() {
+        hasArrival = false;
+    }
+
+    /**
+     * Reset all estimates, for example when new media is opened
+     */
+    public synchronized void reset() {
+        hasArrival = false;
+        jitter = 0;
+        underrunDepth = 0;
+        underruns = 0;
+        lastChange = 0;
+    }
+
+    private void resetEdge(long now) {
+        minOffset = Long.MAX_VALUE;
+        prevMinOffset = Long.MAX_VALUE;
+        windowStart = now;
+    }
+
+    /**
+     * Shrink the underrun depth if things have been stable for a while
+     * @param now the current wall time
+     */
+    private void decay(long now) {
+        if (underrunDepth == 0) {
+            return;
+        }
+
+        if (now - lastChange >= DECAY_INTERVAL) {
+            underrunDepth = (long) (underrunDepth * DECAY_FACTOR);
+            if (underrunDepth < UNDERRUN_STEP / 2) {
+                underrunDepth = 0;
+            }
+
+            lastChange = now;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.Global;
+import com.xuggle.xuggler.ICodec;
+import com.xuggle.xuggler.IContainer;
+import com.xuggle.xuggler.IPacket;
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IRational;
+import com.xuggle.xuggler.IStreamCoder;
+import com.xuggle.xuggler.IVideoPicture;
+import com.xuggle.xuggler.IVideoResampler;
+import com.xuggle.xuggler.video.ConverterFactory;
+import com.xuggle.xuggler.video.IConverter;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Reads the key frames of a video stream, skipping every other packet
+ * without decoding it, and converts them to small images. Key frames can
+ * be decoded on their own, so this is much cheaper than playing the
+ * media, and is used to make thumbnails and previews.
+ *
+ * @author agent <agent@local>
+ */
+class KeyFrameReader {
+    private static final IRational MICROSECONDS = IRational.make(1, 1000000);
+
+    // the most empty packets to feed a decoder to get a delayed picture
+    // out. Decoders that reorder frames hold back a few pictures at most.
+    private static final int MAX_DRAIN = 16;
+
+    private final IContainer container;
+    private final IStreamCoder coder;
+    private final int streamId;
+    private final IRational timeBase;
+    private final IPacket packet = IPacket.make();
+
+    // an empty packet, fed to the decoder to drain delayed pictures
+    private final IPacket drain = IPacket.make();
+
+    // whether the decoder has been fed since it was last flushed
+    private boolean dirty;
+
+    private IVideoResampler resampler;
+    private IConverter converter;
+
+    /**
+     * Open the video stream of some media
+     * @param opener the queue filler to prepare and open the media with
+     * @param uri the URI of the media
+     * @throws IOException if the media can't be opened or has no video
+     */
+    public KeyFrameReader(VideoQueueFiller opener, String uri)
+            throws IOException
+    {
+        try {
+            container = opener.openContainer(opener.prepareContent(uri));
+        } catch (IllegalArgumentException iae) {
+            throw new IOException("Unable to open " + uri, iae);
+        }
+
+        IStreamCoder found = null;
+        int foundId = -1;
+        for (int i = 0; i < container.getNumStreams(); i++) {
+            IStreamCoder cur = container.getStream(i).getStreamCoder();
+            if (cur.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
+                found = cur;
+                foundId = i;
+                break;
+            }
+        }
+
+        if (found == null) {
+            container.close();
+            throw new IOException("No video in " + uri);
+        }
+
+        if (found.open() < 0) {
+            container.close();
+            throw new IOException("Unable to decode video in " + uri);
+        }
+
+        coder = found;
+        streamId = foundId;
+        timeBase = container.getStream(streamId).getTimeBase();
+    }
+
+    public int getWidth() {
+        return coder.getWidth();
+    }
+
+    public int getHeight() {
+        return coder.getHeight();
+    }
+
+    /**
+     * Get the duration of the media
+     * @return the duration in microseconds, or a value less than 0 if it
+     * is unknown
+     */
+    public long getDuration() {
+        long duration = container.getDuration();
+        return (duration == Global.NO_PTS) ? -1 : duration;
+    }
+
+    /**
+     * Seek to the key frame nearest the given time
+     * @param time the time to seek to, in seconds
+     * @return true if the seek succeeded, or false if the media can't seek
+     */
+    public boolean seek(double time) {
+        long target = timeBase.rescale((long) (time * 1000000), MICROSECONDS);
+        if (container.seekKeyFrame(streamId, Long.MIN_VALUE, target,
+                                   Long.MAX_VALUE, 0) < 0)
+        {
+            return false;
+        }
+
+        // don't let pictures from before the seek come out after it
+        flush();
+        return true;
+    }
+
+    /**
+     * Decode the next key frame at or after the given time. Key frames
+     * before that time are skipped without decoding them.
+     * @param minTime the earliest time to decode, in microseconds
+     * @param maxPackets the most video packets to read before giving up
+     * @return the picture, owned by the caller, or null if no key frame
+     * was found
+     */
+    public IVideoPicture nextKeyFrame(long minTime, int maxPackets) {
+        int packets = 0;
+
+        while (container.readNextPacket(packet) >= 0) {
+            if (packet.getStreamIndex() != streamId) {
+                continue;
+            }
+
+            if (++packets > maxPackets) {
+                return null;
+            }
+
+            if (!packet.isKeyPacket()) {
+                continue;
+            }
+
+            long pts = packet.getPts();
+            if (pts != Global.NO_PTS &&
+                MICROSECONDS.rescale(pts, timeBase) < minTime)
+            {
+                continue;
+            }
+
+            IVideoPicture picture = decode();
+            if (picture != null) {
+                return picture;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Decode the current packet. The decoder is flushed first, so the
+     * picture can only come from this packet. Decoders that reorder
+     * frames may hold the picture back, so it is drained out with empty
+     * packets.
+     * @return the picture, or null if the packet doesn't hold a complete
+     * picture
+     */
+    private IVideoPicture decode() {
+        if (!flush()) {
+            return null;
+        }
+
+        IVideoPicture picture = IVideoPicture.make(coder.getPixelType(),
+                coder.getWidth(), coder.getHeight());
+        dirty = true;
+
+        int offset = 0;
+        while (offset < packet.getSize()) {
+            int decoded = coder.decodeVideo(picture, packet, offset);
+            if (decoded < 0) {
+                picture.delete();
+                return null;
+            }
+
+            offset += decoded;
+            if (picture.isComplete()) {
+                return picture;
+            }
+        }
+
+        for (int i = 0; i < MAX_DRAIN && !picture.isComplete(); i++) {
+            if (coder.decodeVideo(picture, drain, 0) < 0) {
+                break;
+            }
+        }
+
+        if (picture.isComplete()) {
+            return picture;
+        }
+
+        picture.delete();
+        return null;
+    }
+
+    /**
+     * Discard any pictures the decoder is holding, by reopening it.
+     * Xuggler has no way to flush a decoder without draining it, and a
+     * drained decoder may not accept more packets.
+     * @return true if the decoder is ready, or false if it couldn't be
+     * reopened
+     */
+    private boolean flush() {
+        if (!dirty) {
+            return true;
+        }
+
+        coder.close();
+        if (coder.open() < 0) {
+            return false;
+        }
+
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Scale a picture to fit in the given size, keeping its aspect ratio,
+     * and convert it to an image in the same pass
+     * @param picture the picture to convert
+     * @param maxSize the largest size of the image. Pictures are not
+     * scaled up.
+     * @return the image
+     * @throws IOException if the picture can't be converted
+     */
+    public BufferedImage toImage(IVideoPicture picture, Dimension maxSize)
+            throws IOException
+    {
+        Dimension size = fit(picture.getWidth(), picture.getHeight(), maxSize);
+
+        if (resampler == null || resampler.getOutputWidth() != size.width ||
+            resampler.getOutputHeight() != size.height ||
+            resampler.getInputWidth() != picture.getWidth() ||
+            resampler.getInputHeight() != picture.getHeight())
+        {
+            if (resampler != null) {
+                resampler.delete();
+            }
+
+            resampler = IVideoResampler.make(size.width, size.height,
+                    IPixelFormat.Type.BGR24, picture.getWidth(),
+                    picture.getHeight(), picture.getPixelType());
+            if (resampler == null) {
+                throw new IOException("Unable to scale video to " +
+                                      size.width + "x" + size.height);
+            }
+
+            converter = ConverterFactory.createConverter(
+                    ConverterFactory.XUGGLER_BGR_24, IPixelFormat.Type.BGR24,
+                    size.width, size.height);
+        }
+
+        IVideoPicture scaled = IVideoPicture.make(IPixelFormat.Type.BGR24,
+                                                  size.width, size.height);
+        try {
+            if (resampler.resample(scaled, picture) < 0) {
+                throw new IOException("Error scaling video");
+            }
+
+            return converter.toImage(scaled);
+        } finally {
+            scaled.delete();
+        }
+    }
+
+    /**
+     * Close the media
+     */
+    public void close() {
+        if (resampler != null) {
+            resampler.delete();
+            resampler = null;
+        }
+
+        packet.delete();
+        drain.delete();
+        coder.close();
+        container.close();
+    }
+
+    /**
+     * Find the largest size with the aspect ratio of the video that fits
+     * in the given size, without scaling the video up
+     */
+    private static Dimension fit(int width, int height, Dimension maxSize) {
+        double scale = Math.min((double) maxSize.width / width,
+                                (double) maxSize.height / height);
+        scale = Math.min(scale, 1.0);
+
+        // keep the size even, for formats with subsampled chroma
+        return new Dimension(Math.max((int) (width * scale) & ~1, 2),
+                             Math.max((int) (height * scale) & ~1, 2));
+    }
+}
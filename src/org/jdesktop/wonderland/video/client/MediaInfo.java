@@ -0,0 +1,108 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.awt.Dimension;
+import java.util.List;
+
+/**
+ * A description of a piece of media, as found when it was opened.
+ *
+ * @author agent <agent@local>
+ */
+public class MediaInfo {
+    private final String uri;
+    private final double duration;
+    private final Dimension frameSize;
+    private final boolean seekable;
+    private final boolean live;
+    private final List<AudioTrack> audioTracks;
+
+    /**
+     * Create a new description
+     * @param uri the URI of the media
+     * @param duration the duration in seconds, or less than 0 if unknown
+     * @param frameSize the size of the video, or 0 by 0 if there is no video
+     * @param seekable true if the media can seek
+     * @param live true if the media is a live stream
+     * @param audioTracks the audio tracks in the media
+     */
+    public MediaInfo(String uri, double duration, Dimension frameSize,
+                     boolean seekable, boolean live,
+                     List<AudioTrack> audioTracks)
+    {
+        this.uri = uri;
+        this.duration = duration;
+        this.frameSize = new Dimension(frameSize);
+        this.seekable = seekable;
+        this.live = live;
+        this.audioTracks = audioTracks;
+    }
+
+    public String getURI() {
+        return uri;
+    }
+
+    /**
+     * Get the duration of the media
+     * @return the duration in seconds, or a value less than 0 if the
+     * duration is unknown
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the size of the video
+     * @return the frame size, or 0 by 0 if the media has no video
+     */
+    public Dimension getFrameSize() {
+        return new Dimension(frameSize);
+    }
+
+    public boolean hasVideo() {
+        return frameSize.width > 0 && frameSize.height > 0;
+    }
+
+    /**
+     * Find out if the media can seek. Unless the protocol can't seek,
+     * this is a guess made without seeking, which the first seek may find
+     * to be wrong. Seeks are tried until then either way, and players
+     * report any change to their capability listeners.
+     * @return true if the media can probably seek
+     */
+    public boolean isSeekable() {
+        return seekable;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public List<AudioTrack> getAudioTracks() {
+        return audioTracks;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaInfo[" + uri + ", " + duration + "s, " +
+               frameSize.width + "x" + frameSize.height + ", " +
+               audioTracks.size() + " audio tracks" +
+               (seekable ? ", seekable" : "") + (live ? ", live" : "") + "]";
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens media for many players at once, for example all the screens in a
+ * world the user just entered. Only a few opens run at a time, so a slow
+ * server doesn't tie up a thread per screen, and the closest screens are
+ * opened first. The distance of a waiting request can be updated as the
+ * user moves.
+ *
+ * @author agent <agent@local>
+ */
+public class MediaLoader {
+    private static final Logger LOGGER =
+            Logger.getLogger(MediaLoader.class.getName());
+
+    // the default number of opens to run at once
+    private static final int DEFAULT_CONCURRENCY = 3;
+
+    // how long idle loader threads wait before exiting, in seconds
+    private static final long IDLE_TIMEOUT = 10;
+
+    private static final AtomicInteger loaderCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+
+    // used to open requests at the same distance in the order they
+    // were made
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Create a loader with the default concurrency
+     */
+    public MediaLoader() {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a loader
+     * @param concurrency the maximum number of opens to run at once
+     */
+    public MediaLoader(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Bad concurrency: " +
+                                               concurrency);
+        }
+
+        final int id = loaderCount.incrementAndGet();
+        executor = new ThreadPoolExecutor(concurrency, concurrency,
+                IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread out = new Thread(r, "Media Loader " + id + "-" +
+                                           threads.incrementAndGet());
+                out.setDaemon(true);
+                return out;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Request that a player open some media. The request waits until it
+     * is one of the closest requests, and a slot is free.
+     * @param player the player to open the media in
+     * @param uri the URI of the media
+     * @param distance how far the player is from the user. Closer players
+     * are opened first.
+     * @return the request, which completes with a description of the
+     * media once it is open
+     */
+    public Request load(VideoPlayerImpl player, String uri, double distance) {
+        Request out = new Request(player, uri, distance,
+                                  sequence.getAndIncrement());
+        executor.execute(out);
+        return out;
+    }
+
+    /**
+     * Get the number of requests waiting for a slot
+     * @return the number of waiting requests
+     */
+    public int getWaiting() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Cancel all requests, and stop the loader threads. Opens in progress
+     * are interrupted.
+     */
+    public void shutdown() {
+        for (Runnable r : executor.shutdownNow()) {
+            ((Request) r).cancel(false);
+        }
+    }
+
+    /**
+     * A request to open media. Requests are opened in order of distance.
+     */
+    public class Request extends FutureTask<MediaInfo>
+            implements Comparable<Request>
+    {
+        private final String uri;
+        private final long order;
+        private volatile double distance;
+
+        private Request(final VideoPlayerImpl player, final String uri,
+                        double distance, long order)
+        {
+            super(new Callable<MediaInfo>() {
+                public MediaInfo call() throws Exception {
+                    return open(player, uri);
+                }
+            });
+
+            this.uri = uri;
+            this.distance = distance;
+            this.order = order;
+        }
+
+        public String getURI() {
+            return uri;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Update the distance of this request, for example because the
+         * user moved. This only has an effect if the request is still
+         * waiting.
+         * @param distance the new distance
+         */
+        public void setDistance(double distance) {
+            // the queue is only ordered on insert, so take the request out
+            // before changing its distance
+            if (executor.remove(this)) {
+                this.distance = distance;
+                executor.execute(this);
+            } else {
+                this.distance = distance;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean out = super.cancel(mayInterruptIfRunning);
+            if (out) {
+                executor.remove(this);
+            }
+
+            return out;
+        }
+
+        public int compareTo(Request o) {
+            int out = Double.compare(distance, o.distance);
+            if (out == 0) {
+                out = (order < o.order) ? -1 : ((order == o.order) ? 0 : 1);
+            }
+
+            return out;
+        }
+
+        @Override
+        public String toString() {
+            return "Request[" + uri + ", " + distance + "]";
+        }
+    }
+
+    /**
+     * Open media in a player, holding a loader thread until it is done
+     * @param player the player to open the media in
+     * @param uri the URI of the media
+     * @return a description of the media
+     * @throws Exception if the open fails
+     */
+    private static MediaInfo open(VideoPlayerImpl player, String uri)
+            throws Exception
+    {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Loading " + uri);
+        }
+
+        Future<MediaInfo> open = player.openMediaAsync(uri);
+        try {
+            return open.get();
+        } catch (InterruptedException ie) {
+            // the request was cancelled
+            open.cancel(true);
+            throw ie;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof Exception) {
+                throw (Exception) ee.getCause();
+            }
+
+            throw ee;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.ferry.JNIMemoryManager;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Keeps track of the native memory used by all video players in the
+ * process, and asks players to reduce their usage when the total gets
+ * close to a global budget. Each player records what it allocates against
+ * its own account, so usage can be attributed to individual media.
+ * <p>
+ * Decoded frames and audio sample buffers are counted exactly. Memory
+ * held inside containers and decoders is estimated, since Xuggler doesn't
+ * report it: video decoders from their picture size, and containers and
+ * audio decoders from the typical size of their buffers. Decoded audio
+ * waiting to be played is held on the Java heap, and is not counted.
+ * <p>
+ * The accountant is published through JMX under the name
+ * <code>org.jdesktop.wonderland.video:type=NativeMemory</code>. The
+ * default budget can be set with the
+ * <code>org.jdesktop.wonderland.video.memoryBudget</code> system property,
+ * in bytes.
+ *
+ * @author agent <agent@local>
+ */
+public class NativeMemoryAccountant implements NativeMemoryMXBean {
+    private static final Logger LOGGER =
+            Logger.getLogger(NativeMemoryAccountant.class.getName());
+
+    private static final String OBJECT_NAME =
+            "org.jdesktop.wonderland.video:type=NativeMemory";
+
+    // the default budget, in bytes
+    private static final long DEFAULT_BUDGET =
+            Long.getLong("org.jdesktop.wonderland.video.memoryBudget",
+                         256 * 1024 * 1024);
+
+    // fraction of the budget at which pressure becomes high
+    private static final double HIGH_WATER = 0.75;
+
+    // fraction of the budget usage must fall below the threshold for the
+    // current level before pressure is reduced. This keeps players from
+    // switching back and forth when shrinking frees memory.
+    private static final double HYSTERESIS = 0.1;
+
+    private static final NativeMemoryAccountant INSTANCE =
+            new NativeMemoryAccountant();
+
+    static {
+        INSTANCE.register();
+    }
+
+    /**
+     * How much memory players should try to use
+     */
+    public enum Pressure {
+        /** usage is well within the budget */
+        NORMAL,
+        /** usage is approaching the budget: reduce caching */
+        HIGH,
+        /** usage is over the budget: use as little as possible */
+        CRITICAL
+    }
+
+    /**
+     * The kinds of memory attributed to an account
+     */
+    public enum Usage {
+        /** decoded video frames */
+        FRAMES,
+        /** containers and decoders, including their internal buffers */
+        CODECS,
+        /** decoded audio samples, while a packet is being decoded */
+        SAMPLES
+    }
+
+    /**
+     * Notified when memory pressure changes
+     */
+    public interface PressureListener {
+        /**
+         * Called when memory pressure changes. This may be called on any
+         * thread that allocates or frees memory, so listeners should not
+         * block. Notifications are sent outside the accountant's lock, so
+         * they may arrive out of order when several threads change the
+         * pressure at once. Listeners that keep the level should read
+         * <code>getCurrentPressure()</code> rather than trusting the
+         * argument.
+         * @param pressure the pressure when it changed
+         */
+        public void pressureChanged(Pressure pressure);
+    }
+
+    private final List<Account> accounts = new CopyOnWriteArrayList<Account>();
+    private final AtomicLong used = new AtomicLong();
+
+    private long budget = DEFAULT_BUDGET;
+    private Pressure pressure = Pressure.NORMAL;
+
+    /**
+     * Get the accountant for this process
+     * @return the accountant
+     */
+    public static NativeMemoryAccountant getInstance() {
+        return INSTANCE;
+    }
+
+    NativeMemoryAccountant() {
+    }
+
+    /**
+     * Create an account to record memory used by a player against
+     * @param name the name to report usage under, typically the media URI
+     * @param listener a listener to notify of pressure changes, or null
+     * @return the new account
+     */
+    public Account createAccount(String name, PressureListener listener) {
+        Account out = new Account(name, listener);
+        accounts.add(out);
+        return out;
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(long budget) {
+        synchronized (this) {
+            this.budget = budget;
+        }
+
+        updatePressure();
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * Get the current pressure level
+     * @return the pressure
+     */
+    public synchronized Pressure getCurrentPressure() {
+        return pressure;
+    }
+
+    public String getPressure() {
+        return getCurrentPressure().name();
+    }
+
+    public Map<String, Long> getUsageByMedia() {
+        Map<String, Long> out = new HashMap<String, Long>();
+        for (Account account : accounts) {
+            Long cur = out.get(account.getName());
+            long total = account.getUsed() + ((cur == null) ? 0 : cur);
+            out.put(account.getName(), total);
+        }
+
+        return out;
+    }
+
+    public long getPinnedObjects() {
+        try {
+            return JNIMemoryManager.getMgr().getNumPinnedObjects();
+        } catch (LinkageError le) {
+            return -1;
+        }
+    }
+
+    public String getMemoryModel() {
+        try {
+            return JNIMemoryManager.getMemoryModel().name();
+        } catch (LinkageError le) {
+            return null;
+        }
+    }
+
+    public void collect() {
+        try {
+            JNIMemoryManager.collect();
+        } catch (LinkageError le) {
+            LOGGER.log(Level.FINE, "Unable to collect native memory", le);
+        }
+    }
+
+    /**
+     * Record a change in usage, and notify listeners if the pressure
+     * level changes as a result
+     * @param delta the change in bytes
+     */
+    private void update(long delta) {
+        used.addAndGet(delta);
+        updatePressure();
+    }
+
+    private void updatePressure() {
+        Pressure newPressure;
+        synchronized (this) {
+            newPressure = calculatePressure(used.get());
+            if (newPressure == pressure) {
+                return;
+            }
+
+            pressure = newPressure;
+        }
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Native memory pressure " + newPressure + ": " +
+                        used.get() + " of " + getBudget() + " bytes used");
+        }
+
+        // free anything Xuggler is holding for objects that have already
+        // been garbage collected
+        if (newPressure == Pressure.CRITICAL) {
+            collect();
+        }
+
+        // notify outside the lock, since listeners may free memory. Another
+        // thread may change the pressure again before this loop runs, so
+        // listeners re-read the current level
+        for (Account account : accounts) {
+            account.notifyPressure(newPressure);
+        }
+    }
+
+    /**
+     * Calculate the pressure for a given usage, taking the current level
+     * into account
+     * @param usage the current usage
+     * @return the new pressure
+     */
+    private synchronized Pressure calculatePressure(long usage) {
+        long high = (long) (budget * HIGH_WATER);
+        long margin = (long) (budget * HYSTERESIS);
+
+        if (usage >= budget) {
+            return Pressure.CRITICAL;
+        } else if (pressure == Pressure.CRITICAL && usage >= budget - margin) {
+            return Pressure.CRITICAL;
+        } else if (usage >= high) {
+            return Pressure.HIGH;
+        } else if (pressure != Pressure.NORMAL && usage >= high - margin) {
+            return Pressure.HIGH;
+        }
+
+        return Pressure.NORMAL;
+    }
+
+    /**
+     * Register with the platform MBean server
+     */
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName(OBJECT_NAME));
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Unable to register " + OBJECT_NAME,
+                       jme);
+        }
+    }
+
+    /**
+     * The memory used by a single player. Memory freed after the account
+     * is closed is still removed from the global total, so frames that
+     * outlive their player are accounted for correctly.
+     */
+    public class Account {
+        private final String name;
+        private final PressureListener listener;
+        private final AtomicLong[] usage = new AtomicLong[Usage.values().length];
+
+        Account(String name, PressureListener listener) {
+            this.name = name;
+            this.listener = listener;
+
+            for (int i = 0; i < usage.length; i++) {
+                usage[i] = new AtomicLong();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Record memory allocated by this player
+         * @param type the kind of memory
+         * @param bytes the number of bytes allocated
+         */
+        public void allocate(Usage type, long bytes) {
+            usage[type.ordinal()].addAndGet(bytes);
+            update(bytes);
+        }
+
+        /**
+         * Record memory freed by this player
+         * @param type the kind of memory
+         * @param bytes the number of bytes freed
+         */
+        public void free(Usage type, long bytes) {
+            usage[type.ordinal()].addAndGet(-bytes);
+            update(-bytes);
+        }
+
+        /**
+         * Get the memory of the given type used by this player
+         * @param type the kind of memory
+         * @return the bytes used
+         */
+        public long getUsed(Usage type) {
+            return usage[type.ordinal()].get();
+        }
+
+        /**
+         * Get the total memory used by this player
+         * @return the bytes used
+         */
+        public long getUsed() {
+            long out = 0;
+            for (AtomicLong cur : usage) {
+                out += cur.get();
+            }
+
+            return out;
+        }
+
+        /**
+         * Stop reporting this account or notifying its listener
+         */
+        public void close() {
+            accounts.remove(this);
+        }
+
+        private void notifyPressure(Pressure pressure) {
+            if (listener != null) {
+                listener.pressureChanged(pressure);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.Map;
+
+/**
+ * Management interface for the native memory used by all video players
+ * in the process. All sizes are in bytes.
+ *
+ * @author agent <agent@local>
+ */
+public interface NativeMemoryMXBean {
+    /**
+     * Get the amount of native memory all players may use before they
+     * are asked to reduce their usage
+     * @return the budget
+     */
+    public long getBudget();
+
+    /**
+     * Set the native memory budget
+     * @param budget the new budget
+     */
+    public void setBudget(long budget);
+
+    /**
+     * Get the amount of native memory currently attributed to players
+     * @return the memory in use
+     */
+    public long getUsed();
+
+    /**
+     * Get the current memory pressure
+     * @return the name of the pressure level
+     */
+    public String getPressure();
+
+    /**
+     * Get the memory attributed to each open player, by media URI
+     * @return a map from media to bytes used
+     */
+    public Map<String, Long> getUsageByMedia();
+
+    /**
+     * Get the number of native objects Xuggler is currently tracking
+     * @return the number of pinned objects, or -1 if not available
+     */
+    public long getPinnedObjects();
+
+    /**
+     * Get the memory model Xuggler uses to allocate native buffers
+     * @return the name of the memory model, or null if not available
+     */
+    public String getMemoryModel();
+
+    /**
+     * Ask Xuggler to free native objects whose Java references have been
+     * garbage collected
+     */
+    public void collect();
+}
@@ -0,0 +1,224 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * An audio sink that discards audio, for machines with no audio device.
+ * The sink still behaves like a line with a fixed size buffer, so it can
+ * be used as the playback clock. There are two ways to clock it:
+ * <ul>
+ * <li>In realtime mode, buffered data is played at the sample rate using
+ * the system timer, so playback runs at normal speed.
+ * <li>In virtual mode, time only advances when data is written. Writes
+ * never block: when the buffer is full, the clock jumps forward just far
+ * enough to make room. Playback runs as fast as audio can be decoded,
+ * and the clock depends only on the data written, not on timing.
+ * </ul>
+ *
+ * @author agent <agent@local>
+ */
+public class NullAudioSink implements AudioSink {
+    // the default buffer size, in microseconds
+    private static final long DEFAULT_BUFFER_TIME = 500000;
+
+    private final boolean realtime;
+    private final long bufferTime;
+
+    private AudioFormat format;
+    private int frameSize;
+    private long bufferFrames;
+
+    private boolean started = false;
+    private boolean closed = false;
+
+    // the number of frames written and played
+    private long writtenFrames;
+    private long playedFrames;
+
+    // in realtime mode, the system time up to which playedFrames is
+    // accurate
+    private long lastUpdate;
+
+    /**
+     * Create a realtime sink with the default buffer size
+     */
+    public NullAudioSink() {
+        this(true);
+    }
+
+    /**
+     * Create a sink with the default buffer size
+     * @param realtime true to play at normal speed, or false to use a
+     * virtual clock
+     */
+    public NullAudioSink(boolean realtime) {
+        this(realtime, DEFAULT_BUFFER_TIME);
+    }
+
+    /**
+     * Create a sink
+     * @param realtime true to play at normal speed, or false to use a
+     * virtual clock
+     * @param bufferTime the size of the buffer, in microseconds
+     */
+    public NullAudioSink(boolean realtime, long bufferTime) {
+        this.realtime = realtime;
+        this.bufferTime = bufferTime;
+    }
+
+    /**
+     * Determine if this sink plays in realtime
+     * @return true for realtime, or false for a virtual clock
+     */
+    public boolean isRealtime() {
+        return realtime;
+    }
+
+    public AudioFormat chooseFormat(AudioFormat coderFormat, boolean resample) {
+        // any PCM format works
+        return coderFormat;
+    }
+
+    public synchronized void open(AudioFormat format)
+            throws LineUnavailableException
+    {
+        this.format = format;
+        this.frameSize = format.getFrameSize();
+        this.bufferFrames = Math.max(1, (long) (format.getSampleRate() *
+                                                bufferTime / 1000000));
+    }
+
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    public synchronized int getBufferSize() {
+        return (int) (bufferFrames * frameSize);
+    }
+
+    public synchronized void start() {
+        started = true;
+        lastUpdate = nanoTime();
+    }
+
+    public synchronized int write(byte[] data, int offset, int length) {
+        long frames = length / frameSize;
+        long remaining = frames;
+
+        while (remaining > 0 && !closed) {
+            long chunk = Math.min(remaining, bufferFrames);
+            update();
+
+            long excess = (writtenFrames + chunk - playedFrames) - bufferFrames;
+            if (excess > 0) {
+                if (!realtime || !started) {
+                    // make room immediately
+                    playedFrames += excess;
+                } else {
+                    // wait for the buffer to drain
+                    long nanos = (long) (excess * 1000000000.0 /
+                                         format.getSampleRate());
+                    try {
+                        waitForSpace(nanos);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+
+                    continue;
+                }
+            }
+
+            writtenFrames += chunk;
+            remaining -= chunk;
+        }
+
+        return (int) ((frames - remaining) * frameSize);
+    }
+
+    public synchronized long getLongFramePosition() {
+        update();
+        return playedFrames;
+    }
+
+    public synchronized long getMicrosecondPosition() {
+        update();
+        return (long) (playedFrames * 1000000 / format.getSampleRate());
+    }
+
+    public synchronized void flush() {
+        update();
+        writtenFrames = playedFrames;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Get the current time in realtime mode. Subclasses can override this
+     * to run the sink from a different clock.
+     * @return the current time, in nanoseconds
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Wait for buffered data to play in realtime mode. This is called
+     * with the sink locked, and should return early if the sink is closed.
+     * Subclasses that override <code>nanoTime()</code> should override
+     * this to wait on the same clock.
+     * @param nanos the time to wait, in nanoseconds
+     * @throws InterruptedException if the thread is interrupted
+     */
+    protected void waitForSpace(long nanos) throws InterruptedException {
+        wait(Math.max(1, nanos / 1000000));
+    }
+
+    /**
+     * In realtime mode, advance the play position based on the time since
+     * the last update
+     */
+    private void update() {
+        if (!realtime || !started) {
+            return;
+        }
+
+        long now = nanoTime();
+        long frames = (long) ((now - lastUpdate) * format.getSampleRate() /
+                              1000000000.0);
+
+        if (playedFrames + frames >= writtenFrames) {
+            // the buffer ran dry, so the position stops at the end of the
+            // data, like a real line
+            playedFrames = writtenFrames;
+            lastUpdate = now;
+        } else if (frames > 0) {
+            playedFrames += frames;
+
+            // keep the remainder for next time
+            lastUpdate += (long) (frames * 1000000000.0 /
+                                  format.getSampleRate());
+        }
+    }
+}
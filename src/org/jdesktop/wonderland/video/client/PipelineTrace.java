@@ -0,0 +1,226 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Timing events for each stage of the playback pipeline. Each event
+ * records the stage, the stream it applies to, the PTS of the data
+ * involved and when the stage started and how long it took. Events are
+ * sent to a pluggable recorder. When no recorder is set, tracing costs a
+ * single volatile read per event.
+ * <p>
+ * To trace a stage:
+ * <pre>
+ *     long start = PipelineTrace.begin();
+ *     ... do the work ...
+ *     PipelineTrace.end(Stage.DECODE_VIDEO, streamId, pts, start);
+ * </pre>
+ *
+ * @author agent <agent@local>
+ */
+public class PipelineTrace {
+    /** value to use when the stream or PTS of an event is unknown */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * The stages of the pipeline
+     */
+    public enum Stage {
+        /** read a packet from the container */
+        READ_PACKET,
+        /** decode a video packet */
+        DECODE_VIDEO,
+        /** decode an audio packet */
+        DECODE_AUDIO,
+        /** put a decoded frame in the frame queue, waiting for space */
+        FRAME_QUEUE_PUT,
+        /** write audio to the output line, waiting for space */
+        AUDIO_WRITE,
+        /** seek the container */
+        SEEK,
+        /** open media */
+        OPEN,
+        /** clear the player queues */
+        CLEAR
+    }
+
+    // the current recorder, or null if tracing is disabled
+    private static volatile TraceRecorderSPI recorder = null;
+
+    /**
+     * Set the recorder to send events to
+     * @param recorder the recorder, or null to disable tracing
+     */
+    public static void setRecorder(TraceRecorderSPI recorder) {
+        PipelineTrace.recorder = recorder;
+    }
+
+    /**
+     * Get the recorder events are sent to
+     * @return the current recorder, or null if tracing is disabled
+     */
+    public static TraceRecorderSPI getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Determine if tracing is enabled
+     * @return true if there is a recorder
+     */
+    public static boolean isEnabled() {
+        return recorder != null;
+    }
+
+    /**
+     * Mark the start of a stage
+     * @return the start time to pass to <code>end()</code>, or 0 if
+     * tracing is disabled
+     */
+    public static long begin() {
+        if (recorder == null) {
+            return 0;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a stage, and record an event for it
+     * @param stage the stage that ended
+     * @param streamId the stream the stage applied to, or UNKNOWN
+     * @param pts the PTS of the data, in microseconds, or UNKNOWN
+     * @param start the value returned by <code>begin()</code>
+     */
+    public static void end(Stage stage, int streamId, long pts, long start) {
+        TraceRecorderSPI cur = recorder;
+        if (cur == null || start == 0) {
+            return;
+        }
+
+        cur.record(stage, streamId, pts, start, System.nanoTime() - start);
+    }
+
+    /**
+     * Receives pipeline events. Recorders are called on the pipeline
+     * threads, so they must be thread safe and should return quickly.
+     */
+    public interface TraceRecorderSPI {
+        /**
+         * Record a single event
+         * @param stage the stage
+         * @param streamId the stream id, or UNKNOWN
+         * @param pts the PTS in microseconds, or UNKNOWN
+         * @param startNanos the start time, from System.nanoTime()
+         * @param durationNanos the duration in nanoseconds
+         */
+        public void record(Stage stage, int streamId, long pts,
+                           long startNanos, long durationNanos);
+    }
+
+    /**
+     * A recorder that keeps the most recent events in a fixed size ring
+     * buffer, and can write them out as a CSV timeline.
+     */
+    public static class TimelineRecorder implements TraceRecorderSPI {
+        private final Stage[] stages;
+        private final int[] streamIds;
+        private final long[] pts;
+        private final long[] starts;
+        private final long[] durations;
+        private final String[] threads;
+
+        private int next;
+        private long count;
+
+        /**
+         * Create a recorder that remembers the given number of events
+         * @param capacity the number of events to remember
+         */
+        public TimelineRecorder(int capacity) {
+            stages = new Stage[capacity];
+            streamIds = new int[capacity];
+            pts = new long[capacity];
+            starts = new long[capacity];
+            durations = new long[capacity];
+            threads = new String[capacity];
+        }
+
+        public synchronized void record(Stage stage, int streamId, long pts,
+                                        long startNanos, long durationNanos)
+        {
+            stages[next] = stage;
+            streamIds[next] = streamId;
+            this.pts[next] = pts;
+            starts[next] = startNanos;
+            durations[next] = durationNanos;
+            threads[next] = Thread.currentThread().getName();
+
+            next = (next + 1) % stages.length;
+            count++;
+        }
+
+        /**
+         * Get the total number of events recorded, including those that
+         * are no longer in the buffer
+         * @return the number of events recorded
+         */
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * Remove all events
+         */
+        public synchronized void clear() {
+            next = 0;
+            count = 0;
+        }
+
+        /**
+         * Write the events in the buffer, oldest first, as comma separated
+         * values. Start times are in microseconds relative to the first
+         * event written.
+         * @param out the writer to write to
+         * @throws IOException if there is an error writing
+         */
+        public synchronized void writeCSV(Writer out) throws IOException {
+            PrintWriter pw = new PrintWriter(out);
+            pw.println("start_us,duration_us,stage,stream,pts_us,thread");
+
+            int size = (int) Math.min(count, stages.length);
+            int first = (count > stages.length) ? next : 0;
+            long base = (size > 0) ? starts[first] : 0;
+
+            for (int i = 0; i < size; i++) {
+                int idx = (first + i) % stages.length;
+                pw.printf("%d,%d,%s,%d,%d,%s%n", (starts[idx] - base) / 1000,
+                          durations[idx] / 1000, stages[idx], streamIds[idx],
+                          pts[idx], threads[idx]);
+            }
+
+            pw.flush();
+            if (pw.checkError()) {
+                throw new IOException("Error writing timeline");
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jdesktop.wonderland.video.client.Histogram.Snapshot;
+
+/**
+ * Live playback statistics for a video player. The player and queue filler
+ * record events as they happen, and the statistics are published through
+ * JMX under the name
+ * <code>org.jdesktop.wonderland.video:type=PlaybackStats,id=&lt;n&gt;</code>
+ * while media is open. Recording is cheap enough to leave on all the time.
+ *
+ * @author agent <agent@local>
+ */
+public class PlaybackStats implements PlaybackStatsMXBean {
+    private static final Logger LOGGER =
+            Logger.getLogger(PlaybackStats.class.getName());
+
+    // the JMX domain for all players
+    private static final String DOMAIN = "org.jdesktop.wonderland.video";
+
+    // used to give each player a unique name
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final VideoPlayerImpl player;
+    private final ObjectName name;
+    private boolean registered = false;
+
+    private final Histogram packetReadTime = new Histogram();
+    private final Histogram videoDecodeTime = new Histogram();
+    private final Histogram audioDecodeTime = new Histogram();
+    private final Histogram drift = new Histogram();
+    private final Histogram seekLatency = new Histogram();
+    private final Histogram openLatency = new Histogram();
+
+    private final AtomicLong displayedFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    private final AtomicLong notDueFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong duplicateFrames = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+
+    private volatile long lastDrift;
+
+    // the start time of the seek in progress, or 0 if there is none
+    private final AtomicLong seekStart = new AtomicLong();
+
+    /**
+     * Create statistics for the given player
+     * @param player the player to collect statistics for, or null to only
+     * record counters, for example in a benchmark. Attributes that read
+     * the player's state can't be used without a player.
+     */
+    PlaybackStats(VideoPlayerImpl player) {
+        this.player = player;
+
+        ObjectName on = null;
+        try {
+            on = new ObjectName(DOMAIN + ":type=PlaybackStats,id=" +
+                                NEXT_ID.getAndIncrement());
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Unable to create stats name", jme);
+        }
+        this.name = on;
+    }
+
+    /**
+     * Get the name this object is registered with
+     * @return the JMX object name
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    /**
+     * Register with the platform MBean server, if not already registered
+     */
+    synchronized void register() {
+        if (registered || name == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, name);
+            registered = true;
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Unable to register " + name, jme);
+        }
+    }
+
+    /**
+     * Unregister from the platform MBean server, if registered
+     */
+    synchronized void unregister() {
+        if (!registered) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Unable to unregister " + name, jme);
+        }
+
+        registered = false;
+    }
+
+    /**
+     * Record the time taken to read a packet from the container
+     * @param micros the read time in microseconds
+     */
+    public void packetRead(long micros) {
+        packetReadTime.record(micros);
+    }
+
+    /**
+     * Record the time taken to decode a video packet
+     * @param micros the decode time in microseconds
+     */
+    public void videoDecoded(long micros) {
+        videoDecodeTime.record(micros);
+    }
+
+    /**
+     * Record the time taken to decode an audio packet
+     * @param micros the decode time in microseconds
+     */
+    public void audioDecoded(long micros) {
+        audioDecodeTime.record(micros);
+    }
+
+    /**
+     * Record a frame being displayed
+     * @param drift the difference between the frame time and the clock,
+     * in microseconds
+     */
+    void frameDisplayed(long drift) {
+        displayedFrames.incrementAndGet();
+        this.drift.record(Math.abs(drift));
+        lastDrift = drift;
+    }
+
+    /**
+     * Record a frame discarded because the clock had passed it
+     */
+    void frameSkipped() {
+        skippedFrames.incrementAndGet();
+    }
+
+    /**
+     * Record a request for a frame when a frame was queued, but was not
+     * yet due
+     */
+    void frameNotDue() {
+        notDueFrames.incrementAndGet();
+    }
+
+    /**
+     * Record a frame returned for display that was the same as the frame
+     * before it
+     */
+    void frameDuplicate() {
+        duplicateFrames.incrementAndGet();
+    }
+
+    /**
+     * Record frames thrown away without being considered for display
+     * @param count the number of frames
+     */
+    void framesDropped(int count) {
+        droppedFrames.addAndGet(count);
+    }
+
+    /**
+     * Record an audio underrun
+     */
+    void underrun() {
+        underruns.incrementAndGet();
+    }
+
+    /**
+     * Record the start of a seek
+     */
+    void seekStarted() {
+        seekStart.set(System.nanoTime());
+    }
+
+    /**
+     * Record that a frame has arrived, completing any seek in progress
+     */
+    void frameArrived() {
+        long start = seekStart.getAndSet(0);
+        if (start != 0) {
+            seekLatency.record((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    /**
+     * Record the time taken to open media
+     * @param micros the open time in microseconds
+     */
+    void opened(long micros) {
+        openLatency.record(micros);
+    }
+
+    public String getMedia() {
+        return player.getMedia();
+    }
+
+    public String getState() {
+        return player.getState().name();
+    }
+
+    public int getFrameQueueDepth() {
+        return player.getFrameQueueDepth();
+    }
+
+    public long getAudioQueueDepth() {
+        return player.getAudioQueueDepth();
+    }
+
+    public long getAudioTargetDepth() {
+        return player.getAudioTargetDepth();
+    }
+
+    public long getAudioJitter() {
+        return player.getAudioJitter();
+    }
+
+    public long getDisplayedFrames() {
+        return displayedFrames.get();
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames.get();
+    }
+
+    public long getNotDueFrames() {
+        return notDueFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getDuplicateFrames() {
+        return duplicateFrames.get();
+    }
+
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    public Snapshot getDrift() {
+        return drift.getSnapshot();
+    }
+
+    public Snapshot getPacketReadTime() {
+        return packetReadTime.getSnapshot();
+    }
+
+    public Snapshot getVideoDecodeTime() {
+        return videoDecodeTime.getSnapshot();
+    }
+
+    public Snapshot getAudioDecodeTime() {
+        return audioDecodeTime.getSnapshot();
+    }
+
+    public Snapshot getSeekLatency() {
+        return seekLatency.getSnapshot();
+    }
+
+    public Snapshot getOpenLatency() {
+        return openLatency.getSnapshot();
+    }
+
+    public void reset() {
+        packetReadTime.reset();
+        videoDecodeTime.reset();
+        audioDecodeTime.reset();
+        drift.reset();
+        seekLatency.reset();
+        openLatency.reset();
+
+        displayedFrames.set(0);
+        skippedFrames.set(0);
+        notDueFrames.set(0);
+        droppedFrames.set(0);
+        duplicateFrames.set(0);
+        underruns.set(0);
+        lastDrift = 0;
+    }
+}
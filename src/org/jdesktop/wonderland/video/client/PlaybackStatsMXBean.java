@@ -0,0 +1,158 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import org.jdesktop.wonderland.video.client.Histogram.Snapshot;
+
+/**
+ * Management interface for the playback statistics of a single video
+ * player. All times are in microseconds. Histograms are reported as
+ * composite data with count, mean, p50, p90, p99 and max values.
+ *
+ * @author agent <agent@local>
+ */
+public interface PlaybackStatsMXBean {
+    /**
+     * Get the URI of the media currently open in the player
+     * @return the media URI, or null if no media is open
+     */
+    public String getMedia();
+
+    /**
+     * Get the current state of the player
+     * @return the name of the current state
+     */
+    public String getState();
+
+    /**
+     * Get the number of decoded frames waiting to be displayed
+     * @return the frame queue depth
+     */
+    public int getFrameQueueDepth();
+
+    /**
+     * Get the amount of decoded audio waiting to be written to the line
+     * @return the audio queue depth in microseconds
+     */
+    public long getAudioQueueDepth();
+
+    /**
+     * Get the amount of audio the player is currently trying to keep
+     * buffered ahead of the line
+     * @return the target depth in microseconds
+     */
+    public long getAudioTargetDepth();
+
+    /**
+     * Get the current estimate of audio arrival jitter
+     * @return the jitter in microseconds
+     */
+    public long getAudioJitter();
+
+    /**
+     * Get the number of frames that were displayed
+     * @return the number of frames displayed
+     */
+    public long getDisplayedFrames();
+
+    /**
+     * Get the number of frames discarded because the clock had already
+     * passed them by the time they were considered for display
+     * @return the number of skipped frames
+     */
+    public long getSkippedFrames();
+
+    /**
+     * Get the number of times a frame was requested while the next
+     * queued frame was not yet due. Requests made while the queue was
+     * empty are not counted.
+     * @return the number of requests with no frame due
+     */
+    public long getNotDueFrames();
+
+    /**
+     * Get the number of decoded frames thrown away without being
+     * considered for display, for example by a seek or stop
+     * @return the number of dropped frames
+     */
+    public long getDroppedFrames();
+
+    /**
+     * Get the number of displayed frames that were identical to the
+     * frame displayed before them
+     * @return the number of duplicate frames
+     */
+    public long getDuplicateFrames();
+
+    /**
+     * Get the number of times the audio line ran out of data
+     * @return the number of underruns
+     */
+    public long getUnderruns();
+
+    /**
+     * Get the difference between the time of the most recently displayed
+     * frame and the audio clock. Positive values mean video is ahead.
+     * @return the most recent drift in microseconds
+     */
+    public long getLastDrift();
+
+    /**
+     * Get the distribution of the absolute difference between displayed
+     * frames and the audio clock
+     * @return the drift histogram
+     */
+    public Snapshot getDrift();
+
+    /**
+     * Get the distribution of time spent reading packets from the container
+     * @return the packet read time histogram
+     */
+    public Snapshot getPacketReadTime();
+
+    /**
+     * Get the distribution of time spent decoding each video packet
+     * @return the video decode time histogram
+     */
+    public Snapshot getVideoDecodeTime();
+
+    /**
+     * Get the distribution of time spent decoding each audio packet
+     * @return the audio decode time histogram
+     */
+    public Snapshot getAudioDecodeTime();
+
+    /**
+     * Get the distribution of time from a seek request until the first
+     * frame at the new position is available
+     * @return the seek latency histogram
+     */
+    public Snapshot getSeekLatency();
+
+    /**
+     * Get the distribution of time from opening media until it is ready
+     * to play
+     * @return the open latency histogram
+     */
+    public Snapshot getOpenLatency();
+
+    /**
+     * Reset all counters and histograms
+     */
+    public void reset();
+}
@@ -0,0 +1,143 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tears down players in the background, so closing or switching media
+ * returns right away. Stopping the threads of a player and closing its
+ * lines can take seconds, and is done here instead of on the caller's
+ * thread. Each teardown runs on its own thread, so one that is stuck
+ * doesn't hold up the others.
+ *
+ * @author agent <agent@local>
+ */
+class Reaper {
+    private static final Logger LOGGER =
+            Logger.getLogger(Reaper.class.getName());
+
+    // how long idle reaper threads wait before exiting, in seconds
+    private static final long IDLE_TIMEOUT = 30;
+
+    private static final Reaper INSTANCE = new Reaper();
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Get the reaper
+     * @return the reaper
+     */
+    public static Reaper getInstance() {
+        return INSTANCE;
+    }
+
+    private Reaper() {
+        executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_TIMEOUT,
+                TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread out = new Thread(r, "Video Reaper " +
+                                           count.incrementAndGet());
+                out.setDaemon(true);
+                return out;
+            }
+        });
+    }
+
+    /**
+     * Run a teardown in the background
+     * @param name a description of what is being torn down, for logging
+     * @param teardown the teardown to run
+     * @return a future that completes when the teardown is done
+     */
+    public Future<Void> reap(final String name, final Runnable teardown) {
+        FutureTask<Void> out = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+
+                try {
+                    teardown.run();
+                } catch (RuntimeException re) {
+                    LOGGER.log(Level.WARNING, "Error closing " + name, re);
+                }
+
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Closed " + name + " in " +
+                                ((System.nanoTime() - start) / 1000000) +
+                                " ms");
+                }
+            }
+        }, null);
+
+        executor.execute(out);
+        return out;
+    }
+
+    /**
+     * Get a future that completes when all the given futures have
+     * completed, successfully or not
+     * @param name a description of what is being torn down, for logging
+     * @param futures the futures to wait for
+     * @return a future that completes when all the futures are done
+     */
+    public Future<Void> reapAll(String name, final Future<?>... futures) {
+        return reap(name, new Runnable() {
+            public void run() {
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (CancellationException ce) {
+                        // nothing left to wait for
+                    } catch (ExecutionException ee) {
+                        // reported by whoever ran it
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Get a future that has already completed
+     * @return a completed future
+     */
+    public static Future<Void> done() {
+        FutureTask<Void> out = new FutureTask<Void>(new Runnable() {
+            public void run() {
+            }
+        }, null);
+
+        out.run();
+        return out;
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IVideoPicture;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+
+/**
+ * Small preview images of a piece of media at regular intervals, for
+ * showing while the user drags or hovers over a timeline. The previews
+ * are built once in the background, by reading the media from start to
+ * end and decoding the first key frame after each interval. Nothing else
+ * is decoded, and the player's decoder is not used.
+ * <p>
+ * Finished previews are cached on disk as sprite sheets, grids of
+ * previews in a single JPEG image, so the media is only read the first
+ * time. Looking up a preview is a single map lookup, and returns the
+ * latest preview at or before the requested time.
+ *
+ * @author agent <agent@local>
+ */
+public class ScrubPreviewCache {
+    private static final Logger LOGGER =
+            Logger.getLogger(ScrubPreviewCache.class.getName());
+
+    // the default time between previews, in seconds
+    private static final double DEFAULT_INTERVAL = 2.0;
+
+    // the default largest size of a preview
+    private static final Dimension DEFAULT_SPRITE_SIZE = new Dimension(160, 90);
+
+    // the most previews to keep for one piece of media. For long media,
+    // the interval is stretched to stay under this.
+    private static final int MAX_SPRITES = 500;
+
+    // the number of previews across and down each sprite sheet
+    private static final int SHEET_COLUMNS = 10;
+    private static final int SHEET_ROWS = 10;
+
+    private static final String SHEET_FORMAT = "jpg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final String uri;
+    private final double interval;
+    private final Dimension spriteSize;
+    private final File cacheDir;
+    private final String key;
+
+    // previews by time in microseconds
+    private final ConcurrentSkipListMap<Long, BufferedImage> sprites =
+            new ConcurrentSkipListMap<Long, BufferedImage>();
+
+    private Thread builder;
+    private volatile boolean complete;
+    private volatile boolean disposed;
+
+    /**
+     * Create a cache of previews at the default interval and size
+     * @param uri the URI of the media
+     */
+    public ScrubPreviewCache(String uri) {
+        this(uri, DEFAULT_INTERVAL, DEFAULT_SPRITE_SIZE,
+             new File(ThumbnailService.getDefaultCacheDir(), "scrub"));
+    }
+
+    /**
+     * Create a cache of previews
+     * @param uri the URI of the media
+     * @param interval the time between previews, in seconds
+     * @param spriteSize the largest size of a preview
+     * @param cacheDir the directory to cache previews in, or null not to
+     * cache them on disk
+     */
+    public ScrubPreviewCache(String uri, double interval,
+                             Dimension spriteSize, File cacheDir)
+    {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Bad interval: " + interval);
+        }
+
+        this.uri = uri;
+        this.interval = interval;
+        this.spriteSize = new Dimension(spriteSize);
+        this.cacheDir = cacheDir;
+        this.key = ThumbnailService.digest(uri + "@" + interval + "@" +
+                                           spriteSize.width + "x" +
+                                           spriteSize.height);
+    }
+
+    public String getMedia() {
+        return uri;
+    }
+
+    /**
+     * Start loading or building the previews in the background. Previews
+     * are available from <code>getPreview()</code> as soon as each one
+     * is built.
+     */
+    public synchronized void start() {
+        if (builder != null || disposed) {
+            return;
+        }
+
+        builder = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    if (!load()) {
+                        build();
+                    }
+                } catch (IOException ioe) {
+                    LOGGER.log(Level.WARNING, "Unable to build previews of " +
+                               uri, ioe);
+                }
+            }
+        }, "Scrub Preview Builder");
+        builder.setDaemon(true);
+        builder.setPriority(Thread.MIN_PRIORITY);
+        builder.start();
+    }
+
+    /**
+     * Stop building previews, and free the ones already built
+     */
+    public synchronized void dispose() {
+        disposed = true;
+
+        if (builder != null) {
+            builder.interrupt();
+        }
+
+        sprites.clear();
+    }
+
+    /**
+     * Get the preview for a time. This never blocks or decodes.
+     * @param time the time, in seconds
+     * @return the latest preview at or before the time, or null if it
+     * hasn't been built yet
+     */
+    public BufferedImage getPreview(double time) {
+        Map.Entry<Long, BufferedImage> entry =
+                sprites.floorEntry((long) (time * 1000000));
+        return (entry == null) ? null : entry.getValue();
+    }
+
+    /**
+     * Find out if all the previews have been built
+     * @return true if the previews are complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getPreviewCount() {
+        return sprites.size();
+    }
+
+    /**
+     * Create the queue filler used to prepare and open media. Override
+     * this to use the same content handling as the players.
+     * @return a queue filler. Only its methods for opening media are used.
+     */
+    protected VideoQueueFiller createQueueFiller() {
+        return new VideoQueueFiller(null);
+    }
+
+    private boolean isStopped() {
+        return disposed || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Build the previews by reading the media, and cache them on disk
+     */
+    private void build() throws IOException {
+        long start = System.nanoTime();
+        KeyFrameReader reader = new KeyFrameReader(createQueueFiller(), uri);
+
+        try {
+            // stretch the interval for long media, so the previews don't
+            // take up too much memory
+            long step = (long) (interval * 1000000);
+            long duration = reader.getDuration();
+            if (duration > 0) {
+                step = Math.max(step, duration / MAX_SPRITES);
+            }
+
+            long next = 0;
+            while (!isStopped() && sprites.size() < MAX_SPRITES) {
+                IVideoPicture picture = reader.nextKeyFrame(next,
+                                                            Integer.MAX_VALUE);
+                if (picture == null) {
+                    break;
+                }
+
+                try {
+                    long time = Math.max(picture.getTimeStamp(), 0);
+                    sprites.put(time, reader.toImage(picture, spriteSize));
+                    next = time + step;
+                } finally {
+                    picture.delete();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (isStopped()) {
+            return;
+        }
+
+        complete = true;
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Built " + sprites.size() + " previews of " + uri +
+                        " in " + ((System.nanoTime() - start) / 1000000) +
+                        " ms");
+        }
+
+        store();
+    }
+
+    /**
+     * Write the previews to disk as sprite sheets, followed by an index of
+     * the time of each preview. The index is written last, so a cache is
+     * only used if it was written completely.
+     */
+    private void store() {
+        if (cacheDir == null || sprites.isEmpty()) {
+            return;
+        }
+
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            LOGGER.warning("Unable to create preview cache " + cacheDir);
+            return;
+        }
+
+        List<Long> times = new ArrayList<Long>(sprites.keySet());
+        List<BufferedImage> images = new ArrayList<BufferedImage>(sprites.values());
+
+        // all previews of the same media are the same size
+        int width = images.get(0).getWidth();
+        int height = images.get(0).getHeight();
+        int perSheet = SHEET_COLUMNS * SHEET_ROWS;
+
+        try {
+            for (int sheet = 0; sheet * perSheet < images.size(); sheet++) {
+                int count = Math.min(perSheet, images.size() - sheet * perSheet);
+                int rows = (count + SHEET_COLUMNS - 1) / SHEET_COLUMNS;
+                int columns = Math.min(count, SHEET_COLUMNS);
+
+                BufferedImage out = new BufferedImage(columns * width,
+                        rows * height, BufferedImage.TYPE_3BYTE_BGR);
+                Graphics2D g = out.createGraphics();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        g.drawImage(images.get(sheet * perSheet + i),
+                                    (i % SHEET_COLUMNS) * width,
+                                    (i / SHEET_COLUMNS) * height, null);
+                    }
+                } finally {
+                    g.dispose();
+                }
+
+                if (!ImageIO.write(out, SHEET_FORMAT, getSheetFile(sheet))) {
+                    LOGGER.warning("Unable to write preview sheet for " + uri);
+                    return;
+                }
+            }
+
+            PrintWriter index = new PrintWriter(new FileWriter(getIndexFile()));
+            try {
+                index.println(width + " " + height);
+                for (Long time : times) {
+                    index.println(time);
+                }
+            } finally {
+                index.close();
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Unable to cache previews of " + uri,
+                       ioe);
+        }
+    }
+
+    /**
+     * Load previews cached on disk
+     * @return true if the previews were loaded, or false if they need to
+     * be built
+     */
+    private boolean load() {
+        if (cacheDir == null || !getIndexFile().isFile()) {
+            return false;
+        }
+
+        try {
+            BufferedReader index = new BufferedReader(
+                    new FileReader(getIndexFile()));
+            try {
+                String[] size = index.readLine().trim().split(" ");
+                int width = Integer.parseInt(size[0]);
+                int height = Integer.parseInt(size[1]);
+                int perSheet = SHEET_COLUMNS * SHEET_ROWS;
+
+                BufferedImage sheet = null;
+                int i = 0;
+                String line;
+                while ((line = index.readLine()) != null && !isStopped()) {
+                    if (i % perSheet == 0) {
+                        sheet = ImageIO.read(getSheetFile(i / perSheet));
+                        if (sheet == null) {
+                            throw new IOException("Missing preview sheet");
+                        }
+                    }
+
+                    int cell = i % perSheet;
+                    sprites.put(Long.parseLong(line.trim()),
+                                sheet.getSubimage((cell % SHEET_COLUMNS) * width,
+                                                  (cell / SHEET_COLUMNS) * height,
+                                                  width, height));
+                    i++;
+                }
+            } finally {
+                index.close();
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Error reading cached previews", ioe);
+            sprites.clear();
+            return false;
+        } catch (RuntimeException re) {
+            LOGGER.log(Level.WARNING, "Bad cached previews", re);
+            sprites.clear();
+            return false;
+        }
+
+        complete = !isStopped();
+        return true;
+    }
+
+    private File getIndexFile() {
+        return new File(cacheDir, key + INDEX_SUFFIX);
+    }
+
+    private File getSheetFile(int sheet) {
+        return new File(cacheDir, key + "-" + sheet + "." + SHEET_FORMAT);
+    }
+}
@@ -0,0 +1,619 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IPixelFormat;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jdesktop.wonderland.video.client.FrameListener.FrameQueue;
+
+/**
+ * A single decode of a piece of media, shared by several screens showing
+ * it in step. Screens showing the same URI with the same clock name
+ * acquire the same session, so the media is opened and decoded once no
+ * matter how many screens show it. The clock name only groups screens
+ * into sessions; it is not a time source. Screens in a session stay in
+ * step because they share one player, and that player's audio clock.
+ * Screens that need to play independently, for example at different
+ * positions, should use different clock names.
+ * <p>
+ * The session's player controls playback for all screens, and plays the
+ * audio once. Each screen creates a view of the session, optionally
+ * cropped to part of the frame and scaled to its own size, for example
+ * one tile of a video wall. Views are frame sources just like a player:
+ * listeners added to a view see the same calls as listeners of a player,
+ * with the view as the frame queue.
+ *
+ * @author agent <agent@local>
+ */
+public class SharedMediaSession {
+    private static final Logger LOGGER =
+            Logger.getLogger(SharedMediaSession.class.getName());
+
+    // sessions in use, by key
+    private static final Map<String, SharedMediaSession> sessions =
+            new HashMap<String, SharedMediaSession>();
+
+    private final String key;
+    private final String uri;
+    private final String clock;
+    private final VideoPlayerImpl player;
+    private final List<View> views = new CopyOnWriteArrayList<View>();
+    
+    // forwards frames from the player. It is only registered with the
+    // player while a view has listeners, so video is not decoded when
+    // nobody is watching. Guarded by itself.
+    private final Fanout fanout = new Fanout();
+    private boolean watched;
+
+    // the number of references to this session, guarded by sessions
+    private int references;
+
+    // the video currently open, guarded by this
+    private boolean open;
+    private int videoWidth;
+    private int videoHeight;
+    private IPixelFormat.Type videoFormat;
+    private boolean playing;
+
+    // the latest frame from the player, guarded by this
+    private VideoFrame current;
+
+    /**
+     * Get the session for the given media and clock, creating it if it
+     * doesn't exist. Each call must be matched by a call to
+     * <code>release()</code>.
+     * @param uri the media to play
+     * @param clock a name for the session. Screens that use the same
+     * name for the same media play in step.
+     * @return the session
+     */
+    public static SharedMediaSession acquire(String uri, String clock) {
+        String key = uri + "\n" + clock;
+        SharedMediaSession session;
+        boolean created = false;
+
+        synchronized (sessions) {
+            session = sessions.get(key);
+            if (session == null) {
+                session = new SharedMediaSession(key, uri, clock);
+                sessions.put(key, session);
+                created = true;
+            }
+
+            session.references++;
+        }
+
+        if (created) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Opening shared session for " + uri +
+                            " with clock " + clock);
+            }
+
+            session.getPlayer().openMedia(uri);
+        }
+
+        return session;
+    }
+
+    /**
+     * Create a new session. Use <code>acquire()</code> to get a session.
+     */
+    private SharedMediaSession(String key, String uri, String clock) {
+        this.key = key;
+        this.uri = uri;
+        this.clock = clock;
+
+        player = createPlayer();
+    }
+
+    /**
+     * Create the player that decodes the media for this session
+     * @return the player
+     */
+    protected VideoPlayerImpl createPlayer() {
+        return new VideoPlayerImpl();
+    }
+
+    /**
+     * Release a reference to this session. When the last reference is
+     * released, the media is closed.
+     */
+    public void release() {
+        synchronized (sessions) {
+            if (--references > 0) {
+                return;
+            }
+
+            sessions.remove(key);
+        }
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Closing shared session for " + uri +
+                        " with clock " + clock);
+        }
+
+        // the player tells the views the video is closed
+        player.closeMedia();
+
+        for (View view : views) {
+            view.dispose();
+        }
+        views.clear();
+        updateWatched();
+
+        synchronized (this) {
+            if (current != null) {
+                current.release();
+                current = null;
+            }
+        }
+    }
+
+    public String getMedia() {
+        return uri;
+    }
+
+    /**
+     * Get the name this session was acquired with. This is only a name,
+     * not a time source.
+     * @return the clock name
+     */
+    public String getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the player that decodes the media. Use this to control playback
+     * for all views, for example to play, pause, seek or mute. Frame
+     * listeners should be added to a view rather than the player.
+     * @return the player
+     */
+    public VideoPlayerImpl getPlayer() {
+        return player;
+    }
+
+    /**
+     * Create a view of the whole frame, at the size of the video
+     * @return the view
+     */
+    public View createView() {
+        return createView(null, null);
+    }
+
+    /**
+     * Create a view of part of the frame
+     * @param crop the part of the frame to show, in pixels of the video,
+     * or null to show the whole frame
+     * @param outputSize the size to scale the view to, or null to keep the
+     * size of the cropped frame
+     * @return the view
+     */
+    public View createView(Rectangle crop, Dimension outputSize) {
+        FrameTransform transform = null;
+        if (crop != null || outputSize != null) {
+            transform = new FrameTransform(crop, outputSize);
+        }
+
+        View view = new View(transform);
+        views.add(view);
+        return view;
+    }
+
+    /**
+     * Get the next frame for a view. The player is asked for a new frame,
+     * and if it has moved on since the view's last frame, the view gets
+     * its own reference to the latest frame.
+     * @param view the view to get a frame for
+     * @return the frame, or null if the view's current frame is active
+     */
+    private VideoFrame nextFrame(View view) {
+        VideoFrame source;
+        synchronized (this) {
+            VideoFrame next = player.nextFrame();
+            if (next != null) {
+                if (current != null) {
+                    current.release();
+                }
+
+                current = next;
+            }
+
+            if (current == null) {
+                return null;
+            }
+
+            source = current;
+            source.retain();
+        }
+
+        // transform outside the session lock, so views don't wait for
+        // each other's transforms
+        try {
+            return view.presentNext(source);
+        } finally {
+            source.release();
+        }
+    }
+
+    /**
+     * Register the fanout with the player if any view has listeners, and
+     * remove it if none do. The player decodes video only while it has
+     * frame listeners.
+     */
+    private void updateWatched() {
+        boolean nowWatched = false;
+        for (View view : views) {
+            if (view.isWatched()) {
+                nowWatched = true;
+                break;
+            }
+        }
+
+        synchronized (fanout) {
+            if (nowWatched == watched) {
+                return;
+            }
+
+            watched = nowWatched;
+
+            if (!watched) {
+                player.removeFrameListener(fanout);
+
+                synchronized (this) {
+                    if (current != null) {
+                        current.release();
+                        current = null;
+                    }
+                }
+
+                return;
+            }
+
+            player.addFrameListener(fanout);
+
+            // the player doesn't repeat what it told listeners while we
+            // weren't registered, so pick up the video it has open now
+            Dimension size = player.getFrameSize();
+            IPixelFormat.Type format = player.getPixelFormat();
+            boolean isPlaying = player.isPlaying();
+
+            synchronized (this) {
+                open = (format != null && size.width > 0);
+                videoWidth = size.width;
+                videoHeight = size.height;
+                videoFormat = format;
+                playing = open && isPlaying;
+            }
+        }
+    }
+
+    /**
+     * Forward notifications from the player to each view
+     */
+    private class Fanout implements FrameListener {
+        public void openVideo(int width, int height, IPixelFormat.Type format) {
+            synchronized (SharedMediaSession.this) {
+                open = true;
+                videoWidth = width;
+                videoHeight = height;
+                videoFormat = format;
+            }
+
+            for (View view : views) {
+                view.openVideo(width, height, format);
+            }
+        }
+
+        public void previewFrame(VideoFrame frame) {
+            for (View view : views) {
+                view.previewFrame(frame);
+            }
+        }
+
+        public void playVideo(FrameQueue queue) {
+            synchronized (SharedMediaSession.this) {
+                playing = true;
+            }
+
+            for (View view : views) {
+                view.playVideo();
+            }
+        }
+
+        public void stopVideo() {
+            synchronized (SharedMediaSession.this) {
+                playing = false;
+            }
+
+            for (View view : views) {
+                view.stopVideo();
+            }
+        }
+
+        public void closeVideo() {
+            synchronized (SharedMediaSession.this) {
+                open = false;
+                playing = false;
+
+                if (current != null) {
+                    current.release();
+                    current = null;
+                }
+            }
+
+            for (View view : views) {
+                view.closeVideo();
+            }
+        }
+    }
+
+    /**
+     * One screen's view of a shared session. Frames are given to the
+     * view's listeners cropped and scaled as requested. Duplicate flags
+     * and dirty tiles are relative to the last frame this view returned,
+     * not the last frame the player returned to any view.
+     */
+    public class View implements FrameQueue {
+        private final FrameTransform transform;
+        private final List<FrameListener> listeners =
+                new CopyOnWriteArrayList<FrameListener>();
+
+        // the last frame this view returned, guarded by the view
+        private boolean lastKnown;
+        private long lastPTS;
+        private boolean lastHashed;
+        private long lastHash;
+
+        // the last transformed picture, reused for duplicate frames,
+        // guarded by the view
+        private VideoFrame lastOutput;
+
+        private View(FrameTransform transform) {
+            this.transform = transform;
+        }
+
+        /**
+         * Get the session this is a view of
+         * @return the session
+         */
+        public SharedMediaSession getSession() {
+            return SharedMediaSession.this;
+        }
+
+        /**
+         * Add a listener for frames in this view. If the video is already
+         * open, or playing, the listener is told right away.
+         * @param listener the listener to add
+         */
+        public void addFrameListener(FrameListener listener) {
+            listeners.add(listener);
+            updateWatched();
+
+            boolean isOpen;
+            boolean isPlaying;
+            int width;
+            int height;
+            IPixelFormat.Type format;
+
+            synchronized (SharedMediaSession.this) {
+                isOpen = open;
+                isPlaying = playing;
+                width = videoWidth;
+                height = videoHeight;
+                format = videoFormat;
+            }
+
+            if (isOpen) {
+                Dimension size = getOutputSize(width, height, format);
+                listener.openVideo(size.width, size.height, format);
+            }
+
+            if (isPlaying) {
+                listener.playVideo(this);
+            }
+        }
+
+        public void removeFrameListener(FrameListener listener) {
+            listeners.remove(listener);
+            updateWatched();
+        }
+
+        /**
+         * Stop using this view. The view's listeners are told the video
+         * is closed.
+         */
+        public void close() {
+            if (!views.remove(this)) {
+                return;
+            }
+
+            closeVideo();
+            dispose();
+            updateWatched();
+        }
+
+        /**
+         * Free the resources used to transform frames
+         */
+        private synchronized void dispose() {
+            if (transform != null) {
+                transform.dispose();
+            }
+        }
+
+        private boolean isWatched() {
+            return !listeners.isEmpty();
+        }
+
+        @Override
+        public VideoFrame nextFrame() {
+            return SharedMediaSession.this.nextFrame(this);
+        }
+
+        /**
+         * Get this view's version of a frame from the player, unless it
+         * is the last one this view returned
+         * @param source the frame from the player
+         * @return a new reference owned by the caller, or null if the
+         * view already returned this frame
+         */
+        private synchronized VideoFrame presentNext(VideoFrame source) {
+            if (lastKnown && source.getTimeStamp() == lastPTS) {
+                return null;
+            }
+
+            return present(source);
+        }
+
+        /**
+         * Forget the last frame returned, so the next frame is not
+         * compared to it
+         */
+        private void forget() {
+            lastKnown = false;
+            lastHashed = false;
+
+            if (lastOutput != null) {
+                lastOutput.release();
+                lastOutput = null;
+            }
+        }
+
+        /**
+         * Get this view's version of a frame from the player
+         * @param source the frame from the player
+         * @return a new reference, owned by the caller
+         */
+        private VideoFrame present(VideoFrame source) {
+            boolean duplicate = lastHashed && source.isHashed() &&
+                                source.getHash() == lastHash;
+
+            VideoFrame out = null;
+            if (transform != null) {
+                if (!duplicate || lastOutput == null) {
+                    VideoFrame transformed = transform.apply(source);
+                    if (lastOutput != null) {
+                        lastOutput.release();
+                    }
+
+                    lastOutput = transformed;
+                }
+
+                if (lastOutput != null) {
+                    out = new VideoFrame(lastOutput);
+                }
+            }
+
+            if (out == null) {
+                out = new VideoFrame(source);
+
+                // tiles are only useful if this view showed the frame
+                // they are relative to
+                DirtyTiles tiles = source.getDirtyTiles();
+                if (tiles != null && lastKnown &&
+                    tiles.getBaseTimeStamp() == lastPTS)
+                {
+                    out.setDirtyTiles(tiles);
+                }
+            }
+
+            out.setDuplicate(duplicate);
+
+            lastKnown = true;
+            lastPTS = source.getTimeStamp();
+            lastHashed = source.isHashed();
+            lastHash = source.getHash();
+
+            return out;
+        }
+
+        /**
+         * Get the size of frames in this view
+         */
+        private Dimension getOutputSize(int width, int height,
+                                        IPixelFormat.Type format)
+        {
+            if (transform == null || format != IPixelFormat.Type.YUV420P) {
+                return new Dimension(width, height);
+            }
+
+            return transform.getOutputSize(width, height);
+        }
+
+        private void openVideo(int width, int height,
+                               IPixelFormat.Type format)
+        {
+            if (transform != null && format != IPixelFormat.Type.YUV420P) {
+                LOGGER.warning("Unable to crop video in format " + format +
+                               ", showing whole frame");
+            }
+
+            Dimension size = getOutputSize(width, height, format);
+            for (FrameListener listener : listeners) {
+                listener.openVideo(size.width, size.height, format);
+            }
+        }
+
+        private void previewFrame(VideoFrame frame) {
+            VideoFrame out;
+            synchronized (this) {
+                // listeners show the preview in place of whatever they
+                // showed last
+                forget();
+                out = present(frame);
+            }
+
+            try {
+                for (FrameListener listener : listeners) {
+                    listener.previewFrame(out);
+                }
+            } finally {
+                out.release();
+            }
+        }
+
+        private void playVideo() {
+            for (FrameListener listener : listeners) {
+                listener.playVideo(this);
+            }
+        }
+
+        private void stopVideo() {
+            for (FrameListener listener : listeners) {
+                listener.stopVideo();
+            }
+        }
+
+        private void closeVideo() {
+            synchronized (this) {
+                forget();
+            }
+
+            for (FrameListener listener : listeners) {
+                listener.closeVideo();
+            }
+        }
+    }
+}
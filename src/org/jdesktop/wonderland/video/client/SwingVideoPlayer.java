@@ -19,12 +19,15 @@
 package org.jdesktop.wonderland.video.client;
 
 import com.xuggle.xuggler.IPixelFormat;
-import com.xuggle.xuggler.IVideoPicture;
 import com.xuggle.xuggler.video.ConverterFactory;
 import com.xuggle.xuggler.video.IConverter;
 import java.awt.Dimension;
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -39,9 +42,12 @@ import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JWindow;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.plaf.basic.BasicSliderUI;
 import org.jdesktop.wonderland.video.client.VideoPlayer.VideoPlayerState;
 
 /**
@@ -49,7 +55,7 @@ import org.jdesktop.wonderland.video.client.VideoPlayer.VideoPlayerState;
  * @author jkaplan
  */
 public class SwingVideoPlayer extends javax.swing.JFrame
-    implements FrameListener, VideoStateListener
+    implements FrameListener, VideoStateListener, VideoCapabilityListener
 {
     private static final Logger LOGGER =
             Logger.getLogger(SwingVideoPlayer.class.getName());
@@ -60,6 +66,11 @@ public class SwingVideoPlayer extends javax.swing.JFrame
     private boolean playing = false;
 
     private final List<String> recents = new ArrayList<String>();
+
+    // previews shown while hovering over or dragging the time slider
+    private volatile ScrubPreviewCache previews;
+    private JWindow previewWindow;
+    private JLabel previewLabel;
     
     private static ThreadLocal<Boolean> localChange = new ThreadLocal<Boolean>() {
         @Override
@@ -71,10 +82,17 @@ public class SwingVideoPlayer extends javax.swing.JFrame
     /** Creates new form VideoJFrame */
     public SwingVideoPlayer() {
         initComponents();
+        initPreviews();
 
-        player = new VideoPlayerImpl();
+        // converting a frame costs much more than hashing it, so check
+        // every frame exactly for duplicates
+        VideoPlayerImpl impl = new VideoPlayerImpl();
+        impl.setDuplicateSampleStep(1);
+        
+        player = impl;
         player.addStateListener(this);
         player.addFrameListener(this);
+        player.addCapabilityListener(this);
         
         reloadRecents();
     }
@@ -89,6 +107,7 @@ public class SwingVideoPlayer extends javax.swing.JFrame
         
         switch (newState) {
             case NO_MEDIA:
+                setPreviews(null);
                 playButton.setEnabled(false);
                 stopButton.setEnabled(false);
                 pauseButton.setEnabled(false);
@@ -115,6 +134,9 @@ public class SwingVideoPlayer extends javax.swing.JFrame
                         localChange.set(false);
                     }
                         
+                    if (player.getDuration() > 0) {
+                        setPreviews(player.getMedia());
+                    }
                 }
                 break;
                 
@@ -140,6 +162,17 @@ public class SwingVideoPlayer extends javax.swing.JFrame
         stateLabel.setText(newState.name());
     }
 
+    @Override
+    public void seekEnabledChanged(final boolean seekEnabled) {
+        // update the controls for the new seek state
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                VideoPlayerState state = player.getState();
+                mediaStateChanged(state, state);
+            }
+        });
+    }
+
     @Override
     public void openVideo(int videoWidth, int videoHeight, IPixelFormat.Type videoFormat) {
         setVisible(false);
@@ -158,6 +191,8 @@ public class SwingVideoPlayer extends javax.swing.JFrame
         setPlaying(true);
 
         SwingWorker worker = new SwingWorker<Object, TimedImage>() {
+            private Image lastImage;
+            
             @Override
             protected Object doInBackground() throws Exception {
                 try {
@@ -165,10 +200,18 @@ public class SwingVideoPlayer extends javax.swing.JFrame
                         // set the target time to 30ms from now
                         long sleepTarget = System.currentTimeMillis() + 30;
                         
-                        IVideoPicture frame = queue.nextFrame();
+                        VideoFrame frame = queue.nextFrame();
                         if (frame != null) {
-                            Image image = converter.toImage(frame);
-                            publish(new TimedImage(image, frame.getTimeStamp()));
+                            try {
+                                // reuse the last image if nothing changed
+                                if (!frame.isDuplicate() || lastImage == null) {
+                                    lastImage = converter.toImage(frame.getPicture());
+                                }
+                                
+                                publish(new TimedImage(lastImage, frame.getTimeStamp()));
+                            } finally {
+                                frame.release();
+                            }
                         }
 
                         long now = System.currentTimeMillis();
@@ -197,19 +240,29 @@ public class SwingVideoPlayer extends javax.swing.JFrame
     }
     
     @Override
-    public void previewFrame(final IVideoPicture frame) {
+    public void previewFrame(final VideoFrame frame) {
         LOGGER.warning("Preview frame: " + frame);
-        
+
+        // the frame is only valid during this call, so keep a reference
+        // until the conversion is done
+        if (frame != null) {
+            frame.retain();
+        }
+
         SwingWorker worker = new SwingWorker<Object, TimedImage>() {
             @Override
             protected Object doInBackground() throws Exception {
                 try {
                     if (frame != null) {
-                        Image image = converter.toImage(frame);
+                        Image image = converter.toImage(frame.getPicture());
                         publish(new TimedImage(image, frame.getTimeStamp()));
                     }
                 } catch (Throwable t) {
                     LOGGER.log(Level.WARNING, null, t);
+                } finally {
+                    if (frame != null) {
+                        frame.release();
+                    }
                 }
 
                 return null;
@@ -536,6 +589,97 @@ public class SwingVideoPlayer extends javax.swing.JFrame
         }
     }//GEN-LAST:event_timeSliderStateChanged
     
+    /**
+     * Show a preview of the media over the time slider while the mouse
+     * is over it
+     */
+    private void initPreviews() {
+        previewLabel = new JLabel();
+        previewWindow = new JWindow(this);
+        previewWindow.getContentPane().add(previewLabel);
+
+        MouseAdapter listener = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                showPreview(e.getX());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                showPreview(e.getX());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                if (!timeSlider.getValueIsAdjusting()) {
+                    previewWindow.setVisible(false);
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                previewWindow.setVisible(false);
+            }
+        };
+
+        timeSlider.addMouseListener(listener);
+        timeSlider.addMouseMotionListener(listener);
+    }
+
+    /**
+     * Start building previews for new media, and stop building them for
+     * the old media
+     * @param uri the media to build previews for, or null for no previews
+     */
+    private synchronized void setPreviews(String uri) {
+        ScrubPreviewCache cur = previews;
+        if (cur != null && uri != null && cur.getMedia().equals(uri)) {
+            return;
+        }
+
+        if (cur != null) {
+            cur.dispose();
+        }
+
+        previews = null;
+        if (uri != null) {
+            previews = new ScrubPreviewCache(uri);
+            previews.start();
+        }
+    }
+
+    private void showPreview(int x) {
+        ScrubPreviewCache cur = previews;
+        if (cur == null || !timeSlider.isEnabled()) {
+            previewWindow.setVisible(false);
+            return;
+        }
+
+        // find the time under the mouse
+        double time;
+        if (timeSlider.getUI() instanceof BasicSliderUI) {
+            time = ((BasicSliderUI) timeSlider.getUI()).valueForXPosition(x) / 100.0;
+        } else {
+            time = ((double) x / timeSlider.getWidth()) *
+                    (timeSlider.getMaximum() / 100.0);
+        }
+
+        BufferedImage image = cur.getPreview(time);
+        if (image == null) {
+            previewWindow.setVisible(false);
+            return;
+        }
+
+        previewLabel.setIcon(new ImageIcon(image));
+        previewWindow.pack();
+
+        Point p = new Point(x, 0);
+        SwingUtilities.convertPointToScreen(p, timeSlider);
+        previewWindow.setLocation(p.x - previewWindow.getWidth() / 2,
+                                  p.y - previewWindow.getHeight());
+        previewWindow.setVisible(true);
+    }
+
     private void addToRecents(String uri) {
         // first see if this path exists in the list already. If so, remove it
         for (Iterator<String> i = recents.iterator(); i.hasNext();) {
@@ -0,0 +1,323 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IVideoPicture;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+
+/**
+ * Extracts still frames from media, for example to show on a screen
+ * before the video is played. Rather than opening a player, the service
+ * seeks to the key frame nearest the requested time, decodes that one
+ * frame, and scales it down to the requested size while converting it
+ * to RGB. Thumbnails are cached on disk as JPEG images, so each one is
+ * only extracted once.
+ * <p>
+ * Extraction runs on a small pool of threads, so asking for the
+ * thumbnails of a whole world at once doesn't open every piece of media
+ * at the same time. Requests for a thumbnail that is already being
+ * extracted share the same result.
+ *
+ * @author agent <agent@local>
+ */
+public class ThumbnailService {
+    private static final Logger LOGGER =
+            Logger.getLogger(ThumbnailService.class.getName());
+
+    // system property to set the cache directory
+    private static final String CACHE_DIR_PROP =
+            ThumbnailService.class.getPackage().getName() + ".thumbnailCache";
+
+    // the default number of thumbnails to extract at once
+    private static final int DEFAULT_CONCURRENCY = 2;
+
+    // how long idle threads wait before exiting, in seconds
+    private static final long IDLE_TIMEOUT = 10;
+
+    // give up if no key frame is found in this many video packets
+    private static final int MAX_PACKETS = 1000;
+
+    // the format to cache thumbnails in
+    private static final String IMAGE_FORMAT = "jpg";
+
+    private final File cacheDir;
+    private final ThreadPoolExecutor executor;
+
+    // thumbnails being extracted, by cache key
+    private final Map<String, Future<BufferedImage>> pending =
+            new HashMap<String, Future<BufferedImage>>();
+
+    /**
+     * Create a service with the default cache directory and concurrency
+     */
+    public ThumbnailService() {
+        this(getDefaultCacheDir(), DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a service
+     * @param cacheDir the directory to cache thumbnails in, or null not to
+     * cache thumbnails
+     * @param concurrency the maximum number of thumbnails to extract at
+     * once
+     */
+    public ThumbnailService(File cacheDir, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Bad concurrency: " +
+                                               concurrency);
+        }
+
+        this.cacheDir = cacheDir;
+        if (cacheDir != null && !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            LOGGER.warning("Unable to create thumbnail cache " + cacheDir);
+        }
+
+        executor = new ThreadPoolExecutor(concurrency, concurrency,
+                IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread out = new Thread(r, "Thumbnail Service " +
+                                           count.incrementAndGet());
+                out.setDaemon(true);
+                return out;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the directory thumbnails are cached in by default. This is
+     * the value of the <code>org.jdesktop.wonderland.video.thumbnailCache
+     * </code> system property if it is set, or a directory in the
+     * temporary directory otherwise.
+     * @return the default cache directory
+     */
+    public static File getDefaultCacheDir() {
+        String dir = System.getProperty(CACHE_DIR_PROP);
+        if (dir != null) {
+            return new File(dir);
+        }
+
+        return new File(System.getProperty("java.io.tmpdir"),
+                        "wonderland-video-thumbnails");
+    }
+
+    /**
+     * Get a thumbnail of some media
+     * @param uri the URI of the media
+     * @param time the time of the frame to show, in seconds. The key frame
+     * nearest this time is used.
+     * @param maxSize the largest size of the thumbnail. The thumbnail keeps
+     * the aspect ratio of the video, and fits inside this size.
+     * @return a future for the thumbnail, which fails with an
+     * <code>IOException</code> if the media has no video or can't be read
+     */
+    public Future<BufferedImage> getThumbnail(final String uri,
+                                              final double time,
+                                              final Dimension maxSize)
+    {
+        final String key = getKey(uri, time, maxSize);
+
+        synchronized (pending) {
+            Future<BufferedImage> out = pending.get(key);
+            if (out != null) {
+                return out;
+            }
+
+            FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(
+                    new Callable<BufferedImage>() {
+                public BufferedImage call() throws IOException {
+                    return load(key, uri, time, maxSize);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    synchronized (pending) {
+                        if (pending.get(key) == this) {
+                            pending.remove(key);
+                        }
+                    }
+                }
+            };
+
+            pending.put(key, task);
+            executor.execute(task);
+            return task;
+        }
+    }
+
+    /**
+     * Remove all cached thumbnails
+     */
+    public void clearCache() {
+        if (cacheDir == null) {
+            return;
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith("." + IMAGE_FORMAT) && !file.delete()) {
+                LOGGER.warning("Unable to delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Create the queue filler used to prepare and open media. Override
+     * this to use the same content handling as the players.
+     * @return a queue filler. Only its methods for opening media are used.
+     */
+    protected VideoQueueFiller createQueueFiller() {
+        return new VideoQueueFiller(null);
+    }
+
+    /**
+     * Get a thumbnail from the cache, or extract and cache it
+     */
+    private BufferedImage load(String key, String uri, double time,
+                               Dimension maxSize)
+            throws IOException
+    {
+        File file = null;
+        if (cacheDir != null) {
+            file = new File(cacheDir, key + "." + IMAGE_FORMAT);
+            if (file.isFile()) {
+                BufferedImage image = ImageIO.read(file);
+                if (image != null) {
+                    return image;
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        BufferedImage image = extract(uri, time, maxSize);
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Extracted thumbnail of " + uri + " at " + time +
+                        " in " + ((System.nanoTime() - start) / 1000000) +
+                        " ms");
+        }
+
+        if (file != null) {
+            store(image, file);
+        }
+
+        return image;
+    }
+
+    /**
+     * Write a thumbnail to the cache. The image is written to a temporary
+     * file first, so a partly written image is never read.
+     */
+    private void store(BufferedImage image, File file) {
+        try {
+            File tmp = File.createTempFile("thumb", ".tmp", cacheDir);
+            if (!ImageIO.write(image, IMAGE_FORMAT, tmp) ||
+                !tmp.renameTo(file))
+            {
+                LOGGER.warning("Unable to cache thumbnail " + file);
+                tmp.delete();
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Unable to cache thumbnail " + file, ioe);
+        }
+    }
+
+    /**
+     * Extract a thumbnail from the media
+     */
+    private BufferedImage extract(String uri, double time, Dimension maxSize)
+            throws IOException
+    {
+        KeyFrameReader reader = new KeyFrameReader(createQueueFiller(), uri);
+
+        try {
+            // if the media can't seek, use the first key frame
+            if (time > 0 && !reader.seek(time)) {
+                LOGGER.fine("Unable to seek for thumbnail");
+            }
+
+            IVideoPicture picture = reader.nextKeyFrame(0, MAX_PACKETS);
+            if (picture == null) {
+                throw new IOException("No key frame in " + uri);
+            }
+
+            try {
+                return reader.toImage(picture, maxSize);
+            } finally {
+                picture.delete();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Get the cache key for a thumbnail
+     */
+    private static String getKey(String uri, double time, Dimension maxSize) {
+        return digest(uri + "@" + Math.round(time * 1000) + "@" +
+                      maxSize.width + "x" + maxSize.height);
+    }
+
+    /**
+     * Get a digest of a string that is safe to use as a file name
+     * @param key the string to digest
+     * @return the SHA-1 digest of the string, in hex
+     */
+    static String digest(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder out = new StringBuilder();
+            for (byte b : digest.digest(key.getBytes("UTF-8"))) {
+                out.append(String.format("%02x", b & 0xff));
+            }
+
+            return out.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+/**
+ * A listener for changes in what a video player can do with its media
+ * @author agent <agent@local>
+ */
+public interface VideoCapabilityListener {
+    /**
+     * Notified when seeking becomes available or unavailable. Whether
+     * media can seek is guessed when it is opened, without seeking, and
+     * decided by the first seek, whichever way it was guessed. Notifications are made in order on
+     * the player's event thread.
+     * @param seekEnabled true if the media can seek
+     */
+    public void seekEnabledChanged(boolean seekEnabled);
+}
@@ -0,0 +1,240 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import com.xuggle.xuggler.IVideoPicture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Account;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Usage;
+
+/**
+ * A reference-counted handle to a decoded picture. The native memory
+ * behind a picture is freed as soon as the last holder releases it, rather
+ * than whenever the garbage collector gets around to it.
+ * <p>
+ * A frame starts with a single reference, owned by whoever created it.
+ * Each holder that wants to keep the frame calls <code>retain()</code>,
+ * and calls <code>release()</code> exactly once when it is done. The
+ * picture must not be used after the holder's reference is released.
+ *
+ * @author agent <agent@local>
+ */
+public class VideoFrame {
+    private final IVideoPicture picture;
+    private final long timeStamp;
+    private final int size;
+    private final Account account;
+    private final VideoFrame parent;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    // set by the queue filler before the frame is queued
+    private boolean hashed;
+    private long hash;
+    private DirtyTiles dirtyTiles;
+
+    // set by the frame queue when the frame is returned
+    private volatile boolean duplicate;
+
+    /**
+     * Create a frame holding the given picture. The frame takes ownership
+     * of the picture, and deletes it when the last reference is released.
+     * @param picture the picture
+     */
+    public VideoFrame(IVideoPicture picture) {
+        this(picture, null);
+    }
+
+    /**
+     * Create a frame holding the given picture, and record its memory
+     * against the given account until the picture is deleted.
+     * @param picture the picture
+     * @param account the account to record memory against, or null not
+     * to record it
+     */
+    public VideoFrame(IVideoPicture picture, Account account) {
+        this.picture = picture;
+        this.account = account;
+        this.parent = null;
+
+        // read these now, so they are still available after the picture
+        // is deleted
+        this.timeStamp = picture.getTimeStamp();
+        this.size = picture.getSize();
+
+        if (account != null) {
+            account.allocate(Usage.FRAMES, size);
+        }
+    }
+
+    /**
+     * Create a new frame sharing the picture of another frame. The new
+     * frame holds a reference to the source frame until its own last
+     * reference is released, and has its own duplicate flag and dirty
+     * tiles, so the same picture can be handed to several consumers that
+     * each compare it to a different previous frame.
+     * @param source the frame to share the picture of
+     */
+    VideoFrame(VideoFrame source) {
+        source.retain();
+
+        this.picture = source.picture;
+        this.account = null;
+        this.parent = source;
+        this.timeStamp = source.timeStamp;
+        this.size = source.size;
+
+        synchronized (source) {
+            this.hashed = source.hashed;
+            this.hash = source.hash;
+        }
+    }
+
+    /**
+     * Get the picture. This is only valid while the caller holds a
+     * reference to the frame.
+     * @return the picture
+     */
+    public IVideoPicture getPicture() {
+        return picture;
+    }
+
+    /**
+     * Get the timestamp of the picture
+     * @return the timestamp, in microseconds
+     */
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    /**
+     * Get the size of the picture data
+     * @return the size in bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Find out if this frame has the same picture as the frame returned
+     * before it by <code>FrameQueue.nextFrame()</code>. Consumers can
+     * reuse whatever they made from the previous frame, rather than
+     * converting this one. Frames are only checked if duplicate detection
+     * is turned on with <code>setDuplicateSampleStep()</code>.
+     * @return true if the picture is unchanged from the previous frame
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    /**
+     * Get the tiles of this frame that changed since the frame returned
+     * before it by <code>FrameQueue.nextFrame()</code>. Consumers can
+     * convert and upload only these parts of the frame. Tiles are only
+     * reported when the player's dirty tile size is set.
+     * @return the changed tiles, or null if they are not known and the
+     * whole frame should be treated as changed
+     */
+    public synchronized DirtyTiles getDirtyTiles() {
+        return dirtyTiles;
+    }
+
+    synchronized void setDirtyTiles(DirtyTiles dirtyTiles) {
+        this.dirtyTiles = dirtyTiles;
+    }
+
+    /**
+     * Find out if a hash has been computed for this frame
+     * @return true if the frame has a hash
+     */
+    synchronized boolean isHashed() {
+        return hashed;
+    }
+
+    /**
+     * Get the hash of this frame's picture
+     * @return the hash, only valid if <code>isHashed()</code> is true
+     */
+    synchronized long getHash() {
+        return hash;
+    }
+
+    synchronized void setHash(long hash) {
+        this.hash = hash;
+        this.hashed = true;
+    }
+
+    /**
+     * Add a reference to this frame
+     * @throws IllegalStateException if the frame has already been freed
+     */
+    public void retain() {
+        while (true) {
+            int count = references.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Frame at " + timeStamp +
+                                                " already released");
+            }
+
+            if (references.compareAndSet(count, count + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Release a reference to this frame. When the last reference is
+     * released, the native picture is deleted.
+     * @throws IllegalStateException if the frame has already been freed
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            if (parent != null) {
+                parent.release();
+                return;
+            }
+
+            picture.delete();
+
+            if (account != null) {
+                account.free(Usage.FRAMES, size);
+            }
+        } else if (count < 0) {
+            throw new IllegalStateException("Frame at " + timeStamp +
+                                            " released too many times");
+        }
+    }
+
+    /**
+     * Get the number of references to this frame
+     * @return the reference count, or 0 if the frame has been freed
+     */
+    public int getReferenceCount() {
+        return Math.max(references.get(), 0);
+    }
+
+    @Override
+    public String toString() {
+        return "VideoFrame[" + timeStamp + ", refs=" + getReferenceCount() +
+               "]";
+    }
+}
@@ -102,6 +102,32 @@ public interface VideoPlayer {
      */
     public double getPosition();
 
+    /**
+     * Pause the video if it is playing, and show the next frame. If the
+     * next frame hasn't been decoded yet, this returns right away and the
+     * frame is shown once it is decoded.
+     */
+    public void stepForward();
+
+    /**
+     * Pause the video if it is playing, and show the previous frame. Only
+     * valid if isSeekEnabled() returns true.
+     */
+    public void stepBackward();
+
+    /**
+     * Set the playback rate. Audio is muted at any rate other than 1.0.
+     * Only valid if isSeekEnabled() returns true.
+     * @param rate the playback rate, where 1.0 is normal speed
+     */
+    public void setRate(double rate);
+
+    /**
+     * Get the playback rate
+     * @return the playback rate, where 1.0 is normal speed
+     */
+    public double getRate();
+
     /**
      * Gets the duration of the media. Only valid if isSeekEnabled() returns true.
      * @return the duration of the media in second
@@ -21,26 +21,29 @@ import com.xuggle.xuggler.IAudioSamples;
 import com.xuggle.xuggler.ICodec;
 import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IStreamCoder;
-import com.xuggle.xuggler.IVideoPicture;
 import java.awt.Dimension;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.LineEvent;
-import javax.sound.sampled.LineListener;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 import org.jdesktop.wonderland.video.client.AudioInputStream.ReadTimeout;
 import org.jdesktop.wonderland.video.client.FrameListener.FrameQueue;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Account;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Pressure;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.PressureListener;
+import org.jdesktop.wonderland.video.client.PipelineTrace.Stage;
 import org.jdesktop.wonderland.video.client.VideoQueueFiller.AudioFrame;
 import org.jdesktop.wonderland.video.client.VideoQueueFiller.VideoQueue;
 
@@ -60,11 +63,53 @@ public class VideoPlayerImpl implements VideoStateSource,
     private static final boolean VIDEO_AVAILABLE =
             VideoLibraryLoader.loadVideoLibraries();
 
+    // above this rate, only key frames are decoded
+    private static final double KEY_FRAMES_ONLY_RATE = 2.0;
+    
+    // default size of the cache of decoded frames used for stepping. The
+    // cache is only filled while the player is not playing.
+    private static final long DEFAULT_FRAME_CACHE_SIZE = 32 * 1024 * 1024;
+    
+    // the number of decoded frames queued for display
+    private static final int FRAME_QUEUE_SIZE = 4;
+    
+    // the number of decoded frames queued for live streams, which keep
+    // small buffers to stay close to the live edge
+    private static final int LIVE_FRAME_QUEUE_SIZE = 2;
+    
+    // factor to scale frames down by under critical memory pressure, if
+    // downscaling is allowed
+    private static final int CRITICAL_DOWNSCALE = 2;
+    
+    // the most decoded audio to queue ahead of playback, in microseconds.
+    // Queueing audio blocks the queue filler beyond this, so it doesn't
+    // decode a whole file into memory when video isn't being decoded. It
+    // must cover how far audio is stored ahead of video, so the frame
+    // queue can fill before playback starts.
+    private static final long MAX_AUDIO_QUEUE = 4000000;
+    
+    // the default latency target for live streams, in microseconds
+    private static final long DEFAULT_LIVE_LATENCY = 500000;
+    
+    // the buffer depth to use for live streams, in microseconds
+    private static final long LIVE_BUFFER_DEPTH = 100000;
+    
+    // when latency is more than this far over the target, play slightly
+    // faster, playing LIVE_SPEEDUP_INTERVAL samples in the time of one less
+    private static final long LIVE_SPEEDUP_THRESHOLD = 100000;
+    private static final int LIVE_SPEEDUP_INTERVAL = 25;
+    
+    // when latency is more than this far over the target, skip directly
+    // back to the target
+    private static final long LIVE_SKIP_THRESHOLD = 500000;
+    
     // listeners
     private final List<VideoStateListener> stateListeners =
             new CopyOnWriteArrayList<VideoStateListener>();
     private final List<FrameListener> frameListeners =
             new CopyOnWriteArrayList<FrameListener>();
+    private final List<VideoCapabilityListener> capabilityListeners =
+            new CopyOnWriteArrayList<VideoCapabilityListener>();
 
     // time source
     //private final SystemClockTimeSource timeSource = new SystemClockTimeSource();
@@ -73,26 +118,92 @@ public class VideoPlayerImpl implements VideoStateSource,
     private VideoPlayerState mediaState = VideoPlayerState.NO_MEDIA;
 
     private final VideoQueueFiller queueFiller;
-    private final AudioThread audioQueue;
-    private final BlockingQueue<IVideoPicture> frameQueue;
+    // the audio thread is replaced rather than reused when it stops, so
+    // the old one can be closed in the background
+    private volatile AudioThread audioQueue;
+    private final BlockingQueue<VideoFrame> frameQueue;
+    private final FrameCache frameCache;
+    private final PlaybackStats playbackStats;
+    
+    // delivers events to listeners, so they don't run on the decoding
+    // threads
+    private final EventDispatcher events =
+            new EventDispatcher("Video Event Dispatcher");
+
+    // native memory accounting. The pressure is recorded when it changes,
+    // and applied on the event thread, or by the queue filler thread if it
+    // adds a frame first, so memory is never freed while the caller holds 
+    // locks
+    private final PressureListener pressureListener;
+    private final AtomicBoolean pressureChanged = new AtomicBoolean(true);
+    private volatile Pressure memoryPressure = Pressure.NORMAL;
+    private volatile long frameCacheSize = DEFAULT_FRAME_CACHE_SIZE;
+    
+    // under memory pressure, the filler waits on frameQueueSpace until
+    // the frame queue is below this limit
+    private volatile int frameQueueLimit = FRAME_QUEUE_SIZE;
+    private final Object frameQueueSpace = new Object();
+    private volatile boolean downscaleAllowed = false;
+    private Account memoryAccount;
+    
+    // completes when the last audio thread to be stopped is closed
+    private Future<Void> audioTeardown = Reaper.done();
+    
+    // whether audio can be heard, read by the audio thread without holding
+    // the player's lock
+    private volatile boolean audioAudible = true;
 
-    private SourceDataLine line;
     private boolean mute = false;
     private float volume = 1.0f;
+    private boolean resampleAudio = false;
+    private long liveLatencyTarget = DEFAULT_LIVE_LATENCY;
+    private double rate = 1.0;
     private long frameTime = 100000;
 
     private Thread mediaOpener;
+    private Future<MediaInfo> mediaOpenFuture;
     
     private boolean needsPreview = true;
     private double lastFrameTime;
+    private long lastFramePTS;
+    
+    // if not NO_STEP, a step forward is waiting for the first frame after
+    // this time to be decoded
+    private static final long NO_STEP = Long.MIN_VALUE;
+    private long pendingStep = NO_STEP;
+    
+    // the last frame returned by nextFrame(), used to mark duplicates
+    // and check that dirty tiles are relative to it
+    private boolean lastFrameKnown;
+    private long lastFrameKnownPTS;
+    private boolean lastFrameHashed;
+    private long lastFrameHash;
     
     private boolean finished = false;
     
     public VideoPlayerImpl() {
-        audioQueue = new AudioThread();
-        frameQueue = new LinkedBlockingQueue<IVideoPicture>(4);
+        audioQueue = new AudioThread(new JitterBuffer());
+        frameQueue = new LinkedBlockingQueue<VideoFrame>(FRAME_QUEUE_SIZE);
+        frameCache = new FrameCache(DEFAULT_FRAME_CACHE_SIZE);
+        playbackStats = new PlaybackStats(this);
+        
+        pressureListener = new PressureListener() {
+            public void pressureChanged(Pressure pressure) {
+                // notifications may arrive out of order, so use the
+                // accountant's current level rather than the one passed in
+                memoryPressure = 
+                        NativeMemoryAccountant.getInstance().getCurrentPressure();
+                VideoPlayerImpl.this.pressureChanged.set(true);
+                
+                // apply it now, in case no frames are arriving because
+                // we are paused or idle
+                events.dispatch(new PressureEvent());
+            }
+        };
     
         queueFiller = createQueueFiller(this);
+        queueFiller.setPlaybackStats(playbackStats);
+        updateStreams();
     }
     
     /**
@@ -112,6 +223,30 @@ public class VideoPlayerImpl implements VideoStateSource,
         return queueFiller;
     }
 
+    /**
+     * Create the sink that audio is played to. A new sink is created each
+     * time the audio clock is opened. By default, audio is played through
+     * JavaSound, or discarded in realtime if there is no audio device.
+     * @return the audio sink to use
+     */
+    protected AudioSink createAudioSink() {
+        if (JavaSoundAudioSink.isAvailable()) {
+            return new JavaSoundAudioSink();
+        }
+
+        LOGGER.fine("No audio device available. Audio will not be played.");
+        return new NullAudioSink(true);
+    }
+
+    /**
+     * Get the playback statistics for this player. The statistics are
+     * registered with the platform MBean server while media is open.
+     * @return the playback statistics
+     */
+    public PlaybackStats getPlaybackStats() {
+        return playbackStats;
+    }
+
     /**
      * Return whether or not video is available on this platform
      * @return true if video is available or false if not
@@ -127,6 +262,7 @@ public class VideoPlayerImpl implements VideoStateSource,
     @Override
     public void addFrameListener(FrameListener listener) {
         frameListeners.add(listener);
+        updateStreams();
     }
 
     /**
@@ -136,6 +272,7 @@ public class VideoPlayerImpl implements VideoStateSource,
     @Override
     public void removeFrameListener(FrameListener listener) {
         frameListeners.remove(listener);
+        updateStreams();
     }
 
     /**
@@ -144,51 +281,74 @@ public class VideoPlayerImpl implements VideoStateSource,
      * @param height the height of the video
      * @param format the format of the video
      */
-    protected void notifyFrameListenersOpen(int width, int height,
-                                            IPixelFormat.Type type) 
+    protected void notifyFrameListenersOpen(final int width, final int height,
+                                            final IPixelFormat.Type type) 
     {
-        for (FrameListener listener : frameListeners) {
-            listener.openVideo(width, height, type);
-        }
+        events.dispatch(new EventDispatcher.Event() {
+            @Override
+            public void deliver() {
+                for (FrameListener listener : frameListeners) {
+                    listener.openVideo(width, height, type);
+                }
+            }
+        });
     }
 
     /**
      * Notify all frame listeners that the video is stopped
      */
     protected void notifyFrameListenersClose() {
-        for (FrameListener listener : frameListeners) {
-            listener.closeVideo();
-        }
+        events.dispatch(new EventDispatcher.Event() {
+            @Override
+            public void deliver() {
+                for (FrameListener listener : frameListeners) {
+                    listener.closeVideo();
+                }
+            }
+        });
     }
 
     /**
-     * Notify all frame listeners of a new preview frame
+     * Notify all frame listeners of a new preview frame. Listeners retain
+     * the frame if they need it after they return.
      * @param frame the preview frame
      */
-    protected void notifyFrameListenersPreview(IVideoPicture frame) 
+    protected void notifyFrameListenersPreview(VideoFrame frame) 
     {
-        for (FrameListener listener : frameListeners) {
-            listener.previewFrame(frame);
-        }
+        // listeners show the preview in place of whatever they showed
+        // last, so the next frame can't be compared to the last one
+        forgetLastFrame();
+        
+        events.dispatch(new PreviewEvent(frame));
     }
     
     /**
      * Notify all the frame listeners that video has started
      * @param frame a new frame
      */
-    protected void notifyFrameListenersPlay(FrameQueue frames) {
-        for (FrameListener listener : frameListeners) {
-            listener.playVideo(frames);
-        }
+    protected void notifyFrameListenersPlay(final FrameQueue frames) {
+        events.dispatch(new EventDispatcher.Event() {
+            @Override
+            public void deliver() {
+                for (FrameListener listener : frameListeners) {
+                    listener.playVideo(frames);
+                }
+            }
+        });
     }
 
     /**
      * Notify all the frame listeners that video has stopped
      */
     protected void notifyFrameListenersStop() {
-        for (FrameListener listener : frameListeners) {
-            listener.stopVideo();
-        }
+        events.dispatch(new EventDispatcher.Event() {
+            @Override
+            public void deliver() {
+                for (FrameListener listener : frameListeners) {
+                    listener.stopVideo();
+                }
+            }
+        });
     }
 
     /**
@@ -209,6 +369,40 @@ public class VideoPlayerImpl implements VideoStateSource,
         stateListeners.remove(listener);
     }
 
+    /**
+     * Add a listener for changes in what the player can do
+     * @param listener a capability listener to be notified of changes
+     */
+    @Override
+    public void addCapabilityListener(VideoCapabilityListener listener) {
+        capabilityListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener for capability changes
+     * @param listener a capability listener to be removed
+     */
+    @Override
+    public void removeCapabilityListener(VideoCapabilityListener listener) {
+        capabilityListeners.remove(listener);
+    }
+
+    /**
+     * Notify all the capability listeners that seeking became available
+     * or unavailable
+     * @param seekEnabled true if the media can seek
+     */
+    protected void notifyCapabilityListeners(final boolean seekEnabled) {
+        events.dispatch(new EventDispatcher.Event() {
+            @Override
+            public void deliver() {
+                for (VideoCapabilityListener listener : capabilityListeners) {
+                    listener.seekEnabledChanged(seekEnabled);
+                }
+            }
+        });
+    }
+
     /**
      * Notify all the state listeners of a state change
      * @param oldState the previous state
@@ -217,9 +411,7 @@ public class VideoPlayerImpl implements VideoStateSource,
     protected void notifyStateListeners(VideoPlayerState oldState, 
                                         VideoPlayerState newState) 
     {
-        for (VideoStateListener listener : stateListeners) {
-            listener.mediaStateChanged(oldState, newState);
-        }
+        events.dispatch(new StateEvent(oldState, newState));
     }
 
     /**
@@ -228,48 +420,110 @@ public class VideoPlayerImpl implements VideoStateSource,
      */
     @Override
     public void openMedia(final String uri) {
+        openMediaAsync(uri);
+    }
+    
+    /**
+     * Open video media, returning a future for the result. The open is
+     * performed in another thread, so this method returns right away. The
+     * future completes with a description of the media once it is ready to
+     * play, or fails with an <code>IOException</code> if it can't be
+     * opened. Cancelling the future stops the open. Opening other media
+     * before this open completes cancels it.
+     * @param uri the URI of the video media to open
+     * @return a future for the description of the media
+     */
+    public Future<MediaInfo> openMediaAsync(final String uri) {
         this.mediaURI = uri;
+        
+        // publish statistics while media is open
+        playbackStats.register();
+        
+        // record native memory against this media
+        NativeMemoryAccountant accountant = NativeMemoryAccountant.getInstance();
+        synchronized (this) {
+            if (memoryAccount != null) {
+                memoryAccount.close();
+            }
+            
+            memoryAccount = accountant.createAccount(uri, pressureListener);
+            queueFiller.setMemoryAccount(memoryAccount);
+        }
+        
+        memoryPressure = accountant.getCurrentPressure();
+        pressureChanged.set(true);
 
         // perform the actual open in another thread, so as not to block
-        // the caller. The caller can wait for the state to change to
-        // media ready once the media is actually open
-        Runnable open = new Runnable() {
+        // the caller. The caller can wait for the future, or for the state 
+        // to change to media ready once the media is actually open
+        Callable<MediaInfo> open = new Callable<MediaInfo>() {
             @Override
-            public void run() {
+            public MediaInfo call() throws IOException {
                 // stop any existing video
                 stop(false);
                 
                 try {
                     setState(VideoPlayerState.NO_MEDIA);
                     setFinished(false);
-                    if (queueFiller.openMedia(mediaURI)) {
+                    
+                    // new media always starts at normal speed
+                    setRateInternal(1.0);
+                    frameCache.clear();
+                    
+                    long start = System.nanoTime();
+                    boolean opened;
+                    try {
+                        opened = queueFiller.openMedia(mediaURI);
+                    } finally {
+                        // trace failed and timed out opens too, so they 
+                        // show up in the timeline
+                        PipelineTrace.end(Stage.OPEN, PipelineTrace.UNKNOWN,
+                                          PipelineTrace.UNKNOWN, start);
+                    }
+                    
+                    if (opened) {
+                        playbackStats.opened((System.nanoTime() - start) / 1000);
                         setState(VideoPlayerState.MEDIA_READY);
+                        
+                        return new MediaInfo(uri, getDuration(), 
+                                             getFrameSize(), isSeekEnabled(),
+                                             isLive(), getAudioTracks());
                     } else {
                         LOGGER.warning("Unable to open " + uri);
                         setState(VideoPlayerState.NO_MEDIA);
+                        
+                        throw new IOException("Unable to open " + uri);
                     }
                            
                 } finally {
                     synchronized (VideoPlayerImpl.this) {
-                        mediaOpener = null;
+                        if (mediaOpener == Thread.currentThread()) {
+                            mediaOpener = null;
+                            mediaOpenFuture = null;
+                        }
                     }
                 }
             }
         };
         
+        FutureTask<MediaInfo> out = new FutureTask<MediaInfo>(open);
+        
         synchronized (this) {
-            if (mediaOpener != null && mediaOpener.isAlive()) {
+            if (mediaOpenFuture != null) {
                 // stop the existing load
-                mediaOpener.interrupt();
+                mediaOpenFuture.cancel(true);
             }
             
-            mediaOpener = new Thread(open, "Media Opener thread");
+            mediaOpenFuture = out;
+            mediaOpener = new Thread(out, "Media Opener thread");
             mediaOpener.start();
         }
+        
+        return out;
     }
 
     @Override
-    public synchronized IVideoPicture nextFrame() {
+    public synchronized VideoFrame nextFrame() {
         // if the time source is not running, there is no next frame
         if (!audioQueue.isRunning()) {
             return null;
@@ -283,17 +537,8 @@ public class VideoPlayerImpl implements VideoStateSource,
                         "Wall time: %d", targetPTS, audioQueue.getWallTime()));
         }
         
-        boolean logStats = LOGGER.isLoggable(Level.FINE);
-        StringBuilder stats = new StringBuilder();
-
-        if (logStats) {
-            stats.append("Target PTS: ").append(targetPTS);
-            stats.append(" frame time: ").append(frameTime).append("\n");
-        }
-
         // make sure the queue is not empty
-        IVideoPicture out = frameQueue.peek();
-        if (out == null) {
+        if (frameQueue.peek() == null) {
             // empty queue -- is the video finished?
             if (isFinished()) {
                 stop();
@@ -301,61 +546,112 @@ public class VideoPlayerImpl implements VideoStateSource,
             
             return null;
         }
-
-        // find the first frame after the targetPTS
-        while (out != null && out.getTimeStamp() < targetPTS - frameTime) {
-            frameQueue.poll();
-
-            if (logStats) {
-                stats.append("    Early: ").append(out.getTimeStamp()).append("\n");
-            }
-
-            out = frameQueue.peek();
-        }
-
-        // see if it is too far in the future
-        if (out != null && Math.abs(out.getTimeStamp() - targetPTS) < frameTime) {
-            if (logStats) {
-                stats.append("    GOOD : ").append(out.getTimeStamp()).append("\n");
-            }
-
-            frameQueue.poll();
+        
+        VideoFrame out;
+        if (getRate() == 1.0) {
+            out = FrameSelector.select(frameQueue, targetPTS, frameTime,
+                                       playbackStats);
         } else {
-            if (logStats && out != null) {
-                stats.append("    Late : ").append(out.getTimeStamp()).append("\n");
-            }
-
-            // don't take the frame, just return null
-            out = null;
-        }
-
-        if (logStats) {
-            LOGGER.fine(stats.toString());
+            out = FrameSelector.selectLatest(frameQueue, targetPTS, frameTime,
+                                             playbackStats);
         }
 
+        // frames were taken from the queue
+        frameQueueChanged();
+        
         // update last frame time
         if (out != null) {
-            lastFrameTime = out.getTimeStamp() / 1000000.0;
+            setLastFrame(out.getTimeStamp());
+            checkChanges(out);
         }
             
         return out;
     }
+    
+    /**
+     * Describe how a frame differs from the last frame returned by 
+     * <code>nextFrame()</code>. The frame is marked as a duplicate if it
+     * is the same as the last frame. Dirty tiles are found relative to the
+     * last frame decoded, so if frames were skipped in between, every
+     * tile is marked dirty.
+     * @param frame the frame being returned
+     */
+    private synchronized void checkChanges(VideoFrame frame) {
+        boolean duplicate = frame.isHashed() && lastFrameHashed &&
+                            frame.getHash() == lastFrameHash;
+        frame.setDuplicate(duplicate);
+        if (duplicate) {
+            playbackStats.frameDuplicate();
+        }
+        
+        DirtyTiles tiles = frame.getDirtyTiles();
+        if (tiles != null && (!lastFrameKnown || 
+                              tiles.getBaseTimeStamp() != lastFrameKnownPTS)) 
+        {
+            tiles.setAllDirty();
+        }
+        
+        lastFrameKnown = true;
+        lastFrameKnownPTS = frame.getTimeStamp();
+        lastFrameHashed = frame.isHashed();
+        lastFrameHash = frame.getHash();
+    }
+    
+    /**
+     * Forget the last frame returned, so the next frame is not compared
+     * to it
+     */
+    private synchronized void forgetLastFrame() {
+        lastFrameKnown = false;
+        lastFrameHashed = false;
+    }
 
     /**
      * Close video media
      */
     @Override
     public void closeMedia() {
+        closeMediaAsync();
+    }
+    
+    /**
+     * Close video media without waiting. The player moves to the no media
+     * state right away, and the threads reading and playing the media are
+     * stopped in the background. The returned future completes when they
+     * have closed the media, at which point its native resources are freed.
+     * @return a future that completes when the media is closed
+     */
+    public Future<Void> closeMediaAsync() {
         LOGGER.fine("closing video");
+        String uri = mediaURI;
         stop(false);
+        
+        // make sure the queue filler is stopped, even if we weren't playing
+        Future<Void> fillerDone = queueFiller.disable();
 
-        // remove any leftover frames
-        nextFrame();
+        // remove any leftover frames, and free the cached ones
+        flushFrames();
+        frameCache.clear();
+        
+        Future<Void> audioDone;
+        synchronized (this) {
+            if (memoryAccount != null) {
+                memoryAccount.close();
+                memoryAccount = null;
+            }
+            
+            audioDone = audioTeardown;
+        }
 
         notifyFrameListenersClose();
 
         mediaURI = null;
         setState(VideoPlayerState.NO_MEDIA);
+        
+        playbackStats.unregister();
+        
+        return Reaper.getInstance().reapAll(String.valueOf(uri), fillerDone, 
+                                            audioDone);
     }
 
     /**
@@ -380,6 +676,14 @@ public class VideoPlayerImpl implements VideoStateSource,
 
         return dimension;
     }
+    
+    /**
+     * Get the pixel format of video frames in this video
+     * @return the pixel format, or null if no video is open
+     */
+    public synchronized IPixelFormat.Type getPixelFormat() {
+        return queueFiller.getPixelType();
+    }
 
     /**
      * Determine if media player is ready to play media
@@ -400,10 +704,18 @@ public class VideoPlayerImpl implements VideoStateSource,
         if (isPlayable() && (getState() != VideoPlayerState.PLAYING)) {
             setState(VideoPlayerState.PLAYING);
 
+            // frames are only cached for stepping while not playing
+            cancelStep();
+            frameCache.clear();
+            
             // read packets from the queue
             setFinished(false);
             queueFiller.enable();
-            audioQueue.start();
+            
+            // the audio thread is opened by the first packet after the
+            // media is opened or cleared. If that hasn't arrived yet,
+            // updateTimeSource() starts the thread when it does.
+            audioQueue.startIfOpen();
             
             // notify listeners
             notifyFrameListenersPlay(this);
@@ -425,8 +737,8 @@ public class VideoPlayerImpl implements VideoStateSource,
 
         if (isPlayable() && (getState() != VideoPlayerState.PAUSED)) {
             setState(VideoPlayerState.PAUSED);
-            audioQueue.close();
-            frameQueue.clear();
+            retireAudio();
+            flushFrames();
             setNeedsPreview(true);
         }
     }
@@ -451,8 +763,8 @@ public class VideoPlayerImpl implements VideoStateSource,
         {
             // stop the current video
             queueFiller.disable();
-            audioQueue.close();
-            frameQueue.clear();
+            retireAudio();
+            flushFrames();
             
             // remove any leftover frames
             notifyFrameListenersStop();
@@ -489,6 +801,8 @@ public class VideoPlayerImpl implements VideoStateSource,
 
     @Override
     public synchronized void setPosition(double mediaPosition) {
+        cancelStep();
+        playbackStats.seekStarted();
         queueFiller.seek(mediaPosition);
         setNeedsPreview(true);
     }
@@ -499,199 +813,779 @@ public class VideoPlayerImpl implements VideoStateSource,
     }
 
     @Override
-    public double getDuration() {
-        return queueFiller.getDuration();
-    }
-
-    @Override
-    public synchronized void mute() {
-        mute = true;
-    }
-
-    @Override
-    public synchronized void unmute() {
-        mute = false;
-    }
-
-    @Override
-    public synchronized boolean isMuted() {
-        return mute;
-    }
-
-    @Override
-    public synchronized void setVolume(float volume) {
-        this.volume = volume;
-    }
-
-    @Override
-    public synchronized float getVolume() {
-        if (isMuted()) {
-            return 0f;
+    public void stepForward() {
+        if (getState() == VideoPlayerState.PLAYING) {
+            pause();
+            
+            // we will show the frame ourselves
+            setNeedsPreview(false);
         }
-
-        return this.volume;
-    }
-
-    /**
-     * Sets the state of the player
-     * @param mediaState the new player state
-     */
-    private void setState(VideoPlayerState state) {
-        VideoPlayerState oldState;
         
-        synchronized (this) {
-            oldState = mediaState;
-            mediaState = state;
+        long cur = getLastFramePTS();
+        
+        // see if we decoded the next frame already
+        VideoFrame next = frameCache.getNext(cur);
+        
+        // if not, look in the queue, discarding anything we have already
+        // shown
+        while (next == null || next.getTimeStamp() <= cur) {
+            if (next != null) {
+                next.release();
+            }
+            
+            next = frameQueue.poll();
+            frameQueueChanged();
+            if (next == null) {
+                // the frame hasn't been decoded yet. Show it when it is,
+                // rather than making the caller wait.
+                synchronized (this) {
+                    pendingStep = cur;
+                }
+                
+                return;
+            }
         }
         
-        notifyStateListeners(oldState, mediaState);
+        showFrame(next);
+        next.release();
+    }
     
-        if (state == VideoPlayerState.MEDIA_READY || 
-            state == VideoPlayerState.STOPPED) 
-        {
-            setNeedsPreview(true);
+    /**
+     * Check if a step forward is waiting for the given frame, and stop
+     * waiting if it is
+     * @param pts the time of the frame
+     * @return true if the frame should be shown for the step
+     */
+    private synchronized boolean takePendingStep(long pts) {
+        if (pendingStep == NO_STEP || pts <= pendingStep) {
+            return false;
         }
+        
+        pendingStep = NO_STEP;
+        return true;
     }
-
+    
     /**
-     * Gets the state of the player
-     * @return the player state
+     * Stop waiting for a step forward
      */
-    @Override
-    public synchronized VideoPlayerState getState() {
-        return mediaState;
+    private synchronized void cancelStep() {
+        pendingStep = NO_STEP;
     }
     
-    @Override
-    public void newStream(int id, IStreamCoder coder) {
-        if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
-            audioQueue.setAudioCoder(coder);
-        } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
-            // calculate how long each frame should be visible -- used
-            // in picking frames during getNextFrame();
-            frameTime = (long) (1000000 * (1.0 / coder.getFrameRate().getDouble()));
-
-            notifyFrameListenersOpen(coder.getWidth(), coder.getHeight(),
-                                     coder.getPixelType());
+    /**
+     * Remember a frame in case we step to it. Frames are only cached 
+     * while the player is not playing, so a playing player doesn't hold
+     * memory just in case the user steps.
+     * @param frame the frame to cache
+     */
+    private void cacheFrame(VideoFrame frame) {
+        if (getState() != VideoPlayerState.PLAYING) {
+            frameCache.add(frame, getFrameTime());
         }
     }
 
     @Override
-    public void add(IVideoPicture picture) throws InterruptedException {
-        updateTimeSource(picture.getTimeStamp());
-
-        // do we need a preview frame
-        if (isNeedsPreview()) {
-            notifyFrameListenersPreview(picture);
+    public void stepBackward() {
+        if (!isSeekEnabled()) {
+            LOGGER.warning("Unable to step backward");
+            return;
+        }
+        
+        if (getState() == VideoPlayerState.PLAYING) {
+            pause();
+            
+            // we will show the frame ourselves
             setNeedsPreview(false);
-            lastFrameTime = picture.getTimeStamp() / 1000000.0;
         }
-
-        frameQueue.put((IVideoPicture) picture);   
+        
+        long cur = getLastFramePTS();
+        
+        // most of the time, the previous frame is cached
+        VideoFrame prev = frameCache.getPrevious(cur);
+        if (prev != null) {
+            showFrame(prev);
+            prev.release();
+            return;
+        }
+        
+        // if not, seek to it. The frames decoded on the way to the target
+        // are cached, so stepping back again will be quick
+        long target = cur - getFrameTime();
+        if (target >= 0) {
+            setPosition(target / 1000000.0);
+        }
     }
     
-    @Override
-    public void add(AudioFrame frame) throws InterruptedException {
-        updateTimeSource(frame.getPTS());
-        audioQueue.add(frame);
+    /**
+     * Set the maximum amount of memory used to cache decoded frames for
+     * stepping through video
+     * @param size the size of the cache in bytes, or 0 to disable caching
+     */
+    public void setFrameCacheSize(long size) {
+        frameCacheSize = size;
+        applyMemoryPressure();
     }
     
-    @Override
-    public void clear() {
-        LOGGER.warning("Clear");
-        
-        // remove all pending video frames
-        frameQueue.clear();
-        
-        // stop the audio queue. If the video is still playing, the queue
-        // will automatically be restarted the first time a packet is added
-        audioQueue.close();
+    /**
+     * Get the maximum amount of memory used to cache decoded frames. Under
+     * memory pressure, the cache may be smaller than this.
+     * @return the size of the cache in bytes
+     */
+    public long getFrameCacheSize() {
+        return frameCacheSize;
     }
     
-    @Override
-    public void finished() {
-        // notification that there is no more data
-        setFinished(true);
+    /**
+     * Get the audio tracks in the current media
+     * @return the audio tracks, or an empty list if no media is open
+     */
+    public List<AudioTrack> getAudioTracks() {
+        return queueFiller.getAudioTracks();
     }
     
-    private synchronized void setFinished(boolean finished) {
-        this.finished = finished;
+    /**
+     * Get the audio track currently being played
+     * @return the stream index of the track, or -1 if there is none
+     */
+    public int getAudioTrack() {
+        return queueFiller.getAudioTrack();
     }
     
-    private synchronized boolean isFinished() {
-        return finished;
+    /**
+     * Switch to a different audio track, without reopening or seeking.
+     * Other audio tracks are discarded without being decoded.
+     * @param index the stream index of the track, from
+     * <code>AudioTrack.getIndex()</code>
+     * @throws IllegalArgumentException if there is no such audio track
+     */
+    public void setAudioTrack(int index) {
+        queueFiller.setAudioTrack(index);
     }
     
-    private void updateTimeSource(long timestamp) {
-        // open the queue if this is the first packet we see. This automatically
-        // sets the start time of the queue to the PTS of the first packet after
-        // a clear
-        if (!audioQueue.isOpen()) {
-            LOGGER.fine("Open time source at time " + (timestamp / 1000000.0));
-            audioQueue.open(timestamp);
-        }
-        
-        // automatically restart the time source if the video is currently
-        // playing and we aren't seeking. In the case of a seek, this will 
-        // restart the playback as soon as both the audio and video queues
-        // have content. Note that we wait for the frame queue to fill to
-        // one less than capacity, indicating that all video frames have
-        // be cached for writing
-        if (!audioQueue.isRunning() &&  
-            getState() == VideoPlayerState.PLAYING && 
-            !queueFiller.isSeeking() &&
-            frameQueue.remainingCapacity() == 1) 
+    /**
+     * Set whether frames may be scaled down when native memory is over
+     * budget. Scaled frames are smaller than the size returned by
+     * <code>getFrameSize()</code>, so this should only be allowed if all
+     * frame listeners check the size of each picture.
+     * @param downscaleAllowed true to allow frames to be scaled down
+     */
+    public void setDownscaleAllowed(boolean downscaleAllowed) {
+        this.downscaleAllowed = downscaleAllowed;
+        pressureChanged.set(true);
+    }
+    
+    /**
+     * Get whether frames may be scaled down when memory is over budget
+     * @return true if frames may be scaled down
+     */
+    public boolean isDownscaleAllowed() {
+        return downscaleAllowed;
+    }
+    
+    /**
+     * Set how frames are checked for duplicates. Frames returned by
+     * <code>nextFrame()</code> that are identical to the previous frame
+     * are marked as duplicates, so consumers can skip converting them.
+     * @param sampleStep hash every nth 8-byte word of each frame, or 0 to
+     * turn off duplicate detection. A step of 1 hashes the whole frame, 
+     * and finds duplicates exactly. The default is 0, since hashing reads
+     * every frame decoded, so consumers that check for duplicates must 
+     * turn it on.
+     */
+    public void setDuplicateSampleStep(int sampleStep) {
+        queueFiller.setDuplicateSampleStep(sampleStep);
+    }
+    
+    /**
+     * Get how frames are checked for duplicates
+     * @return the sample step, or 0 if duplicates are not detected
+     */
+    public int getDuplicateSampleStep() {
+        return queueFiller.getDuplicateSampleStep();
+    }
+    
+    /**
+     * Set the size of the tiles changes are reported in. When set, each
+     * frame returned by <code>nextFrame()</code> reports which tiles 
+     * changed since the frame returned before it, so consumers can convert
+     * and upload only those parts.
+     * @param tileSize the width and height of a tile in pixels, which must
+     * be a multiple of 16, or 0 (the default) not to report changes
+     * @throws IllegalArgumentException if the tile size is not valid
+     */
+    public void setDirtyTileSize(int tileSize) {
+        queueFiller.setDirtyTileSize(tileSize);
+    }
+    
+    /**
+     * Get the size of the tiles changes are reported in
+     * @return the tile size, or 0 if changes are not reported
+     */
+    public int getDirtyTileSize() {
+        return queueFiller.getDirtyTileSize();
+    }
+    
+    /**
+     * Get the native memory pressure this player is currently responding
+     * to
+     * @return the memory pressure
+     */
+    public Pressure getMemoryPressure() {
+        return memoryPressure;
+    }
+    
+    /**
+     * Apply the memory pressure if it has changed since it was last
+     * applied. Must not be called while holding the player or frame
+     * cache lock, since shrinking the cache frees frames.
+     */
+    private void checkMemoryPressure() {
+        if (pressureChanged.getAndSet(false)) {
+            applyMemoryPressure();
+        }
+    }
+    
+    /**
+     * Size the frame cache and frame queue, and choose whether to scale
+     * frames down, based on the current memory pressure. Under high
+     * pressure the cache and queue shrink; under critical pressure the
+     * cache is disabled, a single frame is queued and frames are scaled
+     * down if allowed.
+     */
+    private void applyMemoryPressure() {
+        Pressure pressure = memoryPressure;
+        
+        long cacheSize = frameCacheSize;
+        int queueLimit = isLive() ? LIVE_FRAME_QUEUE_SIZE : FRAME_QUEUE_SIZE;
+        int downscale = 1;
+        
+        switch (pressure) {
+            case HIGH:
+                cacheSize /= 4;
+                queueLimit = Math.max(queueLimit / 2, 1);
+                break;
+            case CRITICAL:
+                cacheSize = 0;
+                queueLimit = 1;
+                downscale = downscaleAllowed ? CRITICAL_DOWNSCALE : 1;
+                break;
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Memory pressure " + pressure + ": cache " + 
+                        cacheSize + " bytes, queue " + queueLimit + 
+                        " frames, downscale " + downscale);
+        }
+        
+        frameQueueLimit = queueLimit;
+        synchronized (frameQueueSpace) {
+            frameQueueSpace.notifyAll();
+        }
+        
+        frameCache.setMaxSize(cacheSize);
+        queueFiller.setDownscale(downscale);
+    }
+    
+    /**
+     * Show a single frame to the listeners, and make it the current frame
+     * @param frame the frame to show
+     */
+    private void showFrame(VideoFrame frame) {
+        setLastFrame(frame.getTimeStamp());
+        notifyFrameListenersPreview(frame);
+    }
+    
+    private synchronized void setLastFrame(long pts) {
+        lastFramePTS = pts;
+        lastFrameTime = pts / 1000000.0;
+    }
+    
+    private synchronized long getLastFramePTS() {
+        return lastFramePTS;
+    }
+    
+    private synchronized long getFrameTime() {
+        return frameTime;
+    }
+
+    @Override
+    public double getDuration() {
+        return queueFiller.getDuration();
+    }
+
+    @Override
+    public void setRate(double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        
+        if (rate == getRate()) {
+            return;
+        }
+        
+        if (rate != 1.0 && !isSeekEnabled()) {
+            LOGGER.warning("Unable to change rate");
+            return;
+        }
+        
+        setRateInternal(rate);
+        
+        // restart from the current position, so the clock and decoders
+        // start fresh at the new rate
+        if (isPlayable()) {
+            setPosition(getPosition());
+        }
+    }
+
+    @Override
+    public synchronized double getRate() {
+        return rate;
+    }
+    
+    /**
+     * Set the rate and configure the queue filler to match, without
+     * restarting playback
+     * @param rate the new rate
+     */
+    private void setRateInternal(double rate) {
+        synchronized (this) {
+            this.rate = rate;
+        }
+        
+        // at high rates, decode key frames only. Audio is only played
+        // at normal speed
+        queueFiller.setKeyFramesOnly(rate > KEY_FRAMES_ONLY_RATE);
+        updateStreams();
+    }
+    
+    /**
+     * Decide which streams to decode. Video is decoded while a frame
+     * listener is attached, and audio while it can be heard. Packets from
+     * other streams are discarded as soon as they are read.
+     * <p>
+     * One stream is always decoded, since decoded packets drive the
+     * clock: without a frame listener, audio is still decoded at normal
+     * speed (and played silently if it is muted), and video is decoded at
+     * other speeds. Either way the queue filler is paced by playback, 
+     * since both the frame queue and the audio queue block when full.
+     * Audio queued when audio decoding is turned off is discarded.
+     */
+    private void updateStreams() {
+        boolean normalRate;
+        boolean audible;
+        synchronized (this) {
+            normalRate = (rate == 1.0);
+            audible = !mute && volume > 0f;
+        }
+        
+        boolean watched = !frameListeners.isEmpty();
+        boolean decodeAudio = normalRate && (audible || !watched);
+        boolean decodeVideo = watched || !normalRate;
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Decode audio: " + decodeAudio + ", video: " + 
+                        decodeVideo);
+        }
+        
+        audioAudible = audible;
+        
+        // audio already queued would play out of step once decoding
+        // starts again
+        if (!decodeAudio && queueFiller.isAudioEnabled()) {
+            audioQueue.clearQueued();
+        }
+        
+        queueFiller.setAudioEnabled(decodeAudio);
+        queueFiller.setVideoEnabled(decodeVideo);
+    }
+
+    @Override
+    public void mute() {
+        synchronized (this) {
+            mute = true;
+        }
+        
+        updateStreams();
+    }
+
+    @Override
+    public void unmute() {
+        synchronized (this) {
+            mute = false;
+        }
+        
+        updateStreams();
+    }
+
+    @Override
+    public synchronized boolean isMuted() {
+        return mute;
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        synchronized (this) {
+            this.volume = volume;
+        }
+        
+        updateStreams();
+    }
+
+    @Override
+    public synchronized float getVolume() {
+        if (isMuted()) {
+            return 0f;
+        }
+
+        return this.volume;
+    }
+
+    /**
+     * Determine if the current media is a live stream. Live streams are
+     * played with small fixed buffers, and playback is sped up or skipped 
+     * forward to stay close to the live edge.
+     * @return true if the current media is live
+     */
+    public boolean isLive() {
+        return queueFiller.isLive();
+    }
+    
+    /**
+     * Set the target latency for live streams
+     * @param liveLatencyTarget the target distance from the live edge,
+     * in microseconds
+     */
+    public synchronized void setLiveLatencyTarget(long liveLatencyTarget) {
+        this.liveLatencyTarget = liveLatencyTarget;
+    }
+    
+    /**
+     * Get the target latency for live streams
+     * @return the target distance from the live edge, in microseconds
+     */
+    public synchronized long getLiveLatencyTarget() {
+        return liveLatencyTarget;
+    }
+    
+    /**
+     * Get the estimated distance from the live edge of a live stream. 
+     * @return the latency in microseconds, or -1 if the media is not 
+     * live or is not playing
+     */
+    public long getLiveLatency() {
+        return audioQueue.getLiveLatency();
+    }
+    
+    /**
+     * Set whether audio should be converted to the preferred format of the
+     * output line. If this is false, the line is opened with the format
+     * of the media, and audio is only converted if the line does not
+     * support that format. The change takes effect the next time the
+     * audio line is opened.
+     * @param resampleAudio true to always convert to the line's format
+     */
+    public synchronized void setResampleAudio(boolean resampleAudio) {
+        this.resampleAudio = resampleAudio;
+    }
+
+    /**
+     * Get whether audio is converted to the preferred format of the
+     * output line.
+     * @return true if audio is always converted to the line's format
+     */
+    public synchronized boolean isResampleAudio() {
+        return resampleAudio;
+    }
+
+    /**
+     * Sets the state of the player
+     * @param mediaState the new player state
+     */
+    private void setState(VideoPlayerState state) {
+        VideoPlayerState oldState;
+        
+        synchronized (this) {
+            oldState = mediaState;
+            mediaState = state;
+        }
+        
+        notifyStateListeners(oldState, state);
+    
+        if (state == VideoPlayerState.MEDIA_READY || 
+            state == VideoPlayerState.STOPPED) 
         {
-            audioQueue.start();
+            setNeedsPreview(true);
         }
     }
 
     /**
-     * Initialize JavaSound
-     * @param aAudioCoder an audio decoder
-     * @throws LineUnavailableException
+     * Gets the state of the player
+     * @return the player state
      */
-    private static SourceDataLine openJavaSound(IStreamCoder aAudioCoder)
-            throws LineUnavailableException
-    {
-        AudioFormat audioFormat = new AudioFormat(aAudioCoder.getSampleRate(),
-                (int) IAudioSamples.findSampleBitDepth(aAudioCoder.getSampleFormat()),
-                aAudioCoder.getChannels(),
-                true, /* xuggler defaults to signed 16 bit samples */
-                false);
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
-        SourceDataLine out = (SourceDataLine) AudioSystem.getLine(info);
+    @Override
+    public synchronized VideoPlayerState getState() {
+        return mediaState;
+    }
+    
+    @Override
+    public void newStream(int id, IStreamCoder coder) {
+        if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
+            // hold the lock, so the coder isn't lost if the audio thread
+            // is being replaced
+            synchronized (this) {
+                audioQueue.setAudioCoder(coder);
+            }
+        } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
+            // calculate how long each frame should be visible -- used
+            // in picking frames during getNextFrame();
+            frameTime = (long) (1000000 * (1.0 / coder.getFrameRate().getDouble()));
 
-        // try opening the line.
-        out.open(audioFormat);
-        return out;
+            // size the frame queue for the new media once its frames 
+            // arrive, since live streams queue fewer frames
+            pressureChanged.set(true);
+
+            notifyFrameListenersOpen(coder.getWidth(), coder.getHeight(),
+                                     coder.getPixelType());
+        }
     }
 
+    @Override
+    public void add(VideoFrame frame) throws InterruptedException {
+        checkMemoryPressure();
+        
+        playbackStats.frameArrived();
+        updateTimeSource(frame.getTimeStamp());
+
+        // do we need a preview frame
+        if (isNeedsPreview()) {
+            notifyFrameListenersPreview(frame);
+            setNeedsPreview(false);
+            setLastFrame(frame.getTimeStamp());
+        }
+        
+        // remember the frame in case we want to step back to it
+        cacheFrame(frame);
+        
+        // if a step is waiting for this frame, show it now instead of
+        // queueing it
+        if (takePendingStep(frame.getTimeStamp())) {
+            showFrame(frame);
+            frame.release();
+            return;
+        }
+
+        // the queue holds the filler's reference until the frame is
+        // displayed or dropped
+        long start = PipelineTrace.begin();
+        try {
+            // under memory pressure, queue fewer frames than the queue holds
+            synchronized (frameQueueSpace) {
+                while (frameQueueLimit < FRAME_QUEUE_SIZE &&
+                       frameQueue.size() >= frameQueueLimit)
+                {
+                    frameQueueSpace.wait();
+                }
+            }
+            
+            frameQueue.put(frame);
+        } catch (InterruptedException ie) {
+            frame.release();
+            throw ie;
+        }
+        PipelineTrace.end(Stage.FRAME_QUEUE_PUT, PipelineTrace.UNKNOWN,
+                          frame.getTimeStamp(), start);
+    }
+    
+    @Override
+    public void seekEnabledChanged(boolean seekEnabled) {
+        notifyCapabilityListeners(seekEnabled);
+    }
+    
+    @Override
+    public void seekFrame(VideoFrame frame) {
+        checkMemoryPressure();
+        
+        // frames decoded on the way to a seek target are exactly the frames
+        // we need when stepping backwards
+        cacheFrame(frame);
+        frame.release();
+    }
+    
+    @Override
+    public void add(AudioFrame frame) throws InterruptedException {
+        updateTimeSource(frame.getPTS());
+        audioQueue.add(frame);
+    }
+    
+    @Override
+    public void clear() {
+        LOGGER.warning("Clear");
+        long start = PipelineTrace.begin();
+        
+        // remove all pending video frames
+        flushFrames();
+        
+        // stop the audio queue. If the video is still playing, a new queue
+        // will automatically be started the first time a packet is added
+        retireAudio();
+        
+        PipelineTrace.end(Stage.CLEAR, PipelineTrace.UNKNOWN, 
+                          PipelineTrace.UNKNOWN, start);
+    }
+    
+    @Override
+    public void finished() {
+        // notification that there is no more data
+        setFinished(true);
+    }
+    
     /**
-     * Play audio samples
-     * @param aSamples audio samples to play
+     * Remove all pending frames from the frame queue
      */
-    private static void playJavaSound(SourceDataLine line, byte[] rawBytes,
-                                      int length) 
-    {
-        // we're just going to dump all the samples into the line
-        if (line != null) {
-            line.write(rawBytes, 0, length);
+    private void flushFrames() {
+        forgetLastFrame();
+        cancelStep();
+        
+        // release the frames as we go, so their memory is freed now
+        // rather than when they are garbage collected
+        int dropped = 0;
+        VideoFrame frame;
+        while ((frame = frameQueue.poll()) != null) {
+            frame.release();
+            dropped++;
+        }
+        
+        frameQueueChanged();
+        playbackStats.framesDropped(dropped);
+    }
+    
+    /**
+     * Wake up the queue filler if it is waiting for space in a frame queue
+     * that is limited by memory pressure
+     */
+    private void frameQueueChanged() {
+        if (frameQueueLimit < FRAME_QUEUE_SIZE) {
+            synchronized (frameQueueSpace) {
+                frameQueueSpace.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Get the number of frames waiting to be displayed
+     * @return the frame queue depth
+     */
+    int getFrameQueueDepth() {
+        return frameQueue.size();
+    }
+    
+    /**
+     * Get the amount of audio waiting to be written to the line
+     * @return the audio queue depth in microseconds
+     */
+    long getAudioQueueDepth() {
+        return audioQueue.getBufferedMicroseconds();
+    }
+    
+    /**
+     * Get the amount of audio we are trying to keep buffered
+     * @return the target depth in microseconds
+     */
+    long getAudioTargetDepth() {
+        return audioQueue.jitterBuffer.getTargetDepth();
+    }
+    
+    /**
+     * Get the estimated audio arrival jitter
+     * @return the jitter in microseconds
+     */
+    long getAudioJitter() {
+        return audioQueue.jitterBuffer.getJitter();
+    }
+    
+    private synchronized void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+    
+    private synchronized boolean isFinished() {
+        return finished;
+    }
+    
+    /**
+     * Stop the audio thread, replacing it with a new one that is ready to
+     * be opened. The old thread is stopped and its line closed in the
+     * background, since that can take a while.
+     */
+    private void retireAudio() {
+        final AudioThread old;
+        synchronized (this) {
+            old = audioQueue;
+            if (!old.isOpen() && !old.isRunning()) {
+                // nothing to close
+                return;
+            }
+            
+            audioQueue = new AudioThread(old);
+            audioTeardown = Reaper.getInstance().reap("audio", new Runnable() {
+                public void run() {
+                    old.close();
+                }
+            });
         }
     }
+    
+    private void updateTimeSource(long timestamp) {
+        // open the queue if this is the first packet we see. This automatically
+        // sets the start time of the queue to the PTS of the first packet after
+        // a clear
+        AudioThread audio = audioQueue;
+        if (!audio.isOpen()) {
+            LOGGER.fine("Open time source at time " + (timestamp / 1000000.0));
+            audio.open(timestamp);
+        }
+        
+        // automatically restart the time source if the video is currently
+        // playing and we aren't seeking. In the case of a seek, this will 
+        // restart the playback as soon as both the audio and video queues
+        // have content. Note that we wait for the frame queue to fill to
+        // one less than its limit, indicating that all video frames have
+        // be cached for writing. If video isn't being decoded, there is
+        // nothing to wait for.
+        if (!audio.isRunning() &&  
+            getState() == VideoPlayerState.PLAYING && 
+            !queueFiller.isSeeking() &&
+            AudioClock.isReadyToStart(queueFiller.isVideoEnabled(),
+                                      frameQueue.size(), frameQueueLimit)) 
+        {
+            audio.start();
+        }
+    }
+
+    /**
+     * Get the format of the audio produced by the given coder
+     * @param aAudioCoder an audio decoder
+     * @return the format of the decoded audio
+     */
+    private static AudioFormat getCoderFormat(IStreamCoder aAudioCoder) {
+        return new AudioFormat(aAudioCoder.getSampleRate(),
+                (int) IAudioSamples.findSampleBitDepth(aAudioCoder.getSampleFormat()),
+                aAudioCoder.getChannels(),
+                true, /* xuggler defaults to signed 16 bit samples */
+                false);
+    }
 
     /**
      * Manually adjust the volume of a byte buffer. We do this since
      * JavaSound volume controls don't always work, and the gain
      * controls are unreliable.
-     * @param line the data line
+     * @param format the format of the data
      * @param vol the volume adjustment
      * @param buffer the buffer to adjust (changes are made in place)
      * @param offset the start of the buffer to adjust
      * @param length the length of data to adjust
      */
-    private static byte[] adjustVolume(SourceDataLine line, float vol,
-                                       byte[] buffer, int offset, int length)
+    static byte[] adjustVolume(AudioFormat format, float vol,
+                               byte[] buffer, int offset, int length)
     {
         if (vol == 1f) {
             return buffer;
@@ -699,7 +1593,7 @@ public class VideoPlayerImpl implements VideoStateSource,
 
         // create a buffer with the right endian-ness
         ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
-        bb.order(line.getFormat().isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        bb.order(format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
 
         // turn into a short buffer
         ShortBuffer sb = bb.asShortBuffer();
@@ -722,44 +1616,180 @@ public class VideoPlayerImpl implements VideoStateSource,
         return bb.array();
     }
 
+    private synchronized boolean isNeedsPreview() {
+        return needsPreview;
+    }
+    
+    private synchronized void setNeedsPreview(boolean needsPreview) {
+        this.needsPreview = needsPreview;
+    }
+    
     /**
-     * Shutdown JavaSound
+     * A state change. If listeners haven't been told about a change
+     * yet when the state changes again, they are told about both at once,
+     * from the first old state to the last new state. If the state ends
+     * up where it started, they are not told at all.
      */
-    private static void closeJavaSound(SourceDataLine line) {
-        // close the line.
-        if (line != null) {
-            line.close();
+    private class StateEvent extends EventDispatcher.Event {
+        private final VideoPlayerState oldState;
+        private VideoPlayerState newState;
+        private boolean coalesced;
+        
+        public StateEvent(VideoPlayerState oldState, 
+                          VideoPlayerState newState) 
+        {
+            this.oldState = oldState;
+            this.newState = newState;
+        }
+        
+        @Override
+        public boolean coalesce(EventDispatcher.Event next) {
+            if (!(next instanceof StateEvent)) {
+                return false;
+            }
+            
+            newState = ((StateEvent) next).newState;
+            coalesced = true;
+            return true;
+        }
+        
+        @Override
+        public void deliver() {
+            if (coalesced && oldState == newState) {
+                return;
+            }
+            
+            for (VideoStateListener listener : stateListeners) {
+                listener.mediaStateChanged(oldState, newState);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "StateEvent[" + oldState + " -> " + newState + "]";
         }
     }
     
-    private synchronized boolean isNeedsPreview() {
-        return needsPreview;
+    /**
+     * A preview frame. The event holds a reference to the frame until it
+     * is delivered. If another preview arrives first, only the newer frame
+     * is shown.
+     */
+    private class PreviewEvent extends EventDispatcher.Event {
+        private VideoFrame frame;
+        
+        public PreviewEvent(VideoFrame frame) {
+            frame.retain();
+            this.frame = frame;
+        }
+        
+        @Override
+        public boolean coalesce(EventDispatcher.Event next) {
+            if (!(next instanceof PreviewEvent)) {
+                return false;
+            }
+            
+            frame.release();
+            frame = ((PreviewEvent) next).frame;
+            return true;
+        }
+        
+        @Override
+        public void deliver() {
+            try {
+                for (FrameListener listener : frameListeners) {
+                    listener.previewFrame(frame);
+                }
+            } finally {
+                frame.release();
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "PreviewEvent[" + frame.getTimeStamp() + "]";
+        }
     }
     
-    private synchronized void setNeedsPreview(boolean needsPreview) {
-        this.needsPreview = needsPreview;
+    /**
+     * A change in memory pressure, applied on the event thread so a
+     * player that isn't receiving frames still frees memory. Any number
+     * of changes before it is delivered are applied at once.
+     */
+    private class PressureEvent extends EventDispatcher.Event {
+        @Override
+        public boolean coalesce(EventDispatcher.Event next) {
+            return next instanceof PressureEvent;
+        }
+        
+        @Override
+        public void deliver() {
+            checkMemoryPressure();
+        }
+        
+        @Override
+        public String toString() {
+            return "PressureEvent[" + memoryPressure + "]";
+        }
     }
     
     class AudioThread implements Runnable, ReadTimeout {
         private IStreamCoder audioCoder;
-        private SourceDataLine line;
-        private int frameSize;
+        private AudioFormat lineFormat;
+        private AudioResampler resampler;
+        
+        // the sink is created when the thread is opened, but only 
+        // published once the thread has opened it, since sinks can't be
+        // used until then
+        private AudioSink pendingSink;
+        private AudioSink sink;
         private byte[] buffer;
         
         private Thread thread;
         private boolean quit;
         private AudioInputStream audioStream;
+        private final JitterBuffer jitterBuffer;
+        private AudioClock clock;
+        private boolean live;
+        private long liveLatency = -1;
+        private double clockRate = 1.0;
         
         private long startPTS;
-        private long lineStartTime;
-        private long bytesWritten;
         private long wallTime;
-        private boolean firstRead;
         
-        private int underrunCount;
+        /**
+         * Create a new audio thread
+         * @param jitterBuffer the jitter estimates to use
+         */
+        public AudioThread(JitterBuffer jitterBuffer) {
+            this.jitterBuffer = jitterBuffer;
+        }
+        
+        /**
+         * Create an audio thread to replace one that is being stopped,
+         * for the same media. The new thread keeps the decoder and the
+         * jitter estimates of the old one.
+         * @param previous the thread being replaced
+         */
+        public AudioThread(AudioThread previous) {
+            synchronized (previous) {
+                this.jitterBuffer = previous.jitterBuffer;
+                this.audioCoder = previous.audioCoder;
+            }
+        }
         
         public synchronized void setAudioCoder(IStreamCoder audioCoder) {
             this.audioCoder = audioCoder;
+            
+            if (isOpen()) {
+                // the audio track changed during playback. Keep the line
+                // and the buffer estimates, and convert the new track to
+                // the format of the line.
+                updateResampler();
+            } else {
+                // new media, so start estimating from scratch
+                jitterBuffer.reset();
+            }
         
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine(String.format("Set audio coder. Sample rate: %d, " +
@@ -773,17 +1803,39 @@ public class VideoPlayerImpl implements VideoStateSource,
         public synchronized void open(long startPTS) {
             this.startPTS = startPTS;
             audioStream = new AudioInputStream();
-            underrunCount = 0;
+            audioStream.setMaxBufferedMicroseconds(MAX_AUDIO_QUEUE);
+            jitterBuffer.resetArrivals();
+            
+            // the clock runs at the playback rate
+            clockRate = getRate();
+            
+            // live streams use a small fixed buffer
+            live = isLive();
+            liveLatency = -1;
+            if (live) {
+                jitterBuffer.setDepthRange(LIVE_BUFFER_DEPTH, LIVE_BUFFER_DEPTH);
+            } else {
+                jitterBuffer.setDepthRange(JitterBuffer.DEFAULT_MIN_DEPTH,
+                                           JitterBuffer.DEFAULT_MAX_DEPTH);
+            }
+            
+            // decide on the format of the line, and whether we need to
+            // convert audio to get there
+            AudioFormat coderFormat = getCoderFormat(audioCoder);
+            pendingSink = createAudioSink();
+            lineFormat = pendingSink.chooseFormat(coderFormat, 
+                                                  isResampleAudio());
+            updateResampler();
             
-            int sampleRate = audioCoder.getSampleRate();
-            int channels = audioCoder.getChannels();
-            float sampleSize = 
-                    IAudioSamples.findSampleBitDepth(audioCoder.getSampleFormat());
+            int sampleRate = (int) lineFormat.getSampleRate();
+            int channels = lineFormat.getChannels();
+            float sampleSize = lineFormat.getSampleSizeInBits();
             
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine(String.format("Open audio. Sample rate: %d, " +
-                            " sampleSize: %f, channels: %d.",
-                            sampleRate, sampleSize, channels));
+                            " sampleSize: %f, channels: %d, resample: %s.",
+                            sampleRate, sampleSize, channels, 
+                            String.valueOf(resampler != null)));
             }
             
             audioStream.start(startPTS, sampleRate,
@@ -795,8 +1847,85 @@ public class VideoPlayerImpl implements VideoStateSource,
             return audioStream != null;
         }
         
-        public void add(AudioFrame frame) {
-            audioStream.add(frame);
+        /**
+         * Create a resampler if the audio coder's format doesn't match
+         * the format of the line
+         */
+        private synchronized void updateResampler() {
+            AudioFormat coderFormat = getCoderFormat(audioCoder);
+            
+            resampler = null;
+            if (!lineFormat.matches(coderFormat)) {
+                resampler = new AudioResampler(
+                        (int) coderFormat.getSampleRate(), 
+                        coderFormat.getChannels(),
+                        (int) lineFormat.getSampleRate(),
+                        lineFormat.getChannels());
+            }
+        }
+        
+        public void add(AudioFrame frame) throws InterruptedException {
+            AudioInputStream stream;
+            AudioResampler curResampler;
+            synchronized (this) {
+                stream = audioStream;
+                curResampler = resampler;
+            }
+            
+            // the stream was closed while we were decoding
+            if (stream == null) {
+                return;
+            }
+            
+            // use the time the packet was read if we know it, rather than
+            // now, which includes the time spent decoding and waiting for
+            // space in the queues
+            long arrival = frame.getArrivalTime();
+            if (arrival < 0) {
+                arrival = System.nanoTime() / 1000;
+            }
+            
+            jitterBuffer.arrival(frame.getPTS(), arrival);
+            
+            // convert to the format of the line if necessary
+            if (curResampler != null) {
+                frame = curResampler.resample(frame);
+                if (frame == null) {
+                    return;
+                }
+            }
+            
+            // audio is decoded faster than it plays, so wait for the
+            // audio thread to use what is queued. This paces the queue
+            // filler when video isn't being decoded.
+            stream.waitForSpace();
+            stream.add(frame);
+        }
+        
+        /**
+         * Discard any audio that has been queued but not played
+         */
+        public void clearQueued() {
+            // don't hold our lock while calling into the stream, since the
+            // stream calls back into getReadTimeout() while locked
+            AudioInputStream stream;
+            synchronized (this) {
+                stream = audioStream;
+            }
+            
+            if (stream != null) {
+                stream.clear();
+            }
+        }
+        
+        /**
+         * Start the thread if it has been opened and is not already
+         * running
+         */
+        public synchronized void startIfOpen() {
+            if (isOpen() && !isRunning()) {
+                start();
+            }
         }
         
         public synchronized void start() {
@@ -826,8 +1955,8 @@ public class VideoPlayerImpl implements VideoStateSource,
             } catch (InterruptedException ie) {
             }
             
-            if (line != null) {
-                line.close();
+            if (sink != null) {
+                sink.close();
             }
         }
         
@@ -839,10 +1968,13 @@ public class VideoPlayerImpl implements VideoStateSource,
                 audioStream = null;
             }
             
-            if (line != null) {
-                line.flush();
-                line = null;
+            if (sink != null) {
+                sink.flush();
+                sink = null;
             }
+            
+            pendingSink = null;
+            clock = null;
         }
         
         public synchronized boolean isRunning() {
@@ -850,11 +1982,41 @@ public class VideoPlayerImpl implements VideoStateSource,
         }
         
         public synchronized long getCurrentPTS() {
-            if (line == null) {
+            if (clock == null) {
                 return startPTS;
             }
             
-            return startPTS + line.getMicrosecondPosition() - lineStartTime;
+            // include any data we skipped to catch up with a live stream
+            long skipped = 0;
+            if (audioStream != null) {
+                skipped = audioStream.getSkippedMicroseconds();
+            }
+            
+            long elapsed = clock.getElapsed();
+            if (clockRate != 1.0) {
+                elapsed = (long) (elapsed * clockRate);
+            }
+            
+            return startPTS + elapsed + skipped;
+        }
+        
+        public synchronized long getLiveLatency() {
+            return liveLatency;
+        }
+        
+        public long getBufferedMicroseconds() {
+            // don't hold our lock while calling into the stream, since the
+            // stream calls back into getReadTimeout() while locked
+            AudioInputStream stream;
+            synchronized (this) {
+                stream = audioStream;
+            }
+            
+            if (stream == null) {
+                return 0;
+            }
+            
+            return stream.getBufferedMicroseconds();
         }
         
         public synchronized long getWallTime() {
@@ -864,16 +2026,24 @@ public class VideoPlayerImpl implements VideoStateSource,
         public void run() {
             try {
                 synchronized (this) {
-                    line = openJavaSound(audioCoder);
-                    setLine(line);  
+                    // open the new sink, or reopen the current one if the
+                    // thread was stopped and started again
+                    AudioSink opening = (pendingSink != null) ? pendingSink 
+                                                              : sink;
+                    
+                    // the thread was closed, or never opened
+                    if (opening == null) {
+                        LOGGER.warning("Audio thread started before open");
+                        return;
+                    }
+                    
+                    opening.open(lineFormat);
+                    pendingSink = null;
+                    sink = opening;
+                    setSink(sink);
                 
-                    line.start();
-            
-                    // start with the number of bytes already in the line
-                    bytesWritten = line.getLongFramePosition() * frameSize;
-            
-                    // record the start time of the line
-                    lineStartTime = line.getMicrosecondPosition();
+                    sink.start();
+                    clock = new AudioClock(sink, audioStream, jitterBuffer);
             
                     // record the wall time we started as well for comparison
                     wallTime = System.nanoTime();
@@ -881,8 +2051,9 @@ public class VideoPlayerImpl implements VideoStateSource,
             
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine(String.format("Start audio thread: bytes = " +
-                                "%d lineStartTime = %d", bytesWritten, 
-                                lineStartTime));
+                                "%d lineStartTime = %d", 
+                                clock.getBytesWritten(), 
+                                clock.getLineStartTime()));
                 }
             
                 while (!isQuit()) {
@@ -895,11 +2066,11 @@ public class VideoPlayerImpl implements VideoStateSource,
                 
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine(String.format("Stop audio thread: bytes = %d " +
-                                " lineEndTime = %d", bytesWritten, 
-                                line.getMicrosecondPosition()));
+                                " lineEndTime = %d", clock.getBytesWritten(), 
+                                sink.getMicrosecondPosition()));
                 }
                 
-                closeJavaSound(line);
+                sink.close();
             } catch (LineUnavailableException lue) {
                 LOGGER.log(Level.WARNING, "Line unavailable", lue);
             } finally {                
@@ -911,17 +2082,35 @@ public class VideoPlayerImpl implements VideoStateSource,
         }      
         
         private void fillBuffer() throws InterruptedException {
-            // calculate the minimum amound of data to read, rounded up
-            // to the nearest frame
-            int minBytes = audioStream.microsecondsToBytes(20000);
-            if (minBytes % frameSize != 0) {
-                minBytes += frameSize - (minBytes % frameSize);
-            }            
+            // calculate the minimum amound of data to read
+            int minBytes;
+            synchronized (this) {
+                minBytes = clock.getMinReadBytes();
+            }
             
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine(String.format("Fill audio buffer at %d " +
                             "microseconds. Wall time: %d.", 
-                            line.getMicrosecondPosition(), getWallTime()));
+                            sink.getMicrosecondPosition(), getWallTime()));
+            }
+            
+            // if audio isn't being played, just write silence to keep the
+            // clock running. The line will block until it is ready for more.
+            // Queued audio is dropped as the clock passes it.
+            if (isSilent()) {
+                int read = audioStream.readSilence(buffer, 0, buffer.length);
+                writeLine(buffer, read);
+                
+                synchronized (this) {
+                    clock.written(read);
+                }
+                
+                return;
+            }
+            
+            // for live streams, make sure we are keeping up
+            if (live) {
+                updateLiveLatency();
             }
             
             // read data from the input stream 
@@ -929,100 +2118,118 @@ public class VideoPlayerImpl implements VideoStateSource,
             
             // adjust volume manually, since doing it via javasound is
             // unreliable
-            byte[] adjusted = adjustVolume(line, getVolume(), buffer, 0, read);
+            byte[] adjusted = adjustVolume(sink.getFormat(), getVolume(), buffer, 0, read);
             
             // check for buffer underrun
-            long lineBytes = line.getLongFramePosition() * frameSize;
-            if (lineBytes == bytesWritten) {
-                LOGGER.warning("Audio underrun");
-                underrunCount++;
-                
-                // if we get more than one consecutive audio underrun, it
-                // means something is wrong -- we are behind in a stream
-                // or something similar. Clear out the various buffers and
-                // restart the stream when we have data again
-                if (underrunCount >= 2) {
-                    VideoPlayerImpl.this.clear();
-                    return;
-                }
-            } else {
-                underrunCount = 0;
+            boolean underrun;
+            synchronized (this) {
+                underrun = clock.checkUnderrun(System.nanoTime() / 1000);
+            }
+            
+            if (underrun) {
+                playbackStats.underrun();
+                LOGGER.warning("Audio underrun. Target depth: " +
+                               jitterBuffer.getTargetDepth());
             }
             
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine(String.format("Fill audio buffer read %d bytes at " +
                             "%d microseconds. Write %d microseconds to " +
                             " line. Wall time: %d.", 
-                            read, line.getMicrosecondPosition(), 
+                            read, sink.getMicrosecondPosition(), 
                             audioStream.bytesToMicroseconds(read),
                             getWallTime()));
             }
             
-            // send data to JavaSound
-            playJavaSound(line, adjusted, read);
+            // send data to the sink
+            writeLine(adjusted, read);
             
             // update our internal tracking
             synchronized (this) {
-                bytesWritten += read;
+                clock.written(read);
             }
         }
         
-        public synchronized long getReadTimeout(int bytesRead) {
-            // estimate how long it will take to use all the data in the
-            // audio buffer
-            long lineBytes = line.getLongFramePosition() * frameSize;
-            long bufferBytes = bytesWritten - lineBytes;
-            long bufferMicros = audioStream.bytesToMicroseconds(bufferBytes);
-            
-            // special case -- if this is the first read after the buffer
-            // has started, give some time to fill the initial buffer
-            if (firstRead) {
-                firstRead = false;
-                bufferMicros = 20000;
+        /**
+         * Write data to the line, recording how long we wait for the
+         * line to accept it
+         * @param data the data to write
+         * @param length the number of bytes to write
+         */
+        private void writeLine(byte[] data, int length) {
+            long start = PipelineTrace.begin();
+            sink.write(data, 0, length);
+            
+            if (start != 0) {
+                // the PTS of the start of the data written
+                long pts = audioStream.getMicrosecondPosition() -
+                           audioStream.bytesToMicroseconds(length);
+                PipelineTrace.end(Stage.AUDIO_WRITE, PipelineTrace.UNKNOWN,
+                                  pts, start);
             }
+        }
+        
+        /**
+         * Determine if we are just using the line as a clock, with no
+         * audio being played
+         * @return true if only silence should be written to the line
+         */
+        private synchronized boolean isSilent() {
+            return clockRate != 1.0 || !audioAudible;
+        }
+        
+        /**
+         * Measure the distance to the live edge, and catch up if we have
+         * fallen too far behind. Small amounts of latency are removed by
+         * playing slightly faster. If we are far behind, stale audio is
+         * skipped, and video frames are dropped automatically when the
+         * clock jumps forward.
+         */
+        private void updateLiveLatency() {
+            long edge = jitterBuffer.getLiveEdge(System.nanoTime() / 1000);
+            if (edge < 0) {
+                return;
+            }
+            
+            long latency = edge - getCurrentPTS();
+            long target = getLiveLatencyTarget();
+            long over = latency - target;
             
-            // if there is data in the buffer, pad our timing
-            // so we don't have audio underruns while we are waiting to
-            // fill the buffer. The number used for padding (12000 microseconds)
-            // is the approximate resolution observed on the Mac implementation
-            // of JavaSound. A similar resolution was estimated on Windows.
-            // By padding by the timer resolution, we guarantee the audio 
-            // won't underrun because the timer hasn't updated yet.
-            if (bytesRead > 0) {
-                bufferMicros -= 12000;
+            if (over > LIVE_SKIP_THRESHOLD) {
+                long skipped = audioStream.skip(over);
+                
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(String.format("Live latency %d. Skipped %d.",
+                                latency, skipped));
+                }
+                
+                latency -= skipped;
             }
             
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.fine(String.format("Read timeout %d (line %d, " +
-                            "written %d) at wall time %d",
-                            bufferMicros, lineBytes, bytesWritten,
-                            getWallTime()));
+            if (latency - target > LIVE_SPEEDUP_THRESHOLD) {
+                audioStream.setSpeedup(LIVE_SPEEDUP_INTERVAL);
+            } else if (latency <= target) {
+                audioStream.setSpeedup(0);
             }
             
-            return Math.max(bufferMicros, 0);
+            synchronized (this) {
+                liveLatency = latency;
+            }
         }
         
-        private void setLine(SourceDataLine line) {
-            this.line = line;
-            this.frameSize = line.getFormat().getFrameSize();
-            
-            // buffer size is approximately 1/4 the audio buffer size, rounded
-            // to the nearest frame
-            int bufferSize = line.getBufferSize() / 4;
-            bufferSize -= bufferSize % frameSize;
-            this.buffer = new byte[bufferSize];
-            
-            this.firstRead = true;
+        public synchronized long getReadTimeout(int bytesRead) {
+            long timeout = clock.getReadTimeout(bytesRead);
             
             if (LOGGER.isLoggable(Level.FINE)) {
-                line.addLineListener(new LineListener() {
-                    public void update(LineEvent event) {
-                        long bytePosition = event.getFramePosition() * frameSize;
-                        LOGGER.fine(String.format("Line %s at %d", 
-                                    event.getType(), bytePosition));
-                    }                
-                });
+                LOGGER.fine(String.format("Read timeout %d at wall time %d",
+                            timeout, getWallTime()));
             }
+            
+            return timeout;
+        }
+        
+        private void setSink(AudioSink sink) {
+            this.buffer = new byte[AudioClock.getReadBufferSize(sink)];
         }
         
         private synchronized boolean isQuit() {
@@ -21,20 +21,34 @@ import com.xuggle.xuggler.Global;
 import com.xuggle.xuggler.IAudioSamples;
 import com.xuggle.xuggler.ICodec;
 import com.xuggle.xuggler.IContainer;
+import com.xuggle.xuggler.IContainerFormat;
 import com.xuggle.xuggler.IMediaData;
 import com.xuggle.xuggler.IPacket;
+import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IRational;
 import com.xuggle.xuggler.IStream;
 import com.xuggle.xuggler.IStreamCoder;
 import com.xuggle.xuggler.IVideoPicture;
+import com.xuggle.xuggler.IVideoResampler;
 import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 import java.util.logging.Level;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Account;
+import org.jdesktop.wonderland.video.client.NativeMemoryAccountant.Usage;
+import org.jdesktop.wonderland.video.client.PipelineTrace.Stage;
 
 /**
  *
@@ -49,10 +63,23 @@ public class VideoQueueFiller implements Runnable {
         "rtmp"
     };
     
+    // the time base of container times, in microseconds
+    private static final IRational MICROSECONDS = IRational.make(1, 1000000);
+    
     // default timeouts
     private static final int DEFAULT_OPEN_TIMEOUT = 60000;
     private static final int DEFAULT_CLOSE_TIMEOUT = 10000;
     
+    // the number of pictures a decoder typically holds internally for
+    // reference frames, used to estimate its memory
+    private static final int DECODER_PICTURES = 4;
+    
+    // estimates of native memory Xuggler doesn't report: a container's
+    // demuxer state and IO buffers, and an audio decoder's output buffer,
+    // which FFmpeg sizes for its largest audio frame
+    private static final long CONTAINER_MEMORY = 512 * 1024;
+    private static final long AUDIO_CODER_MEMORY = 192000;
+    
     private final VideoQueue queue;
 
     private String mediaURI;
@@ -64,16 +91,47 @@ public class VideoQueueFiller implements Runnable {
     private IStreamCoder audioCoder;
 
     private boolean mediaLoaded = false;    
-    private boolean canSeek = false;
-    private boolean quit = false;
+    
+    // whether the media can seek is only known once a seek has been tried.
+    // Until then, it is reported from a guess made when the media opened.
+    private Seekable seekable = Seekable.UNKNOWN;
+    private boolean seekGuess = false;
+    
+    private boolean keyFramesOnly = false;
+    private boolean keyFramesOnlyChanged = false;
+    private boolean audioEnabled = true;
+    private boolean videoEnabled = true;
+    
+    private List<AudioTrack> audioTracks = Collections.emptyList();
+    private int activeAudioTrack = -1;
+    private int requestedAudioTrack = -1;
 
     private int openTimeout = DEFAULT_OPEN_TIMEOUT;
     private int closeTimeout = DEFAULT_CLOSE_TIMEOUT;
     
     private Thread thread;
     
+    // completes when the last filler thread has exited and closed its media
+    private Future<Void> threadFinished = Reaper.done();
+    
     private SeekOperation seek;
     
+    private PlaybackStats stats;
+    
+    private Account memoryAccount;
+    private int downscale = 1;
+    private int duplicateSampleStep = 0;
+    private int dirtyTileSize = 0;
+    
+    // used only by the queue filler thread
+    private IVideoResampler resampler;
+    private FrameHasher hasher;
+    private DirtyTileDetector tileDetector;
+    private VideoFrame previousFrame;
+    private boolean waitForKeyFrame = false;
+    private Account codecAccount;
+    private long codecMemory;
+    
     public VideoQueueFiller(VideoQueue queue) {
         this.queue = queue;
     }
@@ -91,6 +149,15 @@ public class VideoQueueFiller implements Runnable {
 
         return out;
     }
+    
+    /**
+     * Get the pixel format of decoded video
+     * @return the pixel format, or null if there is no video
+     */
+    public IPixelFormat.Type getPixelType() {
+        IStreamCoder coder = videoCoder;
+        return (coder == null) ? null : coder.getPixelType();
+    }
    
     public int getOpenTimeout() {
         return openTimeout;
@@ -114,6 +181,9 @@ public class VideoQueueFiller implements Runnable {
             quit();
         }
 
+        // new media starts with the default audio track
+        requestedAudioTrack = -1;
+        
         // prepare the content (for example, by downloading it if it is not
         // cached)
         try {
@@ -140,10 +210,10 @@ public class VideoQueueFiller implements Runnable {
         }
 
         // if the media didn't load, but the thread still exists, it means
-        // there was a timeout. Try to force the thread to respond by
-        // interrupting it.
+        // there was a timeout. Stop the thread, and let it clean up in
+        // the background.
         if (!mediaLoaded && thread != null) {
-            thread.interrupt();
+            quit();
         }
         
         return mediaLoaded;
@@ -155,19 +225,86 @@ public class VideoQueueFiller implements Runnable {
         }
     }
 
+    /**
+     * Start a new filler thread. If the previous thread is still closing
+     * its media, the new thread waits for it before opening the media
+     * again.
+     */
     private synchronized void start() {
-        thread = new Thread(this, "Video Queue Filler");
+        final Future<Void> previous = threadFinished;
+        final FutureTask<Void> finished = new FutureTask<Void>(this, null) {
+            @Override
+            public void run() {
+                try {
+                    if (awaitPrevious(previous)) {
+                        super.run();
+                    }
+                } finally {
+                    threadExited();
+                }
+            }
+            
+            @Override
+            protected void setException(Throwable t) {
+                LOGGER.log(Level.WARNING, "Error in filler thread", t);
+                super.setException(t);
+            }
+        };
+        
+        threadFinished = finished;
+        thread = new Thread(finished, "Video Queue Filler");
         thread.start();
     }
+    
+    /**
+     * Wait for the previous filler thread to close its media, since it 
+     * uses the same fields as the new thread
+     * @param previous the previous thread's completion
+     * @return true to continue, or false if this thread was stopped while 
+     * waiting
+     */
+    private boolean awaitPrevious(Future<Void> previous) {
+        try {
+            previous.get(getCloseTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            return false;
+        } catch (ExecutionException ee) {
+            // already logged by the previous thread
+        } catch (TimeoutException te) {
+            LOGGER.warning("Previous filler thread did not exit");
+        }
+        
+        return !isQuit();
+    }
+    
+    /**
+     * Called when a filler thread exits
+     */
+    private synchronized void threadExited() {
+        LOGGER.warning("Thread " + Thread.currentThread() + " exiting");
+        
+        if (thread == Thread.currentThread()) {
+            thread = null;
+        }
+        
+        notifyAll();
+    }
 
     private synchronized boolean isRunning() {
         return thread != null && thread.isAlive();
     }
 
-    public synchronized void disable() {
+    /**
+     * Stop reading media. This returns right away, and the filler thread
+     * closes the media in the background.
+     * @return a future that completes when the media has been closed
+     */
+    public synchronized Future<Void> disable() {
         if (isRunning()) {
             quit();
         }
+        
+        return threadFinished;
     }
     
     /**
@@ -196,12 +333,245 @@ public class VideoQueueFiller implements Runnable {
      */
     public synchronized boolean canSeek() {
         if (mediaLoaded) {
-            return canSeek;
+            return isSeekEnabled();
         } else {
             return false;
         }
     }
     
+    /**
+     * Set whether to decode only key frames. This is much cheaper than
+     * decoding every frame, and is used for fast playback.
+     * @param keyFramesOnly true to decode only key frames
+     */
+    public synchronized void setKeyFramesOnly(boolean keyFramesOnly) {
+        if (this.keyFramesOnly != keyFramesOnly) {
+            this.keyFramesOnly = keyFramesOnly;
+            this.keyFramesOnlyChanged = true;
+        }
+    }
+    
+    /**
+     * Get whether only key frames are decoded
+     * @return true if only key frames are decoded
+     */
+    public synchronized boolean isKeyFramesOnly() {
+        return keyFramesOnly;
+    }
+    
+    /**
+     * Set whether to decode audio. If audio is not enabled, audio packets
+     * are discarded as soon as they are read, without decoding.
+     * @param audioEnabled true to decode audio
+     */
+    public synchronized void setAudioEnabled(boolean audioEnabled) {
+        this.audioEnabled = audioEnabled;
+        
+        // a seek in progress can't wait for audio we won't decode
+        if (!audioEnabled && seek != null) {
+            seek.setAudioFound();
+            checkSeekDone();
+        }
+    }
+    
+    /**
+     * Get whether audio is decoded
+     * @return true if audio is decoded
+     */
+    public synchronized boolean isAudioEnabled() {
+        return audioEnabled;
+    }
+    
+    /**
+     * Set whether to decode video. If video is not enabled, video packets
+     * are discarded as soon as they are read, without decoding. When video
+     * is enabled again, decoding resumes at the next key frame.
+     * @param videoEnabled true to decode video
+     */
+    public synchronized void setVideoEnabled(boolean videoEnabled) {
+        this.videoEnabled = videoEnabled;
+        
+        // a seek in progress can't wait for video we won't decode
+        if (!videoEnabled && seek != null) {
+            seek.setVideoFound();
+            checkSeekDone();
+        }
+    }
+    
+    /**
+     * Get whether video is decoded
+     * @return true if video is decoded
+     */
+    public synchronized boolean isVideoEnabled() {
+        return videoEnabled;
+    }
+    
+    /**
+     * Get the audio tracks in the current media
+     * @return the audio tracks, in container order. The list is empty if
+     * no media is open.
+     */
+    public synchronized List<AudioTrack> getAudioTracks() {
+        return audioTracks;
+    }
+    
+    /**
+     * Get the audio track currently being decoded
+     * @return the stream index of the active track, or -1 if there is none
+     */
+    public synchronized int getAudioTrack() {
+        return activeAudioTrack;
+    }
+    
+    /**
+     * Switch to a different audio track. The switch happens on the queue
+     * filler thread at the next packet, without seeking: audio already 
+     * decoded from the old track plays out, and the new track continues 
+     * from the same point in the media.
+     * @param index the stream index of the track, from 
+     * <code>AudioTrack.getIndex()</code>
+     * @throws IllegalArgumentException if there is no such audio track
+     */
+    public synchronized void setAudioTrack(int index) {
+        for (AudioTrack track : audioTracks) {
+            if (track.getIndex() == index) {
+                requestedAudioTrack = index;
+                return;
+            }
+        }
+        
+        throw new IllegalArgumentException("No audio track " + index);
+    }
+    
+    /**
+     * Set the statistics object to record packet read and decode times in
+     * @param stats the statistics to record, or null to not record
+     */
+    public synchronized void setPlaybackStats(PlaybackStats stats) {
+        this.stats = stats;
+    }
+    
+    /**
+     * Get the statistics object times are recorded in
+     * @return the statistics, or null if times are not recorded
+     */
+    public synchronized PlaybackStats getPlaybackStats() {
+        return stats;
+    }
+    
+    /**
+     * Set the account to record native memory used by decoded frames and
+     * decoders against. This takes effect for decoders the next time
+     * media is opened.
+     * @param memoryAccount the account, or null not to record memory
+     */
+    public synchronized void setMemoryAccount(Account memoryAccount) {
+        this.memoryAccount = memoryAccount;
+    }
+    
+    /**
+     * Get the account native memory is recorded against
+     * @return the account, or null if memory is not recorded
+     */
+    public synchronized Account getMemoryAccount() {
+        return memoryAccount;
+    }
+    
+    /**
+     * Set a factor to scale decoded frames down by, to reduce the memory
+     * each frame uses. Frames will be smaller than the size reported by
+     * <code>getSize()</code>.
+     * @param downscale the factor to divide the width and height by, or 1
+     * not to scale frames
+     */
+    public synchronized void setDownscale(int downscale) {
+        this.downscale = Math.max(downscale, 1);
+    }
+    
+    /**
+     * Set how frames are hashed to find duplicates. Hashing every word
+     * of each frame finds all duplicates exactly. Sampling fewer words is
+     * cheaper, but small changes may be missed.
+     * @param duplicateSampleStep hash every nth word of each frame, or 0
+     * not to hash frames
+     */
+    public synchronized void setDuplicateSampleStep(int duplicateSampleStep) {
+        this.duplicateSampleStep = Math.max(duplicateSampleStep, 0);
+    }
+    
+    /**
+     * Get how frames are hashed to find duplicates
+     * @return the sample step, or 0 if frames are not hashed
+     */
+    public synchronized int getDuplicateSampleStep() {
+        return duplicateSampleStep;
+    }
+    
+    /**
+     * Set the size of the tiles to report changes in. Each frame added to
+     * the queue records which tiles changed since the frame before it.
+     * @param dirtyTileSize the width and height of a tile in pixels, which
+     * must be a multiple of 16, or 0 not to report changed tiles
+     * @throws IllegalArgumentException if the tile size is not valid
+     */
+    public synchronized void setDirtyTileSize(int dirtyTileSize) {
+        if (dirtyTileSize < 0 || dirtyTileSize % 16 != 0) {
+            throw new IllegalArgumentException("Tile size must be a " +
+                    "multiple of 16: " + dirtyTileSize);
+        }
+        
+        this.dirtyTileSize = dirtyTileSize;
+    }
+    
+    /**
+     * Get the size of the tiles changes are reported in
+     * @return the tile size, or 0 if changes are not reported
+     */
+    public synchronized int getDirtyTileSize() {
+        return dirtyTileSize;
+    }
+    
+    /**
+     * Get the factor decoded frames are scaled down by
+     * @return the downscale factor
+     */
+    public synchronized int getDownscale() {
+        return downscale;
+    }
+    
+    /**
+     * Find out whether the current content is a live stream. Live streams
+     * use a protocol that doesn't support seeking, or have no duration
+     * and can't be seeked.
+     * @return true if the current content is live
+     */
+    public synchronized boolean isLive() {
+        if (mediaURI == null) {
+            return false;
+        }
+        
+        if (isNoSeekProtocol(mediaURI)) {
+            return true;
+        }
+        
+        return mediaLoaded && !isSeekEnabled() && getDuration() < 0;
+    }
+    
+    /**
+     * Determine if the given URI uses a protocol that doesn't support seek
+     * @param uri the uri to check
+     * @return true if the protocol doesn't support seek
+     */
+    private static boolean isNoSeekProtocol(String uri) {
+        for (String protocol : NO_SEEK_PROTOCOLS) {
+            if (uri.toLowerCase().startsWith(protocol)) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
     /**
      * Seek to the given time.
      * @param time the time to seek to
@@ -209,12 +579,13 @@ public class VideoQueueFiller implements Runnable {
     public void seek(double time) {
         // set the target time to seek to
         synchronized (this) {
-            if (!canSeek) {
+            // while it is unknown, try the seek to find out
+            if (seekable == Seekable.NO) {
                 LOGGER.warning("Unable to seek");
                 return;
             }
             
-            seek = new SeekOperation(time);
+            seek = createSeek(time);
         }
         
         LOGGER.fine("Seek to " + time);
@@ -223,6 +594,37 @@ public class VideoQueueFiller implements Runnable {
         queue.clear();
     }
     
+    /**
+     * Create a seek operation. Streams we are not decoding are marked as
+     * found, since we will never see a frame from them.
+     * @param time the time to seek to
+     * @return the seek operation
+     */
+    private synchronized SeekOperation createSeek(double time) {
+        SeekOperation out = new SeekOperation(time);
+        if (!audioEnabled) {
+            out.setAudioFound();
+        }
+        
+        if (!videoEnabled) {
+            out.setVideoFound();
+        }
+        
+        return out;
+    }
+    
+    /**
+     * Clear the current seek if it has found both audio and video. Must
+     * be called with the lock held.
+     */
+    private void checkSeekDone() {
+        if (seek != null && seek.isSeekPerformed() &&
+            !seek.isSeekingAudio() && !seek.isSeekingVideo())
+        {
+            seek = null;
+        }
+    }
+    
     /**
      * Return whether or not the queue filler is currently seeking.
      * @return true if either audio or video is currently seeking
@@ -233,10 +635,6 @@ public class VideoQueueFiller implements Runnable {
     
     @Override
     public void run() {         
-        synchronized (this) {
-            quit = false;
-        }
-
         try {
             // open the video
             LOGGER.warning("Thread " + thread + " opening " + mediaURI);
@@ -248,7 +646,9 @@ public class VideoQueueFiller implements Runnable {
                 while (!Thread.interrupted() && !isQuit()) {
                     if (!fillQueue()) {
                         // video is done
-                        queue.finished();
+                        if (!isQuit()) {
+                            queue.finished();
+                        }
                         break;
                     }
                 }
@@ -260,11 +660,7 @@ public class VideoQueueFiller implements Runnable {
             closeMedia();            
         } finally {
             // update our state
-            synchronized (this) {
-                LOGGER.warning("Thread " + thread + " exiting");
-                thread = null;
-                notifyAll();
-            }
+            threadExited();
         }
     }
     
@@ -347,6 +743,8 @@ public class VideoQueueFiller implements Runnable {
         videoCoder = null;
         audioStreamId = -1;
         audioCoder = null;
+        
+        List<AudioTrack> tracks = new ArrayList<AudioTrack>();
 
         for (int i = 0; i < numStreams; i++) {
             // get the next stream object
@@ -357,12 +755,21 @@ public class VideoQueueFiller implements Runnable {
                 // found video stream
                 videoStreamId = i;
                 videoCoder = coder;
-            } else if (audioStreamId == -1 && coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
-                // found audio stream
-                audioStreamId = i;
-                audioCoder = coder;
+            } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
+                // remember every audio track, but only decode the first
+                tracks.add(createAudioTrack(stream, coder));
+                
+                if (audioStreamId == -1) {
+                    audioStreamId = i;
+                    audioCoder = coder;
+                }
             }
         }
+        
+        synchronized (this) {
+            audioTracks = Collections.unmodifiableList(tracks);
+            activeAudioTrack = audioStreamId;
+        }
         if (videoStreamId == -1 && audioStreamId == -1) {
             LOGGER.warning("could not find audio or video stream in container: " + mediaURI);
             return;
@@ -377,8 +784,19 @@ public class VideoQueueFiller implements Runnable {
 
             LOGGER.fine("Opened video stream: " + videoCoder);
             
-            // notify queue of this new video
-            queue.newStream(videoStreamId, videoCoder);
+            // a new coder decodes every frame, so apply key frame mode
+            // again if it is on
+            synchronized (this) {
+                if (keyFramesOnly) {
+                    keyFramesOnlyChanged = true;
+                }
+            }
+            
+            // notify queue of this new video, unless the queue has
+            // already moved on to another thread
+            if (!isQuit()) {
+                queue.newStream(videoStreamId, videoCoder);
+            }
         }
 
         if (audioCoder != null) {
@@ -389,26 +807,112 @@ public class VideoQueueFiller implements Runnable {
             LOGGER.fine("Opened audio stream: " + audioCoder);
             
             // notify queue of this new audio
-            queue.newStream(audioStreamId, audioCoder);
+            if (!isQuit()) {
+                queue.newStream(audioStreamId, audioCoder);
+            }
         }
         
+        chargeCodecs();
+        
+        // guess whether the media can seek from what we know after
+        // reading the headers. Testing with a real seek would cost remote
+        // media an extra round trip before the first packet, so instead
+        // the first real seek decides. Only protocols that can't seek
+        // are known for sure.
+        boolean guess = guessSeekable();
+        Seekable known = isNoSeekProtocol(mediaURI) ? Seekable.NO :
+                                                      Seekable.UNKNOWN;
+        
         synchronized (this) {
-            // see if we should bother testing seek
-            boolean testSeek = true;
-            for (String protocol : NO_SEEK_PROTOCOLS) {
-                if (mediaURI.toLowerCase().startsWith(protocol)) {
-                    testSeek = false;
-                    break;
-                }
-            }
-            
-            // set up an initial seek to the start of the media. This will 
-            // determine if seeking is enabled
-            if (testSeek) {
-                seek = new SeekOperation(0d);
+            // a thread that has been stopped is only closing its media
+            if (!isQuit()) {
+                boolean wasEnabled = isSeekEnabled();
+                seekGuess = guess;
+                seekable = known;
+                seekEnabledChanged(wasEnabled);
+                
+                mediaLoaded = true;
+                notifyAll();
             }
         }
     }
+    
+    /**
+     * Record estimates of the native memory held by the open container
+     * and decoders, which Xuggler doesn't report. A video decoder is
+     * estimated from the size of the 4:2:0 pictures it keeps for
+     * reference. Switching audio tracks replaces one audio decoder with
+     * another, so the estimate doesn't change.
+     */
+    private void chargeCodecs() {
+        synchronized (this) {
+            codecAccount = memoryAccount;
+        }
+        
+        if (codecAccount == null) {
+            return;
+        }
+        
+        codecMemory = CONTAINER_MEMORY;
+        if (videoCoder != null) {
+            codecMemory += (long) videoCoder.getWidth() * 
+                           videoCoder.getHeight() * 3 / 2 * DECODER_PICTURES;
+        }
+        
+        if (audioCoder != null) {
+            codecMemory += AUDIO_CODER_MEMORY;
+        }
+        
+        codecAccount.allocate(Usage.CODECS, codecMemory);
+    }
+    
+    /**
+     * Guess whether the open media can seek, without seeking. Protocols
+     * that can't seek, and formats without timestamps or a duration
+     * (which are typically live streams) are assumed not to. Anything
+     * else is assumed to seek. The guess is replaced by the result of the
+     * first seek.
+     * @return true if the media can probably seek
+     */
+    private boolean guessSeekable() {
+        if (isNoSeekProtocol(mediaURI)) {
+            return false;
+        }
+        
+        IContainerFormat format = container.getContainerFormat();
+        if (format != null && 
+            format.getInputFlag(IContainerFormat.Flags.FLAG_NOTIMESTAMPS))
+        {
+            return false;
+        }
+        
+        return container.getDuration() != Global.NO_PTS;
+    }
+    
+    /**
+     * Find out whether seeking should be offered, from the result of the
+     * first seek if there has been one, or the guess if not. Must be
+     * called with the lock held.
+     * @return true if the media can seek
+     */
+    private boolean isSeekEnabled() {
+        return seekable == Seekable.YES ||
+               (seekable == Seekable.UNKNOWN && seekGuess);
+    }
+    
+    /**
+     * Tell the queue if whether seeking is offered has changed. Must be
+     * called with the lock held.
+     * @param wasEnabled whether seeking was offered before the change
+     */
+    private void seekEnabledChanged(boolean wasEnabled) {
+        boolean enabled = isSeekEnabled();
+        if (enabled == wasEnabled || isQuit()) {
+            return;
+        }
+        
+        queue.seekEnabledChanged(enabled);
+    }
 
     /**
      * Called by the queue filler thread to block until the next packet is
@@ -418,11 +922,49 @@ public class VideoQueueFiller implements Runnable {
         // check if we need to seek
         SeekOperation curSeek;
         boolean loaded;
+        boolean keyOnly;
+        boolean keyOnlyChanged;
+        boolean decodeAudio;
+        boolean decodeVideo;
+        PlaybackStats curStats;
+        Account account;
+        int scale;
+        int audioTrack;
+        int hashStep;
+        int tileSize;
         synchronized (this) {
             curSeek = seek;
             loaded = mediaLoaded;
+            keyOnly = keyFramesOnly;
+            // only take the change once there is a coder to apply it to,
+            // so a change made while the media is opening isn't lost
+            keyOnlyChanged = keyFramesOnlyChanged && videoCoder != null;
+            if (keyOnlyChanged) {
+                keyFramesOnlyChanged = false;
+            }
+            decodeAudio = audioEnabled;
+            decodeVideo = videoEnabled;
+            curStats = stats;
+            account = memoryAccount;
+            scale = downscale;
+            audioTrack = requestedAudioTrack;
+            hashStep = duplicateSampleStep;
+            tileSize = dirtyTileSize;
         }
         boolean seeking = (curSeek != null);
+        boolean timed = (curStats != null) || PipelineTrace.isEnabled();
+        
+        // tell the decoder to skip anything but key frames. We also skip
+        // non-key packets ourselves below, but this catches decoders that
+        // mark every packet as a key packet
+        if (keyOnlyChanged) {
+            videoCoder.setProperty("skip_frame", keyOnly ? "nokey" : "default");
+        }
+        
+        // switch audio tracks if requested
+        if (audioTrack >= 0 && audioTrack != audioStreamId) {
+            switchAudioTrack(audioTrack);
+        }
         
         // have we performed the seek() call yet? If not, do it now
         if (seeking && !curSeek.isSeekPerformed()) {
@@ -431,14 +973,33 @@ public class VideoQueueFiller implements Runnable {
         
         // Now, we start walking through the container looking at each packet.
         IPacket packet = IPacket.make();
+        long start = timed ? System.nanoTime() : 0;
         int res = container.readNextPacket(packet);
+        
+        // remember when the packet arrived, before decoding and queueing
+        // it, so jitter measures only delivery of the media
+        long arrivalTime = System.nanoTime() / 1000;
+        if (curStats != null) {
+            curStats.packetRead((System.nanoTime() - start) / 1000);
+        }
+        
+        if (PipelineTrace.isEnabled()) {
+            PipelineTrace.end(Stage.READ_PACKET, packet.getStreamIndex(),
+                              getPacketTime(packet), start);
+        }
+        
         if (res >= 0) {
-            // if we found the first packet, notify everyone that the media is
-            // completely loaded
+            // the media is normally marked loaded once its headers have 
+            // been read. If that didn't happen, it is loaded once the first
+            // packet is found
             if (!loaded) {
                 synchronized (this) {
-                    mediaLoaded = true;            
-                    notifyAll();
+                    // a thread that has been stopped is only closing 
+                    // its media
+                    if (!isQuit()) {
+                        mediaLoaded = true;            
+                        notifyAll();
+                    }
                 }
             
                 loaded = true;
@@ -446,15 +1007,38 @@ public class VideoQueueFiller implements Runnable {
             
             // Now we have a packet, let's see if it belongs to our video stream
             if (packet.getStreamIndex() == videoStreamId) {
+                // discard video if nobody is watching. The decoder misses
+                // the frames in between, so start again at a key frame
+                if (!decodeVideo) {
+                    waitForKeyFrame = true;
+                    return true;
+                }
+                
+                // in key frame mode, don't bother decoding other packets
+                if ((keyOnly || waitForKeyFrame) && !packet.isKeyPacket()) {
+                    return true;
+                }
+                
+                waitForKeyFrame = false;
+                
                 // We allocate a new picture to get the data out of Xuggler
                 IVideoPicture picture = IVideoPicture.make(videoCoder.getPixelType(),
                         videoCoder.getWidth(), videoCoder.getHeight());
 
                 // Now, we decode the video, checking for any errors.
+                start = timed ? System.nanoTime() : 0;
                 int bytesDecoded = videoCoder.decodeVideo(picture, packet, 0);
                 if (bytesDecoded < 0) {
+                    picture.delete();
                     throw new RuntimeException("got error decoding video");
                 }
+                
+                if (curStats != null) {
+                    curStats.videoDecoded((System.nanoTime() - start) / 1000);
+                }
+                
+                PipelineTrace.end(Stage.DECODE_VIDEO, videoStreamId,
+                                  picture.getTimeStamp(), start);
 
                 // check if we are seeking for video
                 boolean seekingVideo = false;
@@ -471,15 +1055,55 @@ public class VideoQueueFiller implements Runnable {
                     LOGGER.fine("Add picture to queue at " + 
                                 (picture.getTimeStamp() / 1000000.0));
                     
-                    queue.add(picture);
+                    picture = downscale(picture, scale);
+                    VideoFrame frame = new VideoFrame(picture, account);
+                    
+                    // hash the frame, so the queue can tell consumers when
+                    // a frame is unchanged
+                    if (hashStep > 0) {
+                        if (hasher == null || 
+                            hasher.getSampleStep() != hashStep) 
+                        {
+                            hasher = new FrameHasher(hashStep);
+                        }
+                        
+                        frame.setHash(hasher.hash(picture));
+                    }
+                    
+                    findDirtyTiles(frame, tileSize);
+                    
+                    // a stopped thread is only closing its media, and 
+                    // must not add to the queue the new thread is filling
+                    if (isQuit()) {
+                        frame.release();
+                    } else {
+                        queue.add(frame);
+                    }
+                } else if (picture.isComplete() && !isQuit()) {
+                    // we had to decode this frame to get to the seek
+                    // target. Let the queue know in case it is useful.
+                    picture = downscale(picture, scale);
+                    queue.seekFrame(new VideoFrame(picture, account));
+                } else {
+                    // nobody else will see this picture, so free it now
+                    picture.delete();
                 }
             } else if (packet.getStreamIndex() == audioStreamId) {
+                // discard audio if nobody is listening
+                if (!decodeAudio) {
+                    return true;
+                }
+                
                 // We allocate a set of samples with the same number of channels as the
                 // coder tells us is in this buffer.
                 //
                 // We also pass in a buffer size (1024 in our example), although Xuggler
                 // will probably allocate more space than just the 1024 (it's not important why).    
                 IAudioSamples samples = IAudioSamples.make(1024, audioCoder.getChannels());
+                long samplesMemory = samples.getMaxBufferSize();
+                if (account != null) {
+                    account.allocate(Usage.SAMPLES, samplesMemory);
+                }
 
                 // A packet can actually contain multiple sets of samples (or frames of samples
                 // in audio-decoding speak).  So, we may need to call decode audio multiple
@@ -516,44 +1140,64 @@ public class VideoQueueFiller implements Runnable {
                 boolean ptsSet = false;
                 
                 // Keep going until we've processed all data
-                while (offset < packet.getSize()) {
-                    int bytesDecoded = audioCoder.decodeAudio(samples, packet, offset);
-                    if (bytesDecoded < 0) {
-                        throw new RuntimeException("got error decoding audio");
-                    }
-                    offset += bytesDecoded;
+                start = timed ? System.nanoTime() : 0;
+                try {
+                    while (offset < packet.getSize()) {
+                        int bytesDecoded = audioCoder.decodeAudio(samples, packet, offset);
+                        if (bytesDecoded < 0) {
+                            throw new RuntimeException("got error decoding audio");
+                        }
+                        offset += bytesDecoded;
 
-                    // check if we are seeking for audio
-                    boolean seekingAudio = false;
-                    if (seeking) {
-                        seekingAudio = !isSeekComplete(curSeek, samples, false);
-                    }
-                    
-                    // Some decoder will consume data in a packet, but will not be able to construct
-                    // a full set of samples yet.  Therefore you should always check if you
-                    // got a complete set of samples from the decoder
-                    if (samples.isComplete() && !seekingAudio) {
-                        // check if we have set the PTS, and if not do it now
-                        if (!ptsSet) {
-                            pts = samples.getPts();
-                            ptsSet = true;
+                        // check if we are seeking for audio
+                        boolean seekingAudio = false;
+                        if (seeking) {
+                            seekingAudio = !isSeekComplete(curSeek, samples, false);
                         }
+                    
+                        // Some decoder will consume data in a packet, but will not be able to construct
+                        // a full set of samples yet.  Therefore you should always check if you
+                        // got a complete set of samples from the decoder
+                        if (samples.isComplete() && !seekingAudio) {
+                            // check if we have set the PTS, and if not do it now
+                            if (!ptsSet) {
+                                pts = samples.getPts();
+                                ptsSet = true;
+                            }
                         
-                        // write the data at the current offset in the buffer
-                        // and update our pointers
-                        samples.getData().get(0, data, dataOffset, samples.getSize());
-                        dataOffset += samples.getSize();
-                        dataLength += samples.getSize();
+                            // write the data at the current offset in the buffer
+                            // and update our pointers
+                            samples.getData().get(0, data, dataOffset, samples.getSize());
+                            dataOffset += samples.getSize();
+                            dataLength += samples.getSize();
+                        }
+                    }
+                } finally {
+                    // free the samples now rather than when they are
+                    // garbage collected
+                    samples.delete();
+                    if (account != null) {
+                        account.free(Usage.SAMPLES, samplesMemory);
                     }
                 }
                 
+                if (curStats != null) {
+                    curStats.audioDecoded((System.nanoTime() - start) / 1000);
+                }
+                
+                PipelineTrace.end(Stage.DECODE_AUDIO, audioStreamId,
+                                  ptsSet ? pts : PipelineTrace.UNKNOWN, start);
+                
                 // at this point, if we never set the PTS, it means we were
                 // seeking and there is no packet to write. If data is null,
                 // it means we wrote the data in chunks above
                 if (ptsSet && data != null) {
                     LOGGER.fine("Add audio to queue at " + (pts / 1000000.0));
-                    AudioFrame frame = new AudioFrame(pts, data, dataLength);
-                    queue.add(frame);
+                    AudioFrame frame = new AudioFrame(pts, data, dataLength,
+                                                      arrivalTime);
+                    if (!isQuit()) {
+                        queue.add(frame);
+                    }
                 }
             }
         }
@@ -563,41 +1207,225 @@ public class VideoQueueFiller implements Runnable {
     }
     
     private void performSeek(SeekOperation curSeek) {
+        long start = PipelineTrace.begin();
         long seekTarget = (long) (curSeek.getTargetTime() * 1000000);
         long min = seekTarget - 100;
 
         LOGGER.fine("Perform seek for " + seekTarget);
 
-        // rescale to audio queue
-        IRational containerTimeBase = IRational.make(1, 1000000);
-        min = audioCoder.getTimeBase().rescale(min, containerTimeBase);
-        seekTarget = audioCoder.getTimeBase().rescale(seekTarget, containerTimeBase);
+        // seek on the audio stream, or the video stream if there is no
+        // audio
+        int seekStreamId = audioStreamId;
+        IStreamCoder seekCoder = audioCoder;
+        if (seekCoder == null) {
+            seekStreamId = videoStreamId;
+            seekCoder = videoCoder;
+        }
+        
+        // rescale to the stream's time base
+        min = seekCoder.getTimeBase().rescale(min, MICROSECONDS);
+        seekTarget = seekCoder.getTimeBase().rescale(seekTarget, MICROSECONDS);
 
-        LOGGER.fine("Translate to " + audioCoder.getTimeBase() + 
+        LOGGER.fine("Translate to " + seekCoder.getTimeBase() + 
                        " = " + seekTarget);
 
-        int res = container.seekKeyFrame(audioStreamId, min, seekTarget, seekTarget, 0);
-        if (res < 0) {
-            synchronized (this) {
-                canSeek = false;
-                seek.setVideoFound();
-                seek.setAudioFound();
+        int res = container.seekKeyFrame(seekStreamId, min, seekTarget, seekTarget, 0);
+        synchronized (this) {
+            // the first seek decides whether the media can really seek.
+            // Later failures are reported, but don't stop further seeks.
+            if (seekable == Seekable.UNKNOWN) {
+                boolean wasEnabled = isSeekEnabled();
+                seekable = (res >= 0) ? Seekable.YES : Seekable.NO;
+                seekEnabledChanged(wasEnabled);
             }
             
-            LOGGER.warning("Unable to seek: " + res);
-        } else {
-            synchronized (this) {
-                canSeek = true;
+            if (res < 0) {
+                curSeek.setVideoFound();
+                curSeek.setAudioFound();
             }
         }
+        
+        if (res < 0) {
+            LOGGER.warning("Unable to seek: " + res);
+        }
        
         // notify the listener to clear as well. We already did this once
         // during the call to seek() to ensure the fillQueues() would run,
         // but we need to do it again here to get rid of any data that
         // was added between the call to seek and when we got here
-        queue.clear();
+        if (!isQuit()) {
+            queue.clear();
+        }
         
         curSeek.setSeekPerformed();
+        
+        // if there are no streams left to search, the seek is done
+        synchronized (this) {
+            checkSeekDone();
+        }
+        
+        PipelineTrace.end(Stage.SEEK, audioStreamId, 
+                          (long) (curSeek.getTargetTime() * 1000000), start);
+    }
+    
+    /**
+     * Describe an audio stream
+     * @param stream the stream
+     * @param coder the stream's coder
+     * @return a description of the track
+     */
+    private static AudioTrack createAudioTrack(IStream stream, 
+                                               IStreamCoder coder) 
+    {
+        String codec = (coder.getCodec() != null) ? 
+                       coder.getCodec().getName() : 
+                       coder.getCodecID().name();
+        
+        return new AudioTrack(stream.getIndex(), stream.getLanguage(), codec,
+                              coder.getChannels(), coder.getSampleRate());
+    }
+    
+    /**
+     * Start decoding a different audio stream. The old decoder is closed
+     * and packets from its stream are discarded from now on.
+     * @param index the stream index to switch to
+     */
+    private void switchAudioTrack(int index) {
+        IStreamCoder coder = container.getStream(index).getStreamCoder();
+        if (coder.open() < 0) {
+            LOGGER.warning("could not open audio decoder for track " + index +
+                           " in " + mediaURI);
+            
+            // don't try again on every packet
+            synchronized (this) {
+                requestedAudioTrack = -1;
+            }
+            
+            return;
+        }
+        
+        if (audioCoder != null) {
+            audioCoder.close();
+        }
+        
+        audioCoder = coder;
+        audioStreamId = index;
+        
+        synchronized (this) {
+            activeAudioTrack = index;
+        }
+        
+        LOGGER.fine("Switched to audio stream: " + audioCoder);
+        
+        // let the queue adjust to the format of the new track
+        if (!isQuit()) {
+            queue.newStream(audioStreamId, audioCoder);
+        }
+    }
+    
+    /**
+     * Record the tiles of a frame that changed since the last frame added
+     * to the queue. The frame is kept to compare the next frame against.
+     * @param frame the frame to check
+     * @param tileSize the tile size, or 0 not to check for changes
+     */
+    private void findDirtyTiles(VideoFrame frame, int tileSize) {
+        if (tileSize <= 0) {
+            setPreviousFrame(null);
+            return;
+        }
+        
+        if (tileDetector == null || tileDetector.getTileSize() != tileSize) {
+            tileDetector = new DirtyTileDetector(tileSize);
+        }
+        
+        if (previousFrame != null) {
+            frame.setDirtyTiles(tileDetector.compare(previousFrame, frame));
+        }
+        
+        setPreviousFrame(frame);
+    }
+    
+    /**
+     * Change the frame new frames are compared against, releasing the
+     * old one
+     * @param frame the new frame to keep, or null to keep no frame
+     */
+    private void setPreviousFrame(VideoFrame frame) {
+        if (frame != null) {
+            frame.retain();
+        }
+        
+        if (previousFrame != null) {
+            previousFrame.release();
+        }
+        
+        previousFrame = frame;
+    }
+    
+    /**
+     * Scale a picture down to save memory. If the picture is scaled, the
+     * original picture is deleted.
+     * @param picture the picture to scale
+     * @param factor the factor to divide the width and height by
+     * @return the scaled picture, or the original picture if it was not
+     * scaled
+     */
+    private IVideoPicture downscale(IVideoPicture picture, int factor) {
+        if (factor <= 1 || !IVideoResampler.isSupported(
+                IVideoResampler.Feature.FEATURE_IMAGERESCALING))
+        {
+            return picture;
+        }
+        
+        // keep the size even, for formats with subsampled chroma
+        int width = Math.max((picture.getWidth() / factor) & ~1, 2);
+        int height = Math.max((picture.getHeight() / factor) & ~1, 2);
+        
+        if (resampler == null || resampler.getOutputWidth() != width ||
+            resampler.getOutputHeight() != height)
+        {
+            if (resampler != null) {
+                resampler.delete();
+            }
+            
+            resampler = IVideoResampler.make(width, height, 
+                    picture.getPixelType(), picture.getWidth(), 
+                    picture.getHeight(), picture.getPixelType());
+            if (resampler == null) {
+                LOGGER.warning("Unable to scale video to " + width + "x" + 
+                               height);
+                return picture;
+            }
+        }
+        
+        IVideoPicture out = IVideoPicture.make(
+                resampler.getOutputPixelFormat(), width, height);
+        if (resampler.resample(out, picture) < 0) {
+            LOGGER.warning("Error scaling video");
+            out.delete();
+            return picture;
+        }
+        
+        picture.delete();
+        return out;
+    }
+    
+    /**
+     * Get the time of a packet in microseconds
+     * @param packet the packet
+     * @return the packet time, or PipelineTrace.UNKNOWN if the packet has 
+     * no time
+     */
+    private static long getPacketTime(IPacket packet) {
+        if (packet.getTimeStamp() == Global.NO_PTS || 
+            packet.getTimeBase() == null) 
+        {
+            return PipelineTrace.UNKNOWN;
+        }
+        
+        return MICROSECONDS.rescale(packet.getTimeStamp(), 
+                                    packet.getTimeBase());
     }
     
     private boolean isSeekComplete(SeekOperation curSeek, IMediaData frame,
@@ -616,8 +1444,8 @@ public class VideoQueueFiller implements Runnable {
         LOGGER.fine((video?"Video ":"Audio ") + frameTime + " seeking for " +
                     curSeek.getTargetTime() + " diff: " + timeDiff);
 
-        // we have found the frame if the time difference is withing 0.05
-        // seconds of the target (TODO: adjust based on frame rate).
+        // we have found the frame if the time difference is within half a
+        // frame of the target, or 0.05 seconds for audio.
         //
         // The second case is a hack: sometimes due to buffering, the first
         // packet we see is from the old time. We generally want to ignore 
@@ -625,7 +1453,8 @@ public class VideoQueueFiller implements Runnable {
         // packets were found at the target time, and we have actually found
         // the best option
         int skipCount = video?curSeek.getSkipVideoCount():curSeek.getSkipAudioCount();
-        if (Math.abs(timeDiff) < 0.05d || (timeDiff < 0d && skipCount > 0)) {
+        double tolerance = video?getSeekTolerance():0.05d;
+        if (Math.abs(timeDiff) < tolerance || (timeDiff < 0d && skipCount > 0)) {
             // we have found our frame
             if (video) {
                 curSeek.setVideoFound();
@@ -653,7 +1482,39 @@ public class VideoQueueFiller implements Runnable {
         }
     }
 
+    /**
+     * Get how close a video frame must be to a seek target to be 
+     * considered the target frame. This is half the frame duration, so
+     * seeking can land on an exact frame.
+     * @return the tolerance in seconds
+     */
+    private double getSeekTolerance() {
+        double frameRate = 0;
+        if (videoCoder != null && videoCoder.getFrameRate() != null) {
+            frameRate = videoCoder.getFrameRate().getDouble();
+        }
+        
+        if (frameRate <= 0) {
+            return 0.05d;
+        }
+        
+        return Math.min(0.05d, 0.5d / frameRate);
+    }
+    
     private void closeMedia() {
+        setPreviousFrame(null);
+        
+        if (resampler != null) {
+            resampler.delete();
+            resampler = null;
+        }
+        
+        if (codecAccount != null) {
+            codecAccount.free(Usage.CODECS, codecMemory);
+            codecAccount = null;
+            codecMemory = 0;
+        }
+        
         if (videoCoder != null) {
             videoCoder.close();
             videoCoder = null;
@@ -673,35 +1534,46 @@ public class VideoQueueFiller implements Runnable {
         
         synchronized (this) {
             mediaLoaded = false;
+            seekable = Seekable.UNKNOWN;
+            seekGuess = false;
+            audioTracks = Collections.emptyList();
+            activeAudioTrack = -1;
         }
     }
 
+    /**
+     * Tell the filler thread to stop. The thread is detached right away,
+     * and closes its media when it notices, so a new thread can be started
+     * without waiting.
+     */
     private synchronized void quit() {
-        this.quit = true;
-
-        // timeout after 10 seconds
-        long now = System.currentTimeMillis();
-        long timeoutTime = now + getCloseTimeout();
-        
-        try {
-            while (isRunning() && now < timeoutTime) {
-                LOGGER.warning("Interrupting thread " + thread);
-                thread.interrupt();
-                wait(1000);
-                now = System.currentTimeMillis();
-                
-            }
-        } catch (InterruptedException ie) {
-        } finally {
-            if (isRunning()) {
-                LOGGER.warning("Failed to interrupt thread " + thread);
-                thread = null;
-            }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
         }
+        
+        mediaLoaded = false;
+        notifyAll();
     }
 
+    /**
+     * Determine if the calling filler thread has been stopped
+     * @return true if the thread should exit
+     */
     private synchronized boolean isQuit() {
-        return quit;
+        return thread != Thread.currentThread();
+    }
+
+    /**
+     * Whether the media can seek
+     */
+    private enum Seekable {
+        /** no seek has been tried yet */
+        UNKNOWN,
+        /** the first seek succeeded */
+        YES,
+        /** the media can't seek */
+        NO
     }
 
     private class SeekOperation {
@@ -771,9 +1643,27 @@ public class VideoQueueFiller implements Runnable {
 
         /**
          * Add the next video frame to the queue, blocking until there is
-         * room.
+         * room. The queue takes over the caller's reference to the frame,
+         * and must release it when done, including if this method throws
+         * an exception.
+         */
+        public void add(VideoFrame frame) throws InterruptedException;
+        
+        /**
+         * Notification of a video frame that was decoded on the way to a
+         * seek target, and will not be added to the queue. The queue
+         * takes over the caller's reference to the frame.
          */
-        public void add(IVideoPicture picture) throws InterruptedException;
+        public void seekFrame(VideoFrame frame);
+        
+        /**
+         * Notification that the media was found to be able to seek, or
+         * not. This is called when media that can probably seek is
+         * opened, and again if the first seek shows it can't seek after
+         * all.
+         * @param seekEnabled true if the media can seek
+         */
+        public void seekEnabledChanged(boolean seekEnabled);
         
         /**
          * Add the next audio frame to the queue, blocking until there is
@@ -796,16 +1686,42 @@ public class VideoQueueFiller implements Runnable {
         private final long pts;
         private final byte[] data;
         private final int length;
+        private final long arrivalTime;
 
         public AudioFrame(long pts, byte[] data, int length) {
+            this(pts, data, length, -1);
+        }
+        
+        /**
+         * Create a frame of audio
+         * @param pts the presentation time of the frame, in microseconds
+         * @param data the audio data
+         * @param length the length of the data
+         * @param arrivalTime the wall time the packet holding this frame
+         * was read, in microseconds, or -1 if it is unknown
+         */
+        public AudioFrame(long pts, byte[] data, int length, 
+                          long arrivalTime) 
+        {
             this.pts = pts;
             this.data = data;
             this.length = length;
+            this.arrivalTime = arrivalTime;
         }
 
         public long getPTS() {
             return pts;
         }
+        
+        /**
+         * Get the wall time the packet holding this frame was read. This 
+         * is before the frame was decoded or queued, so it reflects only
+         * the delivery of the media.
+         * @return the arrival time in microseconds, or -1 if it is unknown
+         */
+        public long getArrivalTime() {
+            return arrivalTime;
+        }
 
         public byte[] getData() {
             return data;
@@ -26,7 +26,9 @@ import org.jdesktop.wonderland.video.client.VideoPlayer.VideoPlayerState;
 public interface VideoStateListener {
     /**
      * Notified when the state of a video player transitions from one state
-     * to another
+     * to another. Notifications are made in order on the player's event
+     * thread. If the state changes several times before a notification is
+     * made, a single notification covers all the changes.
      * @param oldState the previous state of the video player
      * @param newState the new state of the video player
      */
@@ -43,4 +43,14 @@ public interface VideoStateSource extends VideoPlayer {
      * Remove a listener for new frames
      */
     public void removeFrameListener(FrameListener listener);
+
+    /**
+     * Add a listener for changes in what the player can do with its media
+     */
+    public void addCapabilityListener(VideoCapabilityListener listener);
+
+    /**
+     * Remove a listener for capability changes
+     */
+    public void removeCapabilityListener(VideoCapabilityListener listener);
 }
@@ -0,0 +1,205 @@
+/**
+ * Open Wonderland
+ *
+ * Copyright (c) 2026, Open Wonderland Foundation, All Rights Reserved
+ *
+ * Redistributions in source code form must reproduce the above
+ * copyright and this condition.
+ *
+ * The contents of this file are subject to the GNU General Public
+ * License, Version 2 (the "License"); you may not use this file
+ * except in compliance with the License. A copy of the License is
+ * available at http://www.opensource.org/licenses/gpl-license.php.
+ *
+ * The Open Wonderland Foundation designates this particular file as
+ * subject to the "Classpath" exception as provided by the Open Wonderland
+ * Foundation in the License file that accompanied this code.
+ */
+package org.jdesktop.wonderland.video.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * An audio sink that writes audio to a WAV file. The sink is clocked the
+ * same way as a <code>NullAudioSink</code>, so it can record in realtime
+ * or as fast as audio is decoded. Everything written to the sink is
+ * recorded, including data that is later flushed.
+ *
+ * @author agent <agent@local>
+ */
+public class WavAudioSink extends NullAudioSink {
+    private static final Logger LOGGER =
+            Logger.getLogger(WavAudioSink.class.getName());
+
+    // the size of the RIFF header
+    private static final int HEADER_SIZE = 44;
+
+    private final File file;
+    private RandomAccessFile out;
+    private long dataSize;
+
+    /**
+     * Create a sink that records in realtime
+     * @param file the file to write to
+     */
+    public WavAudioSink(File file) {
+        this(file, true);
+    }
+
+    /**
+     * Create a sink
+     * @param file the file to write to
+     * @param realtime true to record at normal speed, or false to record
+     * as fast as audio is written
+     */
+    public WavAudioSink(File file, boolean realtime) {
+        super(realtime);
+
+        this.file = file;
+    }
+
+    /**
+     * Get the file this sink writes to
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public AudioFormat chooseFormat(AudioFormat coderFormat, boolean resample) {
+        // WAV files are little-endian
+        if (coderFormat.isBigEndian()) {
+            return new AudioFormat(coderFormat.getEncoding(),
+                                   coderFormat.getSampleRate(),
+                                   coderFormat.getSampleSizeInBits(),
+                                   coderFormat.getChannels(),
+                                   coderFormat.getFrameSize(),
+                                   coderFormat.getFrameRate(), false);
+        }
+
+        return coderFormat;
+    }
+
+    @Override
+    public synchronized void open(AudioFormat format)
+            throws LineUnavailableException
+    {
+        super.open(format);
+
+        try {
+            out = new RandomAccessFile(file, "rw");
+            out.setLength(0);
+            dataSize = 0;
+            writeHeader();
+        } catch (IOException ioe) {
+            closeFile();
+
+            LineUnavailableException lue = new LineUnavailableException(
+                    "Unable to write " + file);
+            lue.initCause(ioe);
+            throw lue;
+        }
+    }
+
+    @Override
+    public int write(byte[] data, int offset, int length) {
+        int written = super.write(data, offset, length);
+
+        synchronized (this) {
+            if (out != null && written > 0) {
+                try {
+                    out.write(data, offset, written);
+                    dataSize += written;
+                } catch (IOException ioe) {
+                    LOGGER.log(Level.WARNING, "Error writing " + file, ioe);
+                    closeFile();
+                }
+            }
+        }
+
+        return written;
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+
+        if (out != null) {
+            try {
+                writeHeader();
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Error writing " + file, ioe);
+            }
+
+            closeFile();
+        }
+    }
+
+    /**
+     * Write the RIFF header at the start of the file, with the current
+     * data size
+     */
+    private void writeHeader() throws IOException {
+        AudioFormat format = getFormat();
+        int channels = format.getChannels();
+        int sampleRate = (int) format.getSampleRate();
+        int frameSize = format.getFrameSize();
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(
+                format.getEncoding());
+
+        byte[] header = new byte[HEADER_SIZE];
+        putString(header, 0, "RIFF");
+        putInt(header, 4, (int) (HEADER_SIZE - 8 + dataSize));
+        putString(header, 8, "WAVE");
+        putString(header, 12, "fmt ");
+        putInt(header, 16, 16);
+        putShort(header, 20, isFloat ? 3 : 1);
+        putShort(header, 22, channels);
+        putInt(header, 24, sampleRate);
+        putInt(header, 28, sampleRate * frameSize);
+        putShort(header, 32, frameSize);
+        putShort(header, 34, format.getSampleSizeInBits());
+        putString(header, 36, "data");
+        putInt(header, 40, (int) dataSize);
+
+        long position = out.getFilePointer();
+        out.seek(0);
+        out.write(header);
+        out.seek(Math.max(position, HEADER_SIZE));
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+
+            out = null;
+        }
+    }
+
+    private static void putString(byte[] buffer, int offset, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            buffer[offset + i] = (byte) str.charAt(i);
+        }
+    }
+
+    private static void putShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        putShort(buffer, offset, value);
+        putShort(buffer, offset + 2, value >> 16);
+    }
+}